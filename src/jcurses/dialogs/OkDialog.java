@@ -55,7 +55,7 @@ public class OkDialog {
 	 * @param  aLabel    button label
 	 */
 	public OkDialog(String aTitle, String aMessage, String aLabel) {
-		int mWidth = Math.min(Toolkit.getScreenWidth() - WIDTH_FACTOR, Math.max(aTitle.length() + 2, 40));
+		int mWidth = Math.min(Toolkit.getScreenWidth() - WIDTH_FACTOR, Math.max(TextUtils.getDisplayWidth(aTitle) + 2, 40));
 		String mLines[] = TextUtils.wrapLines(aMessage, mWidth);
 		int mHeight = Math.min(Toolkit.getScreenHeight() - HEIGHT_FACTOR, mLines.length);
 
@@ -72,9 +72,9 @@ public class OkDialog {
 				}
 			});
 
-		int btnX = (mWidth - aLabel.length() - WIDTH_PADDING) / 2;
+		int btnX = (mWidth - TextUtils.getDisplayWidth(aLabel) - WIDTH_PADDING) / 2;
 		int btnY = mHeight + HEIGHT_FACTOR / 2;
-		layout.addWidget(mYes, btnX, btnY, aLabel.length() + WIDTH_FACTOR, 1, WidgetsConstants.ALIGNMENT_CENTER, WidgetsConstants.ALIGNMENT_CENTER);
+		layout.addWidget(mYes, btnX, btnY, TextUtils.getDisplayWidth(aLabel) + WIDTH_FACTOR, 1, WidgetsConstants.ALIGNMENT_CENTER, WidgetsConstants.ALIGNMENT_CENTER);
 
 		Label mMessage = new Label(TextUtils.mergeLines(mLines));
 		layout.addWidget(mMessage, 1, 1, mWidth, mHeight, WidgetsConstants.ALIGNMENT_CENTER, WidgetsConstants.ALIGNMENT_CENTER);
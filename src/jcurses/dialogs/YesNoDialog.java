@@ -107,7 +107,8 @@ public class YesNoDialog {
 	public YesNoDialog(String aTitle, String aMessage, String aYesLabel, String aNoLabel, boolean aDefault) {
 		result = aDefault;
 
-		int mWidth = Math.max(aYesLabel.length() + aNoLabel.length() + (4 * WIDTH_FACTOR), Math.max(aTitle.length() + 2, 50));
+		int mWidth = Math.max(TextUtils.getDisplayWidth(aYesLabel) + TextUtils.getDisplayWidth(aNoLabel) + (4 * WIDTH_FACTOR),
+				Math.max(TextUtils.getDisplayWidth(aTitle) + 2, 50));
 		mWidth = Math.min(Toolkit.getScreenWidth() - WIDTH_FACTOR, mWidth);
 
 		String mLines[] = TextUtils.wrapLines(aMessage, mWidth);
@@ -124,7 +125,7 @@ public class YesNoDialog {
 		layout.addWidget(mMessage, 1, 1, mWidth, mHeight, WidgetsConstants.ALIGNMENT_CENTER, WidgetsConstants.ALIGNMENT_CENTER);
 
 		int btnY = mHeight + (HEIGHT_FACTOR / 2);
-		int btnWide = WIDTH_FACTOR + Math.max(aYesLabel.length(), aNoLabel.length());
+		int btnWide = WIDTH_FACTOR + Math.max(TextUtils.getDisplayWidth(aYesLabel), TextUtils.getDisplayWidth(aNoLabel));
 		int btnStep = ((mWidth - (2 * btnWide)) / 3) + 1;
 
 		mYes = new Button(aYesLabel);
@@ -0,0 +1,16 @@
+package jcurses.net;
+
+/**
+ * The application served by a {@link TelnetServer}. It is started once for every connection.
+ *
+ */
+public interface TelnetApplication {
+
+    /**
+     * Called for every new connection, in a new thread bound to the screen of the session. The application shows its first window
+     * and returns, the session ends, when its last window is closed or the client disconnects.
+     *
+     * @param  aSession  the new session
+     */
+    void sessionStarted(TelnetSession aSession);
+}
@@ -0,0 +1,338 @@
+package jcurses.net;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import jcurses.util.Protocol;
+import jcurses.util.ThreadUtils;
+import jcurses.widgets.Screen;
+
+/**
+ * A telnet server running a jcurses session for every connection. All connections are served by one thread with a non blocking
+ * selector, the application code of a session runs in the input thread of its {@link Screen}. The input threads of the sessions
+ * and the threads starting them are virtual threads, where the JVM supports them, so idle sessions don't cost platform threads.
+ * The selector thread keeps the JVM alive until the server is stopped.
+ * <p>
+ * The server switches the client into character mode, lets it report its window size and translates the output of the session into
+ * ANSI escape sequences. A client, that can't receive the output as fast as it is painted, doesn't slow the session down or fill
+ * the memory of the server: frames painted while the output of the previous frame is still queued are skipped, and only the
+ * difference between the latest screen and the screen last sent is sent, when the queue is drained.
+ *
+ * <pre>
+ * TelnetServer server = new TelnetServer(2323, new TelnetApplication() {
+ *     public void sessionStarted(TelnetSession aSession) {
+ *         new MainWindow().show();
+ *     }
+ * });
+ * server.start();
+ * </pre>
+ */
+public class TelnetServer implements Runnable {
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+    private final InetAddress _address;
+    private final int _port;
+    private final TelnetApplication _application;
+    private String _encoding = "UTF-8";
+    private int _colorCount = 8;
+
+    private Selector _selector = null;
+    private ServerSocketChannel _serverChannel = null;
+    private Thread _thread = null;
+    private volatile boolean _running = false;
+    private final ConcurrentLinkedQueue<TelnetSession> _updates = new ConcurrentLinkedQueue<TelnetSession>();
+    private final List<TelnetSession> _sessions = new ArrayList<TelnetSession>();
+    private final ByteBuffer _readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private final byte [] _readBytes = new byte[READ_BUFFER_SIZE];
+
+    /**
+     * The constructor for a server listening on all local addresses
+     *
+     * @param  aPort         the port, 0 for a free port chosen by the system, see <code>getPort</code>
+     * @param  aApplication  the application started for every connection
+     */
+    public TelnetServer(int aPort, TelnetApplication aApplication) {
+        this(null, aPort, aApplication);
+    }
+
+    /**
+     * The constructor
+     *
+     * @param  aAddress      the local address to listen on, <code>null</code> for all local addresses
+     * @param  aPort         the port, 0 for a free port chosen by the system, see <code>getPort</code>
+     * @param  aApplication  the application started for every connection
+     */
+    public TelnetServer(InetAddress aAddress, int aPort, TelnetApplication aApplication) {
+        _address = aAddress;
+        _port = aPort;
+        _application = aApplication;
+    }
+
+    /**
+     * Sets the encoding of the text sent to and received from the clients. It must be called before the server is started.
+     *
+     * @param  aEncoding  the encoding, the default is UTF-8
+     */
+    public void setEncoding(String aEncoding) {
+        _encoding = aEncoding;
+    }
+
+    /**
+     * @return    the encoding of the text sent to and received from the clients
+     */
+    public String getEncoding() {
+        return _encoding;
+    }
+
+    /**
+     * Sets the number of colors assumed for the clients. It must be called before the server is started.
+     *
+     * @param  aColors  the number of colors, 0, 8, 16, 256 or 16777216 for direct colors, the default is 8
+     */
+    public void setColorCount(int aColors) {
+        _colorCount = aColors;
+    }
+
+    /**
+     * @return    the number of colors assumed for the clients
+     */
+    public int getColorCount() {
+        return _colorCount;
+    }
+
+    /**
+     * Opens the server socket and starts the thread serving the connections
+     *
+     * @throws  IOException            if the server socket can't be opened
+     * @throws  IllegalStateException  if the server is already started
+     */
+    public synchronized void start() throws IOException {
+        if (_thread != null) {
+            throw new IllegalStateException("The server is already started");
+        }
+
+        _selector = Selector.open();
+        _serverChannel = ServerSocketChannel.open();
+        try {
+            _serverChannel.socket().setReuseAddress(true);
+            _serverChannel.socket().bind(new InetSocketAddress(_address, _port));
+            _serverChannel.configureBlocking(false);
+            _serverChannel.register(_selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            _serverChannel.close();
+            _selector.close();
+            throw e;
+        }
+
+        _running = true;
+        _thread = new Thread(this, "jcurses-telnet");
+        _thread.start();
+    }
+
+    /**
+     * Stops the server. The connections are closed, the sessions end, when their applications have closed their windows.
+     */
+    public void stop() {
+        Thread thread;
+
+        synchronized (this) {
+            if (_thread == null) {
+                return;
+            }
+            _running = false;
+            _selector.wakeup();
+            thread = _thread;
+        }
+
+        if (thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return    the port, the server listens on, -1, if the server isn't started
+     */
+    public synchronized int getPort() {
+        return (_serverChannel == null) ? -1 : _serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return    the number of open connections
+     */
+    public int getSessionCount() {
+        synchronized (_sessions) {
+            return _sessions.size();
+        }
+    }
+
+    /**
+     *  Serves the connections until the server is stopped
+     */
+    public void run() {
+        try {
+            while (_running) {
+                processUpdates();
+                _selector.select();
+
+                Iterator<SelectionKey> keys = _selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (! key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+
+                    TelnetSession session = (TelnetSession) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(session);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            session.writeQueued();
+                        }
+                    } catch (IOException e) {
+                        session.disconnected();
+                    }
+                    if (key.isValid()) {
+                        processUpdate(session);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Protocol.system("telnet server failed: " + e);
+        } finally {
+            closeAll();
+        }
+    }
+
+    /**
+     *  Accepts a new connection and starts its session
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = _serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+
+        final TelnetSession session = new TelnetSession(this, channel, _encoding, _colorCount);
+        session.setKey(channel.register(_selector, SelectionKey.OP_READ, session));
+        synchronized (_sessions) {
+            _sessions.add(session);
+        }
+        session.negotiate();
+
+        Thread thread = ThreadUtils.newThread(new Runnable() {
+            public void run() {
+                Screen.setCurrent(session.getScreen());
+                session.awaitScreenSize();
+                try {
+                    _application.sessionStarted(session);
+                } catch (RuntimeException e) {
+                    Protocol.system("telnet session failed: " + e);
+                    session.close();
+                }
+                // the client may have disconnected before the first window was shown
+                if (! session.isConnected()) {
+                    session.getScreen().closeAll();
+                }
+            }
+        }, "jcurses-session", true);
+        thread.start();
+    }
+
+    /**
+     *  Reads the available input of a connection
+     */
+    private void read(TelnetSession aSession) throws IOException {
+        _readBuffer.clear();
+        int count = aSession.getChannel().read(_readBuffer);
+
+        if (count < 0) {
+            aSession.disconnected();
+            return;
+        }
+
+        _readBuffer.flip();
+        _readBuffer.get(_readBytes, 0, count);
+        aSession.received(_readBytes, count);
+    }
+
+    /**
+     * Requests the selector thread to update the interest of a session in reading and writing or to close it
+     *
+     * @param  aSession  the session
+     */
+    void update(TelnetSession aSession) {
+        _updates.add(aSession);
+        _selector.wakeup();
+    }
+
+    private void processUpdates() {
+        TelnetSession session;
+
+        while ((session = _updates.poll()) != null) {
+            processUpdate(session);
+        }
+    }
+
+    private void processUpdate(TelnetSession aSession) {
+        if (aSession.isCloseable()) {
+            aSession.closeChannel();
+            synchronized (_sessions) {
+                _sessions.remove(aSession);
+            }
+        } else {
+            aSession.updateInterest();
+        }
+    }
+
+    /**
+     *  Closes all connections and the server socket
+     */
+    private void closeAll() {
+        List<TelnetSession> sessions;
+
+        synchronized (_sessions) {
+            sessions = new ArrayList<TelnetSession>(_sessions);
+            _sessions.clear();
+        }
+
+        for (TelnetSession session : sessions) {
+            session.disconnected();
+            session.closeChannel();
+        }
+
+        try {
+            _serverChannel.close();
+            _selector.close();
+        } catch (IOException e) {
+            // nothing to do, the server is stopped anyway
+        }
+
+        synchronized (this) {
+            _thread = null;
+        }
+    }
+}
@@ -0,0 +1,580 @@
+package jcurses.net;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.LinkedList;
+
+import jcurses.system.RemoteBackend;
+import jcurses.system.Terminal;
+import jcurses.widgets.Screen;
+
+/**
+ * One connection of a {@link TelnetServer} with its jcurses session. The session has its own {@link Screen}, the windows of the
+ * application are shown on it, if they are created in a thread bound to the screen, like the thread calling the
+ * {@link TelnetApplication} and the input thread of the screen.
+ * <p>
+ * The telnet protocol is handled by the session: it negotiates character mode, echoing by the server and window size reports
+ * (NAWS), strips the commands from the input and doubles the <code>IAC</code> bytes of the output. The output is written directly
+ * to the socket, as long as the socket accepts it, the rest is queued and written by the selector thread. The
+ * {@link RemoteBackend} of the session skips frames, while output is queued.
+ * <p>
+ * Input, that doesn't fit into the input queue of the backend, is kept back and the session stops reading from the socket, until
+ * the input thread has consumed the queued input. So a client sending faster than the application handles its input is slowed
+ * down by TCP flow control instead of filling the memory of the server.
+ */
+public class TelnetSession {
+    private static final int IAC = 255;
+    private static final int DONT = 254;
+    private static final int DO = 253;
+    private static final int WONT = 252;
+    private static final int WILL = 251;
+    private static final int SB = 250;
+    private static final int SE = 240;
+
+    private static final int OPT_BINARY = 0;
+    private static final int OPT_ECHO = 1;
+    private static final int OPT_SGA = 3;
+    private static final int OPT_NAWS = 31;
+
+    private static final int STATE_DATA = 0;
+    private static final int STATE_IAC = 1;
+    private static final int STATE_OPTION = 2;
+    private static final int STATE_SB = 3;
+    private static final int STATE_SB_IAC = 4;
+
+    private static final byte NO = 0;
+    private static final byte WANT = 1;
+    private static final byte YES = 2;
+
+    private static final int SIZE_TIMEOUT = 1000;
+    private static final int SB_CAPACITY = 64;
+
+    private final TelnetServer _server;
+    private final SocketChannel _channel;
+    private SelectionKey _key = null;
+    private final RemoteBackend _backend;
+    private final Screen _screen;
+
+    private final Object _lock = new Object();
+    private final LinkedList<ByteBuffer> _output = new LinkedList<ByteBuffer>();
+    private byte [] _backlog = new byte[1024];
+    private int _backlogLength = 0;
+    private boolean _readPaused = false;
+    private boolean _disconnected = false;
+    private boolean _closeWhenDrained = false;
+    private boolean _channelClosed = false;
+    private boolean _sizeKnown = false;
+
+    private int _state = STATE_DATA;
+    private int _command = 0;
+    private boolean _cr = false;
+    private final byte [] _sb = new byte[SB_CAPACITY];
+    private int _sbLength = 0;
+    private final byte [] _local = new byte[256];
+    private final byte [] _remote = new byte[256];
+
+    /**
+     * The constructor
+     *
+     * @param  aServer    the server, that accepted the connection
+     * @param  aChannel   the non blocking channel of the connection
+     * @param  aEncoding  the encoding of the text sent to and received from the client
+     * @param  aColors    the number of colors assumed for the client
+     */
+    TelnetSession(TelnetServer aServer, SocketChannel aChannel, String aEncoding, int aColors) {
+        _server = aServer;
+        _channel = aChannel;
+        _backend = new RemoteBackend(new TelnetOutputStream(), 80, 24, aColors) {
+            protected boolean isOutputPending() {
+                return TelnetSession.this.isOutputPending();
+            }
+
+            protected void inputConsumed() {
+                queueBacklog();
+            }
+
+            protected void terminalClosed() {
+                closeWhenDrained();
+            }
+        };
+
+        Terminal terminal = new Terminal(_backend);
+        terminal.setEncoding(aEncoding);
+        _screen = new Screen(terminal);
+    }
+
+    /**
+     * @return    the screen of the session
+     */
+    public Screen getScreen() {
+        return _screen;
+    }
+
+    /**
+     * @return    the backend of the terminal of the session, with the counters of the frames sent and skipped
+     */
+    public RemoteBackend getBackend() {
+        return _backend;
+    }
+
+    /**
+     * @return    the address of the client
+     */
+    public SocketAddress getRemoteAddress() {
+        return _channel.socket().getRemoteSocketAddress();
+    }
+
+    /**
+     * @return    <code>true</code>, if the client is still connected
+     */
+    public boolean isConnected() {
+        synchronized (_lock) {
+            return ! _disconnected;
+        }
+    }
+
+    /**
+     * Closes the connection. The windows of the session are closed by the input thread of the screen.
+     */
+    public void close() {
+        disconnected();
+    }
+
+    void setKey(SelectionKey aKey) {
+        _key = aKey;
+    }
+
+    SocketChannel getChannel() {
+        return _channel;
+    }
+
+    /**
+     *  Sends the options requested by the server to the client
+     */
+    void negotiate() {
+        request(_local, WILL, OPT_ECHO);
+        request(_local, WILL, OPT_SGA);
+        request(_local, WILL, OPT_BINARY);
+        request(_remote, DO, OPT_SGA);
+        request(_remote, DO, OPT_BINARY);
+        request(_remote, DO, OPT_NAWS);
+    }
+
+    /**
+     * Waits until the client has reported its window size, refused to report it, or a timeout has expired
+     */
+    void awaitScreenSize() {
+        synchronized (_lock) {
+            long deadline = System.currentTimeMillis() + SIZE_TIMEOUT;
+            long remaining = SIZE_TIMEOUT;
+
+            while (! _sizeKnown && (remaining > 0)) {
+                try {
+                    _lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                remaining = deadline - System.currentTimeMillis();
+            }
+        }
+    }
+
+    private void sizeKnown() {
+        synchronized (_lock) {
+            _sizeKnown = true;
+            _lock.notifyAll();
+        }
+    }
+
+    /**
+     * Handles bytes received from the client. Called by the selector thread.
+     *
+     * @param  aBytes  the bytes received, the input of the terminal is collected in place
+     * @param  aCount  the number of bytes received
+     */
+    void received(byte [] aBytes, int aCount) {
+        int length = 0;
+
+        for (int i = 0; i < aCount; i++) {
+            int b = aBytes[i] & 0xff;
+
+            switch (_state) {
+            case STATE_DATA:
+                if (b == IAC) {
+                    _state = STATE_IAC;
+                } else if (_cr && ((b == 0) || (b == '\n'))) {
+                    // CR NUL and CR LF are sent for the return key
+                    _cr = false;
+                } else {
+                    // the return key is read as newline, like from curses
+                    _cr = (b == '\r');
+                    aBytes[length++] = (byte) (_cr ? '\n' : b);
+                }
+                break;
+            case STATE_IAC:
+                _state = STATE_DATA;
+                if (b == IAC) {
+                    _cr = false;
+                    aBytes[length++] = (byte) b;
+                } else if ((b >= WILL) && (b <= DONT)) {
+                    _command = b;
+                    _state = STATE_OPTION;
+                } else if (b == SB) {
+                    _sbLength = 0;
+                    _state = STATE_SB;
+                }
+                break;
+            case STATE_OPTION:
+                _state = STATE_DATA;
+                option(_command, b);
+                break;
+            case STATE_SB:
+                if (b == IAC) {
+                    _state = STATE_SB_IAC;
+                } else if (_sbLength < _sb.length) {
+                    _sb[_sbLength++] = (byte) b;
+                }
+                break;
+            case STATE_SB_IAC:
+                if (b == IAC) {
+                    if (_sbLength < _sb.length) {
+                        _sb[_sbLength++] = (byte) b;
+                    }
+                    _state = STATE_SB;
+                } else {
+                    _state = STATE_DATA;
+                    if (b == SE) {
+                        // the input typed before a resize is handled before it
+                        queueInput(aBytes, 0, length);
+                        length = 0;
+                        subnegotiation();
+                    }
+                }
+                break;
+            }
+        }
+
+        queueInput(aBytes, 0, length);
+    }
+
+    /**
+     *  Answers an option command of the client, the option states follow RFC 1143 without the queue bits
+     */
+    private void option(int aCommand, int aOption) {
+        switch (aCommand) {
+        case DO:
+            answer(_local, aOption, isLocalOption(aOption), WILL, WONT);
+            break;
+        case DONT:
+            refuse(_local, aOption, WONT);
+            break;
+        case WILL:
+            answer(_remote, aOption, isRemoteOption(aOption), DO, DONT);
+            break;
+        case WONT:
+            refuse(_remote, aOption, DONT);
+            if (aOption == OPT_NAWS) {
+                sizeKnown();
+            }
+            break;
+        }
+    }
+
+    private static boolean isLocalOption(int aOption) {
+        return (aOption == OPT_ECHO) || (aOption == OPT_SGA) || (aOption == OPT_BINARY);
+    }
+
+    private static boolean isRemoteOption(int aOption) {
+        return (aOption == OPT_SGA) || (aOption == OPT_NAWS) || (aOption == OPT_BINARY);
+    }
+
+    private void request(byte [] aStates, int aCommand, int aOption) {
+        aStates[aOption] = WANT;
+        sendCommand(aCommand, aOption);
+    }
+
+    private void answer(byte [] aStates, int aOption, boolean aSupported, int aAccept, int aRefuse) {
+        if (aStates[aOption] == WANT) {
+            aStates[aOption] = YES;
+        } else if (aStates[aOption] == NO) {
+            if (aSupported) {
+                aStates[aOption] = YES;
+                sendCommand(aAccept, aOption);
+            } else {
+                sendCommand(aRefuse, aOption);
+            }
+        }
+    }
+
+    private void refuse(byte [] aStates, int aOption, int aAcknowledge) {
+        if (aStates[aOption] == YES) {
+            sendCommand(aAcknowledge, aOption);
+        }
+        aStates[aOption] = NO;
+    }
+
+    private void sendCommand(int aCommand, int aOption) {
+        send(new byte[] {(byte) IAC, (byte) aCommand, (byte) aOption}, 0, 3);
+    }
+
+    /**
+     *  Handles a complete subnegotiation, the window size reports
+     */
+    private void subnegotiation() {
+        if (((_sb[0] & 0xff) == OPT_NAWS) && (_sbLength >= 5)) {
+            int width = ((_sb[1] & 0xff) << 8) | (_sb[2] & 0xff);
+            int height = ((_sb[3] & 0xff) << 8) | (_sb[4] & 0xff);
+
+            if ((width > 0) && (height > 0)) {
+                _backend.setScreenSize(width, height);
+            }
+            sizeKnown();
+        }
+    }
+
+    /**
+     *  Queues input to the backend, the input, that doesn't fit, is kept back and reading is paused
+     */
+    private void queueInput(byte [] aBytes, int aOffset, int aLength) {
+        if (aLength == 0) {
+            return;
+        }
+
+        synchronized (_lock) {
+            int offset = aOffset;
+            int length = aLength;
+
+            if (_backlogLength == 0) {
+                int count = _backend.queueInput(aBytes, offset, length);
+                offset += count;
+                length -= count;
+            }
+
+            if (length > 0) {
+                if (_backlogLength + length > _backlog.length) {
+                    byte [] backlog = new byte[Math.max(_backlog.length * 2, _backlogLength + length)];
+                    System.arraycopy(_backlog, 0, backlog, 0, _backlogLength);
+                    _backlog = backlog;
+                }
+                System.arraycopy(aBytes, offset, _backlog, _backlogLength, length);
+                _backlogLength += length;
+                _readPaused = true;
+            }
+        }
+    }
+
+    /**
+     *  Queues the input kept back, reading is resumed, when all is queued. Called by the input thread.
+     */
+    private void queueBacklog() {
+        boolean resume = false;
+
+        synchronized (_lock) {
+            if (_backlogLength == 0) {
+                return;
+            }
+
+            int count = _backend.queueInput(_backlog, 0, _backlogLength);
+            System.arraycopy(_backlog, count, _backlog, 0, _backlogLength - count);
+            _backlogLength -= count;
+
+            if ((_backlogLength == 0) && _readPaused) {
+                _readPaused = false;
+                resume = true;
+            }
+        }
+
+        if (resume) {
+            _server.update(this);
+        }
+    }
+
+    /**
+     *  Sends bytes to the client. They are written to the socket directly, if nothing is queued, and queued, as far as the socket
+     *  doesn't accept them.
+     */
+    private void send(byte [] aBytes, int aOffset, int aLength) {
+        boolean update = false;
+        boolean failed = false;
+
+        synchronized (_lock) {
+            if (_disconnected || _channelClosed) {
+                return;
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(aBytes, aOffset, aLength);
+            if (_output.isEmpty()) {
+                try {
+                    _channel.write(buffer);
+                } catch (IOException e) {
+                    failed = true;
+                }
+            }
+
+            if (! failed && buffer.hasRemaining()) {
+                ByteBuffer rest = ByteBuffer.allocate(buffer.remaining());
+                rest.put(buffer);
+                rest.flip();
+                _output.add(rest);
+                update = (_output.size() == 1);
+            }
+        }
+
+        if (failed) {
+            disconnected();
+        } else if (update) {
+            _server.update(this);
+        }
+    }
+
+    private boolean isOutputPending() {
+        synchronized (_lock) {
+            return ! _output.isEmpty();
+        }
+    }
+
+    /**
+     * Writes the queued output, as far as the socket accepts it. If the queue is drained, the backend is told to send the frames
+     * skipped meanwhile. Called by the selector thread.
+     *
+     * @throws  IOException  if the connection is broken
+     */
+    void writeQueued() throws IOException {
+        boolean drained;
+
+        synchronized (_lock) {
+            while (! _output.isEmpty()) {
+                ByteBuffer buffer = _output.getFirst();
+                _channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    break;
+                }
+                _output.removeFirst();
+            }
+            drained = _output.isEmpty() && ! _disconnected && ! _closeWhenDrained;
+        }
+
+        if (drained) {
+            _backend.outputDrained();
+        }
+    }
+
+    /**
+     * Called, when the connection is lost or closed. The windows of the session are closed by the input thread of the screen.
+     */
+    void disconnected() {
+        synchronized (_lock) {
+            if (_disconnected) {
+                return;
+            }
+            _disconnected = true;
+            _output.clear();
+            _backlogLength = 0;
+            _sizeKnown = true;
+            _lock.notifyAll();
+        }
+
+        _screen.invokeLater(new Runnable() {
+            public void run() {
+                _screen.closeAll();
+            }
+        });
+        _server.update(this);
+    }
+
+    /**
+     *  Closes the connection, when the output of the terminal, that was shut down, is sent
+     */
+    private void closeWhenDrained() {
+        synchronized (_lock) {
+            _closeWhenDrained = true;
+        }
+        _server.update(this);
+    }
+
+    /**
+     * @return    <code>true</code>, if the channel is to be closed by the selector thread
+     */
+    boolean isCloseable() {
+        synchronized (_lock) {
+            return ! _channelClosed && (_disconnected || (_closeWhenDrained && _output.isEmpty()));
+        }
+    }
+
+    /**
+     *  Closes the channel. Called by the selector thread.
+     */
+    void closeChannel() {
+        synchronized (_lock) {
+            if (_channelClosed) {
+                return;
+            }
+            _channelClosed = true;
+            _output.clear();
+        }
+
+        if (_key != null) {
+            _key.cancel();
+        }
+        try {
+            _channel.close();
+        } catch (IOException e) {
+            // nothing to do, the connection is closed anyway
+        }
+    }
+
+    /**
+     *  Updates the interest of the selector in reading and writing. Called by the selector thread.
+     */
+    void updateInterest() {
+        if ((_key == null) || ! _key.isValid()) {
+            return;
+        }
+
+        synchronized (_lock) {
+            int ops = _readPaused ? 0 : SelectionKey.OP_READ;
+            if (! _output.isEmpty()) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            _key.interestOps(ops);
+        }
+    }
+
+    /**
+     *  The stream written by the backend, it doubles the <code>IAC</code> bytes of the output
+     */
+    private class TelnetOutputStream extends OutputStream {
+        public void write(int aByte) {
+            write(new byte[] {(byte) aByte}, 0, 1);
+        }
+
+        public void write(byte [] aBytes, int aOffset, int aLength) {
+            int escapes = 0;
+            for (int i = aOffset; i < aOffset + aLength; i++) {
+                if ((aBytes[i] & 0xff) == IAC) {
+                    escapes++;
+                }
+            }
+
+            if (escapes == 0) {
+                send(aBytes, aOffset, aLength);
+                return;
+            }
+
+            byte [] escaped = new byte[aLength + escapes];
+            int length = 0;
+            for (int i = aOffset; i < aOffset + aLength; i++) {
+                escaped[length++] = aBytes[i];
+                if ((aBytes[i] & 0xff) == IAC) {
+                    escaped[length++] = aBytes[i];
+                }
+            }
+            send(escaped, 0, length);
+        }
+    }
+}
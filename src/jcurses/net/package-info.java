@@ -0,0 +1,8 @@
+/**
+ *
+ * <tt>jcurses.net</tt> is the package of classes serving jcurses
+ * applications to remote terminals, i.e., a telnet server, that
+ * runs a jcurses session for every connection
+ *
+ */
+package jcurses.net;
\ No newline at end of file
@@ -0,0 +1,884 @@
+package jcurses.system;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jcurses.util.TextUtils;
+import jcurses.util.ThreadUtils;
+
+/**
+ * A terminal backend written in pure java, that writes ANSI escape sequences to an output stream and reads raw bytes from an
+ * input stream. It needs no native library.
+ * <p>
+ * The output of a frame is collected and written with one call on <code>refresh</code>. The backend keeps track of the cursor
+ * position and the current attributes of the terminal, so that between two runs it sends the cheapest cursor movement, only the
+ * attributes, that changed, and an erase to the end of the line instead of a blank tail of a row.
+ * <p>
+ * On terminals with direct colors, RGB colors are sent as they are with <code>38;2;r;g;b</code> and <code>48;2;r;g;b</code>,
+ * without a color pair.
+ * <p>
+ * The default constructor uses <code>System.in</code> and <code>System.out</code> and switches the controlling terminal into raw
+ * mode with <code>stty</code>. The input is read by a daemon thread, because a read from <code>System.in</code> can't time out.
+ * The thread reads the controlling terminal only, when input is available, so it stops at shutdown, before the terminal mode is
+ * restored, and input typed after the shutdown is left to the application.
+ *
+ */
+public class AnsiBackend implements TerminalBackend {
+    private static final String CSI = "\033[";
+    /**
+     *  The attribute word bits of the color pair, the pair number plus one, 0 for the terminal default colors
+     */
+    private static final long ATTR_PAIR = 0xffff;
+    /**
+     *  The attribute word bit of RGB colors, the word holds the foreground in the bits 0-23 and the background in the bits 24-47
+     *  instead of a color pair
+     */
+    private static final long ATTR_DIRECT = 1L << 48;
+    private static final long ATTR_REVERSE = 1L << 49;
+    private static final long ATTR_BOLD = 1L << 50;
+    private static final long RGB_MASK = 0xffffff;
+    /**
+     *  The bit marking a color as RGB value instead of a palette index, in the colors passed to <code>appendColor</code>
+     */
+    private static final int RGB_COLOR = 1 << 24;
+    private static final int DIRECT_COLOR_COUNT = 1 << 24;
+    private static final int MAX_COLOR_PAIRS = 32767;
+    private static final int INPUT_CAPACITY = 4096;
+    private static final int TTY_POLL_INTERVAL = 10;
+    private static final int READER_STOP_TIMEOUT = 1000;
+    /**
+     *  Cost of <code>CSI K</code>, a blank tail must be longer to be erased instead of printed
+     */
+    private static final int ERASE_COST = 3;
+
+    /**
+     *  Unicode box drawing characters for the glyph codes -1 to -7
+     */
+    private static final char [] UNICODE_GLYPHS = {'\u2500', '\u2502', '\u2592', '\u2514', '\u2518', '\u250c', '\u2510'};
+    /**
+     *  DEC special graphics characters for the glyph codes -1 to -7
+     */
+    private static final char [] DEC_GLYPHS = {'q', 'x', 'a', 'm', 'j', 'l', 'k'};
+
+    private final InputStream _in;
+    private final OutputStream _out;
+    private final boolean _tty;
+    private volatile int _width = 80;
+    private volatile int _height = 24;
+    private int _colorCount = 0;
+    private short [] _pairForeground = new short[0];
+    private short [] _pairBackground = new short[0];
+    private String _savedMode = null;
+
+    private final StringBuilder _frame = new StringBuilder(16 * 1024);
+    private final ByteBuffer _bytes = ByteBuffer.allocate(16 * 1024);
+    private CharsetEncoder _encoder = null;
+    private boolean _unicodeGlyphs = true;
+    private int _cursorX = - 1;
+    private int _cursorY = - 1;
+    private long _attr = - 1;
+    private volatile boolean _clearPending = false;
+    private boolean _outputFailed = false;
+    private long _bytesWritten = 0;
+
+    private final ReentrantLock _inputLock = new ReentrantLock();
+    private final Condition _inputChanged = _inputLock.newCondition();
+    private final int [] _input = new int[INPUT_CAPACITY];
+    private int _inputHead = 0;
+    private int _inputCount = 0;
+    private boolean _resizePending = false;
+    private boolean _wakeupPending = false;
+    private volatile boolean _inputClosed = false;
+    private Thread _reader = null;
+
+    /**
+     * The constructor for the controlling terminal. The terminal is switched into raw mode by <code>init</code>, the screen size is
+     * read with <code>stty</code> and updated on <code>SIGWINCH</code>, the number of colors is guessed from <code>TERM</code> and
+     * <code>COLORTERM</code>.
+     */
+    public AnsiBackend() {
+        _in = System.in;
+        _out = System.out;
+        _tty = true;
+        _colorCount = guessColorCount(System.getenv("TERM"));
+    }
+
+    /**
+     * The constructor for a terminal connected by streams, for example over a network. The streams must already be in raw mode.
+     *
+     * @param  aIn      the stream delivering the input of the terminal, <code>null</code>, if the input isn't read by the backend
+     *                  and the backend is used for output only
+     * @param  aOut     the stream to write the output to
+     * @param  aWidth   the screen width
+     * @param  aHeight  the screen height
+     * @param  aColors  the number of colors the terminal supports, 0, 8, 16, 256 or 16777216 for direct colors
+     */
+    public AnsiBackend(InputStream aIn, OutputStream aOut, int aWidth, int aHeight, int aColors) {
+        _in = aIn;
+        _out = aOut;
+        _tty = false;
+        _width = aWidth;
+        _height = aHeight;
+        _colorCount = aColors;
+    }
+
+    /**
+     *  Guesses the number of colors from the terminal type. Terminals announcing <code>COLORTERM=truecolor</code> or
+     *  <code>24bit</code> get direct colors.
+     */
+    private static int guessColorCount(String aTerm) {
+        if ((aTerm == null) || aTerm.equals("dumb")) {
+            return 0;
+        }
+        String colorTerm = System.getenv("COLORTERM");
+        if ("truecolor".equals(colorTerm) || "24bit".equals(colorTerm) || aTerm.endsWith("-direct")) {
+            return DIRECT_COLOR_COUNT;
+        }
+        if (aTerm.indexOf("256color") >= 0) {
+            return 256;
+        }
+        return 8;
+    }
+
+    public synchronized void init() {
+        if (_tty) {
+            _savedMode = stty("-g");
+            // raw mode, but the return key is read as newline, like from curses
+            stty("raw icrnl -echo");
+            readTerminalSize();
+            installResizeHandler();
+            // the size read at startup isn't a resize
+            _inputLock.lock();
+            try {
+                _resizePending = false;
+            } finally {
+                _inputLock.unlock();
+            }
+        }
+
+        String encoding = Toolkit.getEncoding();
+        Charset charset = (encoding == null) ? Charset.defaultCharset() : Charset.forName(encoding);
+        _encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        _unicodeGlyphs = _encoder.canEncode(UNICODE_GLYPHS[0]);
+
+        // alternate screen, hidden cursor, bracketed paste and SGR mouse reports, decoded by InputDecoder
+        _frame.append("\033[?1049h\033[?25l\033[?2004h\033[?1000h\033[?1002h\033[?1006h");
+        _frame.append(CSI).append("0m").append(CSI).append("2J");
+        _attr = 0;
+        _cursorX = - 1;
+        _cursorY = - 1;
+        _clearPending = false;
+        writeFrame();
+        if (_in != null) {
+            startReader();
+        }
+    }
+
+    public synchronized void shutdown() {
+        _frame.append(CSI).append("0m");
+        _frame.append("\033[?1006l\033[?1002l\033[?1000l\033[?2004l\033[?25h\033[?1049l");
+        writeFrame();
+
+        Thread reader;
+        _inputLock.lock();
+        try {
+            _inputClosed = true;
+            _inputChanged.signalAll();
+            reader = _reader;
+        } finally {
+            _inputLock.unlock();
+        }
+
+        if (_tty) {
+            // the reader must not consume input typed in the restored mode
+            stopReader(reader);
+            if (_savedMode != null) {
+                stty(_savedMode);
+            }
+        }
+    }
+
+    public int getScreenWidth() {
+        return _width;
+    }
+
+    public int getScreenHeight() {
+        return _height;
+    }
+
+    /**
+     * Sets the screen size. If it has changed, <code>KEY_RESIZE</code> is reported as the next input and the next frame starts
+     * with clearing the screen. It is called on <code>SIGWINCH</code> for the controlling terminal and must be called by the
+     * owner of the streams otherwise.
+     *
+     * @param  aWidth   the new screen width
+     * @param  aHeight  the new screen height
+     */
+    public void setScreenSize(int aWidth, int aHeight) {
+        _inputLock.lock();
+        try {
+            if ((aWidth == _width) && (aHeight == _height)) {
+                return;
+            }
+            _width = aWidth;
+            _height = aHeight;
+            _clearPending = true;
+            _resizePending = true;
+            _inputChanged.signalAll();
+        } finally {
+            _inputLock.unlock();
+        }
+    }
+
+    public boolean hasColors() {
+        return _colorCount > 0;
+    }
+
+    public int getColorCount() {
+        return _colorCount;
+    }
+
+    public int getColorPairCount() {
+        int colors = Math.min(_colorCount, ColorPairAllocator.MAX_COLORS);
+        return (colors == 0) ? 0 : Math.min(colors * colors, MAX_COLOR_PAIRS);
+    }
+
+    public void fillBasicColors(short [] aColors) {
+        // the ANSI colors are in the order of the jcurses basic colors
+        for (short i = 0; i < aColors.length; i++) {
+            aColors[i] = i;
+        }
+    }
+
+    public void fillAttributes(long [] aAttributes) {
+        aAttributes[0] = 0;
+        aAttributes[1] = ATTR_REVERSE;
+        aAttributes[2] = ATTR_BOLD;
+    }
+
+    public synchronized void initColorPair(short aBackground, short aForeground, short aNumber) {
+        if (aNumber >= _pairForeground.length) {
+            int length = Math.max(aNumber + 1, _pairForeground.length * 2);
+            short [] foreground = new short[length];
+            short [] background = new short[length];
+            System.arraycopy(_pairForeground, 0, foreground, 0, _pairForeground.length);
+            System.arraycopy(_pairBackground, 0, background, 0, _pairBackground.length);
+            _pairForeground = foreground;
+            _pairBackground = background;
+        }
+        _pairForeground[aNumber] = aForeground;
+        _pairBackground[aNumber] = aBackground;
+        // the current attributes may use the redefined pair
+        _attr = - 1;
+    }
+
+    /**
+     * Redefines a color of the terminal palette with <code>OSC 4</code>, the change is sent with the next frame
+     */
+    public synchronized void adjustColor(short aNumber, short aRed, short aGreen, short aBlue) {
+        _frame.append("\033]4;").append(aNumber).append(";rgb:");
+        appendHex(aRed);
+        _frame.append('/');
+        appendHex(aGreen);
+        _frame.append('/');
+        appendHex(aBlue);
+        _frame.append("\033\\");
+    }
+
+    private void appendHex(short aValue) {
+        int value = Math.max(0, Math.min(aValue, 1000)) * 255 / 1000;
+        _frame.append(Character.forDigit(value >> 4, 16)).append(Character.forDigit(value & 0xf, 16));
+    }
+
+    public long getColorPairAttribute(short aPair) {
+        return (aPair + 1) & ATTR_PAIR;
+    }
+
+    public boolean hasDirectColors() {
+        return _colorCount >= DIRECT_COLOR_COUNT;
+    }
+
+    public long getDirectColorAttribute(int aBackgroundRGB, int aForegroundRGB) {
+        return ATTR_DIRECT | ((aBackgroundRGB & RGB_MASK) << 24) | (aForegroundRGB & RGB_MASK);
+    }
+
+    public synchronized void printRun(int [] aCodePoints, int aLength, int aX, int aY, long aAttr) {
+        int columns = 0;
+        for (int i = 0; i < aLength; i++) {
+            columns += TextUtils.getCharWidth(aCodePoints[i]);
+        }
+
+        int length = aLength;
+        boolean erase = false;
+        if ((aX + columns >= _width) && ((aAttr & ATTR_REVERSE) == 0)) {
+            // a blank tail up to the right margin is erased, the terminal fills it with the current background
+            int blanks = 0;
+            while ((blanks < length) && (aCodePoints[length - blanks - 1] == ' ')) {
+                blanks++;
+            }
+            if (blanks > ERASE_COST) {
+                length -= blanks;
+                columns -= blanks;
+                erase = true;
+            }
+        }
+
+        moveTo(aX, aY);
+        setAttributes(aAttr);
+        for (int i = 0; i < length; i++) {
+            _frame.appendCodePoint(aCodePoints[i]);
+        }
+        if (erase) {
+            _frame.append(CSI).append('K');
+        }
+        advance(columns);
+    }
+
+    public synchronized void drawGlyphs(int aGlyph, int aX, int aY, int aLength, long aAttr) {
+        int index = - aGlyph - 1;
+        boolean known = (index >= 0) && (index < UNICODE_GLYPHS.length);
+
+        moveTo(aX, aY);
+        setAttributes(aAttr);
+        if (_unicodeGlyphs || ! known) {
+            char c = known ? UNICODE_GLYPHS[index] : '?';
+            for (int i = 0; i < aLength; i++) {
+                _frame.append(c);
+            }
+        } else {
+            _frame.append("\033(0");
+            for (int i = 0; i < aLength; i++) {
+                _frame.append(DEC_GLYPHS[index]);
+            }
+            _frame.append("\033(B");
+        }
+        advance(aLength);
+    }
+
+    public synchronized void refresh() {
+        writeFrame();
+    }
+
+    /**
+     * @return    the number of bytes written to the terminal since the backend was created
+     */
+    public synchronized long getBytesWritten() {
+        return _bytesWritten;
+    }
+
+    /**
+     *  Starts a frame, if the screen must be cleared after a resize
+     */
+    private void beginOutput() {
+        if (_clearPending) {
+            _clearPending = false;
+            _frame.append(CSI).append("0m").append(CSI).append("2J");
+            _attr = 0;
+            _cursorX = - 1;
+            _cursorY = - 1;
+        }
+    }
+
+    /**
+     *  Moves the cursor with the shortest sequence: an absolute position, a relative movement or a carriage return followed by a
+     *  movement to the right.
+     */
+    private void moveTo(int aX, int aY) {
+        beginOutput();
+        if ((aX == _cursorX) && (aY == _cursorY)) {
+            return;
+        }
+
+        int absolute = absoluteCost(aX, aY);
+        int relative = Integer.MAX_VALUE;
+        int returning = Integer.MAX_VALUE;
+
+        if ((_cursorX >= 0) && (_cursorY >= 0)) {
+            int vertical = verticalCost(aY - _cursorY);
+            relative = vertical + horizontalCost(aX - _cursorX);
+            returning = vertical + 1 + horizontalCost(aX);
+        }
+
+        if ((absolute <= relative) && (absolute <= returning)) {
+            _frame.append(CSI);
+            if ((aX != 0) || (aY != 0)) {
+                _frame.append(aY + 1);
+                if (aX != 0) {
+                    _frame.append(';').append(aX + 1);
+                }
+            }
+            _frame.append('H');
+        } else if (relative <= returning) {
+            moveVertically(aY - _cursorY);
+            moveHorizontally(aX - _cursorX);
+        } else {
+            moveVertically(aY - _cursorY);
+            _frame.append('\r');
+            moveHorizontally(aX);
+        }
+
+        _cursorX = aX;
+        _cursorY = aY;
+    }
+
+    private static int absoluteCost(int aX, int aY) {
+        if ((aX == 0) && (aY == 0)) {
+            return 3;
+        }
+        return 3 + digits(aY + 1) + ((aX == 0) ? 0 : 1 + digits(aX + 1));
+    }
+
+    private static int verticalCost(int aDelta) {
+        if (aDelta == 0) {
+            return 0;
+        }
+        int sequence = 3 + ((aDelta == 1) || (aDelta == - 1) ? 0 : digits(Math.abs(aDelta)));
+        return (aDelta > 0) ? Math.min(aDelta, sequence) : sequence;
+    }
+
+    private static int horizontalCost(int aDelta) {
+        if (aDelta == 0) {
+            return 0;
+        }
+        int sequence = 3 + ((aDelta == 1) || (aDelta == - 1) ? 0 : digits(Math.abs(aDelta)));
+        return (aDelta < 0) ? Math.min(- aDelta, sequence) : sequence;
+    }
+
+    private void moveVertically(int aDelta) {
+        if ((aDelta > 0) && (aDelta <= verticalCost(aDelta))) {
+            // line feeds move straight down, the output isn't post processed in raw mode
+            for (int i = 0; i < aDelta; i++) {
+                _frame.append('\n');
+            }
+        } else if (aDelta != 0) {
+            appendMove(aDelta, 'B', 'A');
+        }
+    }
+
+    private void moveHorizontally(int aDelta) {
+        if ((aDelta < 0) && (- aDelta <= horizontalCost(aDelta))) {
+            for (int i = 0; i < - aDelta; i++) {
+                _frame.append('\b');
+            }
+        } else if (aDelta != 0) {
+            appendMove(aDelta, 'C', 'D');
+        }
+    }
+
+    private void appendMove(int aDelta, char aForward, char aBackward) {
+        int distance = Math.abs(aDelta);
+        _frame.append(CSI);
+        if (distance != 1) {
+            _frame.append(distance);
+        }
+        _frame.append((aDelta > 0) ? aForward : aBackward);
+    }
+
+    private static int digits(int aValue) {
+        return (aValue < 10) ? 1 : (aValue < 100) ? 2 : (aValue < 1000) ? 3 : String.valueOf(aValue).length();
+    }
+
+    /**
+     *  Moves the known cursor position after printing. At the right margin the position depends on the wrapping behaviour of the
+     *  terminal and becomes unknown.
+     */
+    private void advance(int aColumns) {
+        _cursorX += aColumns;
+        if (_cursorX >= _width) {
+            _cursorX = - 1;
+            _cursorY = - 1;
+        }
+    }
+
+    /**
+     *  Sends the SGR sequence changing the current attributes of the terminal to the given ones
+     */
+    private void setAttributes(long aAttr) {
+        if (aAttr == _attr) {
+            return;
+        }
+
+        int foreground = getForeground(aAttr);
+        int background = getBackground(aAttr);
+        int length = _frame.length();
+
+        _frame.append(CSI);
+        if (_attr == - 1) {
+            _frame.append("0;");
+            appendFlag(aAttr, ATTR_BOLD, "1;", null);
+            appendFlag(aAttr, ATTR_REVERSE, "7;", null);
+            appendColor(foreground, 30, 90, 38);
+            appendColor(background, 40, 100, 48);
+        } else {
+            appendFlag(aAttr, ATTR_BOLD, "1;", "22;");
+            appendFlag(aAttr, ATTR_REVERSE, "7;", "27;");
+
+            if (foreground != getForeground(_attr)) {
+                appendColor(foreground, 30, 90, 38);
+            }
+            if (background != getBackground(_attr)) {
+                appendColor(background, 40, 100, 48);
+            }
+        }
+
+        if (_frame.length() == length + CSI.length()) {
+            // only the color pair number changed, not the colors
+            _frame.setLength(length);
+        } else {
+            _frame.setCharAt(_frame.length() - 1, 'm');
+        }
+        _attr = aAttr;
+    }
+
+    private void appendFlag(long aAttr, long aFlag, String aOn, String aOff) {
+        boolean on = (aAttr & aFlag) != 0;
+        if ((aOff == null) || (_attr == - 1)) {
+            if (on) {
+                _frame.append(aOn);
+            }
+        } else if (on != ((_attr & aFlag) != 0)) {
+            _frame.append(on ? aOn : aOff);
+        }
+    }
+
+    /**
+     *  Returns the foreground color of an attribute word, -1 for the terminal default, a palette index or a RGB value marked
+     *  with <code>RGB_COLOR</code>
+     */
+    private int getForeground(long aAttr) {
+        if ((aAttr & ATTR_DIRECT) != 0) {
+            return RGB_COLOR | (int) (aAttr & RGB_MASK);
+        }
+        int pair = (int) (aAttr & ATTR_PAIR);
+        return (pair == 0) || (pair > _pairForeground.length) ? - 1 : _pairForeground[pair - 1];
+    }
+
+    /**
+     *  Returns the background color of an attribute word, like <code>getForeground</code>
+     */
+    private int getBackground(long aAttr) {
+        if ((aAttr & ATTR_DIRECT) != 0) {
+            return RGB_COLOR | (int) ((aAttr >> 24) & RGB_MASK);
+        }
+        int pair = (int) (aAttr & ATTR_PAIR);
+        return (pair == 0) || (pair > _pairBackground.length) ? - 1 : _pairBackground[pair - 1];
+    }
+
+    private void appendColor(int aColor, int aBase, int aBrightBase, int aExtended) {
+        if (aColor < 0) {
+            _frame.append(aBase + 9).append(';');
+        } else if ((aColor & RGB_COLOR) != 0) {
+            _frame.append(aExtended).append(";2;").append((aColor >> 16) & 0xff).append(';');
+            _frame.append((aColor >> 8) & 0xff).append(';').append(aColor & 0xff).append(';');
+        } else if (aColor < 8) {
+            _frame.append(aBase + aColor).append(';');
+        } else if (aColor < 16) {
+            _frame.append(aBrightBase + aColor - 8).append(';');
+        } else {
+            _frame.append(aExtended).append(";5;").append(aColor).append(';');
+        }
+    }
+
+    /**
+     *  Encodes the collected frame and writes it with one call. If the terminal can't be written, for example because the
+     *  connection was closed, the output is discarded from then on.
+     */
+    private void writeFrame() {
+        if (_frame.length() == 0) {
+            return;
+        }
+
+        if (! _outputFailed) {
+            try {
+                CharBuffer chars = CharBuffer.wrap(_frame);
+                _encoder.reset();
+                while (_encoder.encode(chars, _bytes, true).isOverflow()) {
+                    drainBytes();
+                }
+                while (_encoder.flush(_bytes).isOverflow()) {
+                    drainBytes();
+                }
+                drainBytes();
+                _out.flush();
+            } catch (IOException e) {
+                _outputFailed = true;
+            }
+        }
+
+        _bytes.clear();
+        _frame.setLength(0);
+    }
+
+    private void drainBytes() throws IOException {
+        _out.write(_bytes.array(), 0, _bytes.position());
+        _bytesWritten += _bytes.position();
+        _bytes.clear();
+    }
+
+    public int readInput(int [] aBuffer, int aOffset, int aLength) {
+        _inputLock.lock();
+        try {
+            int count = 0;
+
+            if (_resizePending && (aLength > 0)) {
+                _resizePending = false;
+                aBuffer[aOffset + count++] = KEY_RESIZE;
+            }
+
+            while ((count < aLength) && (_inputCount > 0)) {
+                aBuffer[aOffset + count++] = _input[_inputHead];
+                _inputHead = (_inputHead + 1) % _input.length;
+                _inputCount--;
+            }
+
+            _inputChanged.signalAll();
+            return count;
+        } finally {
+            _inputLock.unlock();
+        }
+    }
+
+    public boolean waitForInput(int aTimeout) {
+        _inputLock.lock();
+        try {
+            long deadline = System.currentTimeMillis() + aTimeout;
+
+            while ((_inputCount == 0) && ! _resizePending && ! _wakeupPending) {
+                long remaining = (aTimeout < 0) ? 0 : deadline - System.currentTimeMillis();
+                if ((aTimeout >= 0) && (remaining <= 0)) {
+                    return false;
+                }
+                try {
+                    if (remaining > 0) {
+                        _inputChanged.await(remaining, TimeUnit.MILLISECONDS);
+                    } else {
+                        _inputChanged.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+
+            _wakeupPending = false;
+            return (_inputCount > 0) || _resizePending;
+        } finally {
+            _inputLock.unlock();
+        }
+    }
+
+    public void wakeup() {
+        _inputLock.lock();
+        try {
+            _wakeupPending = true;
+            _inputChanged.signalAll();
+        } finally {
+            _inputLock.unlock();
+        }
+    }
+
+    public boolean isNativeWait() {
+        return false;
+    }
+
+    public void beep() {
+        try {
+            synchronized (this) {
+                _out.write(7);
+                _out.flush();
+            }
+        } catch (IOException e) {
+            // no terminal, no beep
+        }
+    }
+
+    /**
+     *  Starts the thread, that reads the input stream into the input queue. At the end of the stream the queue stays empty, so
+     *  <code>waitForInput</code> blocks until it is woken up.
+     */
+    private void startReader() {
+        _inputLock.lock();
+        try {
+            _inputClosed = false;
+            if (_reader != null) {
+                return;
+            }
+            // a stream, for example of a socket, is read by a virtual thread, the controlling terminal by a platform thread
+            _reader = ThreadUtils.newThread(new Runnable() {
+                public void run() {
+                    readLoop();
+                }
+            }, "jcurses-ansi-input", ! _tty);
+            _reader.setDaemon(true);
+            _reader.start();
+        } finally {
+            _inputLock.unlock();
+        }
+    }
+
+    /**
+     *  Waits for the reader of the controlling terminal to stop after the input was closed
+     */
+    private void stopReader(Thread aReader) {
+        if ((aReader == null) || (aReader == Thread.currentThread())) {
+            return;
+        }
+        try {
+            aReader.join(READER_STOP_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void readLoop() {
+        byte [] buffer = new byte[1024];
+
+        while (true) {
+            int read;
+            try {
+                read = _tty ? readTerminal(buffer) : _in.read(buffer);
+            } catch (IOException e) {
+                read = - 1;
+            }
+
+            _inputLock.lock();
+            try {
+                if ((read < 0) || _inputClosed) {
+                    // input arriving after shutdown is left to the stream, its next reader gets it
+                    if (_reader == Thread.currentThread()) {
+                        _reader = null;
+                    }
+                    return;
+                }
+
+                for (int i = 0; i < read; i++) {
+                    while ((_inputCount == _input.length) && ! _inputClosed) {
+                        try {
+                            _inputChanged.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (_inputClosed) {
+                        // the rest of a chunk read before shutdown is dropped
+                        break;
+                    }
+                    _input[(_inputHead + _inputCount) % _input.length] = buffer[i] & 0xff;
+                    _inputCount++;
+                }
+                _inputChanged.signalAll();
+            } finally {
+                _inputLock.unlock();
+            }
+        }
+    }
+
+    /**
+     *  Reads the controlling terminal, when input is available. The read never blocks, so the reader notices the shutdown and
+     *  stops without consuming input typed afterwards.
+     *
+     * @param  aBuffer  the buffer
+     * @return          the number of bytes read, 0, if the input was closed meanwhile
+     */
+    private int readTerminal(byte [] aBuffer) throws IOException {
+        while (! _inputClosed) {
+            int available = _in.available();
+            if (available > 0) {
+                return _in.read(aBuffer, 0, Math.min(available, aBuffer.length));
+            }
+            try {
+                Thread.sleep(TTY_POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                return - 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     *  Runs <code>stty</code> on the controlling terminal
+     *
+     * @param  aArguments  the arguments
+     * @return             the output of stty
+     */
+    private static String stty(String aArguments) {
+        try {
+            Process process = new ProcessBuilder("sh", "-c", "stty " + aArguments + " < /dev/tty").start();
+            StringBuilder output = new StringBuilder();
+            InputStream in = process.getInputStream();
+            int c;
+            while ((c = in.read()) != - 1) {
+                output.append((char) c);
+            }
+            in.close();
+            if (process.waitFor() != 0) {
+                throw new IllegalStateException("stty " + aArguments + " failed, is there a terminal?");
+            }
+            return output.toString().trim();
+        } catch (IOException e) {
+            throw new IllegalStateException("stty can't be executed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("stty was interrupted", e);
+        }
+    }
+
+    /**
+     *  Reads the size of the controlling terminal, the size is kept, if it can't be read
+     */
+    private void readTerminalSize() {
+        try {
+            String [] size = stty("size").split(" ");
+            int height = Integer.parseInt(size[0]);
+            int width = Integer.parseInt(size[1]);
+            if ((width > 0) && (height > 0)) {
+                setScreenSize(width, height);
+            }
+        } catch (RuntimeException e) {
+            // keep the current size
+        }
+    }
+
+    /**
+     *  Installs a handler of <code>SIGWINCH</code>, that updates the screen size. The handler is installed with
+     *  <code>sun.misc.Signal</code>, if this isn't available, the size isn't updated.
+     */
+    private void installResizeHandler() {
+        try {
+            Class<?> signalClass = Class.forName("sun.misc.Signal");
+            Class<?> handlerClass = Class.forName("sun.misc.SignalHandler");
+            Object signal = signalClass.getConstructor(String.class).newInstance("WINCH");
+            Object handler = Proxy.newProxyInstance(handlerClass.getClassLoader(), new Class<?>[] {handlerClass},
+                    new InvocationHandler() {
+                        public Object invoke(Object aProxy, Method aMethod, Object [] aArgs) {
+                            if (aMethod.getName().equals("handle")) {
+                                readTerminalSize();
+                                return null;
+                            } else if (aMethod.getName().equals("equals")) {
+                                return Boolean.valueOf(aProxy == aArgs[0]);
+                            } else if (aMethod.getName().equals("hashCode")) {
+                                return Integer.valueOf(System.identityHashCode(aProxy));
+                            }
+                            return "AnsiBackend resize handler";
+                        }
+                    });
+            signalClass.getMethod("handle", signalClass, handlerClass).invoke(null, signal, handler);
+        } catch (Exception e) {
+            // no signal support, the size stays fixed
+        }
+    }
+}
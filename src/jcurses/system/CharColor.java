@@ -1,6 +1,8 @@
 
 package jcurses.system;
 
+import java.util.Hashtable;
+
 /**
  * Instances of this class are used by painting to set color attributes of painted chars. Both black-white mode and color mode attributes can ( and must be) be
  * declared. For the color mode, colors of the background an the foreground can be declared, for the background mode can be declared, whether painted chars are
@@ -16,10 +18,18 @@ package jcurses.system;
  * <code>YELLOW</code><br>
  * <code>WHITE</code>
  * <p>
+ * On terminals with 256 colors, the values 8 to 255 select the corresponding color of the terminal palette. On terminals with
+ * less colors they are replaced by the nearest color of the palette. Colors can also be given as RGB values using
+ * <code>valueOfRGB</code>, they are mapped to the nearest color of the palette of the terminal, they are painted on, or
+ * painted as they are, if the terminal has direct colors.
+ * <p>
  * possible values for black-white mode attributes (these attributes are also available for some color displays): <br>
  * <code>BOLD</code><br>
  * <code>NORMAL</code><br>
  * <code>REVERSE</code>
+ * <p>
+ * Instances returned by <code>valueOf</code> are interned and immutable. The native attribute word of a color is computed on its
+ * first use and cached, so painting with an interned color needs no further lookups.
  *
  */
 public class CharColor {
@@ -70,10 +80,17 @@ public class CharColor {
 	 */
 	public final static short BOLD = 2;
 
+	private static Hashtable<Integer, CharColor> __interned = new Hashtable<Integer, CharColor>();
+	private static Hashtable<Long, CharColor> __internedRGB = new Hashtable<Long, CharColor>();
+
 	private short _background;
 	private short _blackWhiteAttribute = 0;
 	private short _colorAttribute = 0;
 	private short _foreground;
+	private int _backgroundRGB = -1;
+	private int _foregroundRGB = -1;
+	private boolean _frozen = false;
+	private volatile NativeAttribute _nativeAttribute = null;
 
 	/**
 	 * The constructor
@@ -116,24 +133,141 @@ public class CharColor {
 		this(background, foreground, NORMAL);
 	}
 
+	/**
+	 * Returns the interned immutable instance with the given colors and attributes
+	 *
+	 * @param  background           background color
+	 * @param  foreground           foreground color
+	 * @param  blackWhiteAttribute  mode attribute
+	 * @param  colorAttribute       mode attribute
+	 * @return                      the interned instance
+	 */
+	public static CharColor valueOf(short background, short foreground, short blackWhiteAttribute, short colorAttribute) {
+		Integer key = Integer.valueOf((background & 0xff) | ((foreground & 0xff) << 8) | (blackWhiteAttribute << 16) | (colorAttribute << 24));
+		CharColor color = __interned.get(key);
+
+		if (color == null) {
+			synchronized (__interned) {
+				color = __interned.get(key);
+				if (color == null) {
+					color = new CharColor(background, foreground, blackWhiteAttribute, colorAttribute);
+					color._frozen = true;
+					__interned.put(key, color);
+				}
+			}
+		}
+
+		return color;
+	}
+
+	/**
+	 * Returns the interned immutable instance with the given colors and the attribute <code>NORMAL</code>
+	 *
+	 * @param  background  background color
+	 * @param  foreground  foreground color
+	 * @return             the interned instance
+	 */
+	public static CharColor valueOf(short background, short foreground) {
+		return valueOf(background, foreground, NORMAL, NORMAL);
+	}
+
+	/**
+	 * Returns the interned immutable instance for the given RGB colors. The colors are painted as they are on terminals with
+	 * direct colors and mapped to the nearest colors of the palette on other terminals, the RGB values remain available through
+	 * <code>getBackgroundRGB</code> and <code>getForegroundRGB</code>.
+	 *
+	 * @param  backgroundRGB        background color in the form 0xRRGGBB
+	 * @param  foregroundRGB        foreground color in the form 0xRRGGBB
+	 * @param  blackWhiteAttribute  mode attribute
+	 * @param  colorAttribute       mode attribute
+	 * @return                      the interned instance
+	 */
+	public static CharColor valueOfRGB(int backgroundRGB, int foregroundRGB, short blackWhiteAttribute, short colorAttribute) {
+		backgroundRGB &= 0xffffff;
+		foregroundRGB &= 0xffffff;
+		Long key = Long.valueOf(((long) backgroundRGB << 28) | ((long) foregroundRGB << 4) | (blackWhiteAttribute << 2) | colorAttribute);
+		CharColor color = __internedRGB.get(key);
+
+		if (color == null) {
+			synchronized (__internedRGB) {
+				color = __internedRGB.get(key);
+				if (color == null) {
+					// the palette colors are chosen, when the color is painted, so no terminal is needed here
+					color = new CharColor(BLACK, BLACK, blackWhiteAttribute, colorAttribute);
+					color._backgroundRGB = backgroundRGB;
+					color._foregroundRGB = foregroundRGB;
+					color._frozen = true;
+					__internedRGB.put(key, color);
+				}
+			}
+		}
+
+		return color;
+	}
+
+	/**
+	 * Returns the interned immutable instance for the given RGB colors and the attribute <code>NORMAL</code>
+	 *
+	 * @param  backgroundRGB  background color in the form 0xRRGGBB
+	 * @param  foregroundRGB  foreground color in the form 0xRRGGBB
+	 * @return                the interned instance
+	 */
+	public static CharColor valueOfRGB(int backgroundRGB, int foregroundRGB) {
+		return valueOfRGB(backgroundRGB, foregroundRGB, NORMAL, NORMAL);
+	}
+
+	/**
+	 * Returns the interned immutable instance with the same colors and attributes as this color
+	 *
+	 * @return    the interned instance
+	 */
+	public CharColor intern() {
+		if (_frozen) {
+			return this;
+		}
+
+		if (_backgroundRGB >= 0) {
+			return valueOfRGB(_backgroundRGB, _foregroundRGB, _blackWhiteAttribute, _colorAttribute);
+		}
+
+		return valueOf(_background, _foreground, _blackWhiteAttribute, _colorAttribute);
+	}
+
+	/**
+	 * @return    <code>true</code>, if this instance is interned and can't be changed
+	 */
+	public boolean isImmutable() {
+		return _frozen;
+	}
+
 	/**
 	 * The method sets the background color
 	 *
 	 * @param  background  value to be set
 	 */
 	public void setBackground(short background) {
+		checkMutable();
 		verifyColor(background);
 		_background = background;
-		//initChtype();
+		_nativeAttribute = null;
 	}
 
 	/**
 	 * Accessor pattern
 	 *
-	 * @return    the background color
+	 * @return    the background color, for a color created with <code>valueOfRGB</code> the nearest color of the current terminal
 	 */
 	public short getBackground() {
-		return _background;
+		return (_backgroundRGB >= 0) ? Toolkit.quantizeColor(_backgroundRGB) : _background;
+	}
+
+	/**
+	 * Accessor pattern
+	 *
+	 * @return    the background color as RGB value, if the color was created with <code>valueOfRGB</code>, -1 otherwise
+	 */
+	public int getBackgroundRGB() {
+		return _backgroundRGB;
 	}
 
 	/**
@@ -142,7 +276,9 @@ public class CharColor {
 	 * @param  blackWhiteAttribute  new black-white mode attribute
 	 */
 	public void setBlackWhiteAttribute(short blackWhiteAttribute) {
+		checkMutable();
 		_blackWhiteAttribute = blackWhiteAttribute;
+		_nativeAttribute = null;
 	}
 
 	/**
@@ -160,7 +296,9 @@ public class CharColor {
 	 * @param  colorAttribute  new color mode attribute
 	 */
 	public void setColorAttribute(short colorAttribute) {
+		checkMutable();
 		_colorAttribute = colorAttribute;
+		_nativeAttribute = null;
 	}
 
 	/**
@@ -178,18 +316,28 @@ public class CharColor {
 	 * @param  foreground  value to be set
 	 */
 	public void setForeground(short foreground) {
+		checkMutable();
 		verifyColor(foreground);
 		_foreground = foreground;
-		//initChtype();
+		_nativeAttribute = null;
 	}
 
 	/**
 	 * The method gets the foreground color
 	 *
-	 * @return    the foreground color
+	 * @return    the foreground color, for a color created with <code>valueOfRGB</code> the nearest color of the current terminal
 	 */
 	public short getForeground() {
-		return _foreground;
+		return (_foregroundRGB >= 0) ? Toolkit.quantizeColor(_foregroundRGB) : _foreground;
+	}
+
+	/**
+	 * Accessor pattern
+	 *
+	 * @return    the foreground color as RGB value, if the color was created with <code>valueOfRGB</code>, -1 otherwise
+	 */
+	public int getForegroundRGB() {
+		return _foregroundRGB;
 	}
 
 	/**
@@ -199,7 +347,7 @@ public class CharColor {
 	 */
 	public String toString() {
 		if (Toolkit.hasColors()) {
-			return "[background=" + getColorName(_background) + ", foreground=" + getColorName(_foreground) + "]";
+			return "[background=" + getColorName(getBackground()) + ", foreground=" + getColorName(getForeground()) + "]";
 		}
 
 		return "[modi=" + getModusName(_blackWhiteAttribute) + "]";
@@ -230,7 +378,7 @@ public class CharColor {
 						case RED:
 							return "RED";
 						default:
-							return "UNKNOWN COLOR";
+							return "COLOR_" + index;
 		}
 	}
 
@@ -279,6 +427,41 @@ public class CharColor {
 		return Toolkit.mapAttribute(getBlackWhiteAttribute());
 	}
 
+	/**
+	 *  Gets the native attribute word of the CharColor object, that contains both the color pair and the attributes. The word is
+	 *  computed on the first call and cached until the color is changed or color pairs are redefined.
+	 *
+	 * @return    The native attribute word
+	 */
+	long getNativeAttribute() {
+		int generation = Toolkit.getColorPairGeneration();
+		NativeAttribute cached = _nativeAttribute;
+
+		if ((cached == null) || (cached._generation != generation)) {
+			long word;
+			if ((_backgroundRGB >= 0) && Toolkit.hasDirectColors()) {
+				word = Toolkit.computeDirectColorAttribute(_backgroundRGB, _foregroundRGB, getAttribute());
+			} else {
+				word = Toolkit.computeNativeAttribute(getPairNo(), getAttribute());
+			}
+			cached = new NativeAttribute(generation, word);
+			_nativeAttribute = cached;
+		}
+
+		return cached._word;
+	}
+
+	/**
+	 * Verify, that this instance may be changed
+	 *
+	 * @throws  UnsupportedOperationException  if the instance is interned
+	 */
+	private void checkMutable() {
+		if (_frozen) {
+			throw new UnsupportedOperationException("Interned CharColor instances are immutable");
+		}
+	}
+
 	/**
 	 * Verify the color attribute as being one we support
 	 *
@@ -298,9 +481,22 @@ public class CharColor {
 	 * @throws  IllegalArgumentException  on unknown color
 	 */
 	private void verifyColor(short color) {
-		if ((color != BLACK) && (color != RED) && (color != GREEN) && (color != YELLOW) && (color != BLUE) && (color != MAGENTA) && (color != CYAN)
-				 && (color != WHITE)) {
+		if ((color < BLACK) || (color >= ColorPairAllocator.MAX_COLORS)) {
 			throw new IllegalArgumentException("Unknown color:" + color);
 		}
 	}
+
+	/**
+	 * A native attribute word together with the color pair generation, it was computed for. Both are published together, so
+	 * a thread never sees the word of one generation with the number of another.
+	 */
+	private static final class NativeAttribute {
+		final int _generation;
+		final long _word;
+
+		NativeAttribute(int aGeneration, long aWord) {
+			_generation = aGeneration;
+			_word = aWord;
+		}
+	}
 }
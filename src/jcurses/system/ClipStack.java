@@ -0,0 +1,121 @@
+package jcurses.system;
+
+/**
+ * This class is a jcurses-internal class, that holds the clip rectangles set by one thread. For every depth the intersection of
+ * all rectangles up to this depth is stored, so the current clip is read in constant time without allocating objects.
+ * <p>
+ * The bounds are stored as inclusive left, top, right and bottom coordinates. If no clip is set, the bounds are unlimited.
+ *
+ */
+class ClipStack {
+    /**
+     *  The lower bound used, if no clip is set
+     */
+    static final int UNLIMITED_MIN = Integer.MIN_VALUE / 4;
+    /**
+     *  The upper bound used, if no clip is set
+     */
+    static final int UNLIMITED_MAX = Integer.MAX_VALUE / 4;
+
+    private int [] _bounds = new int [4 * 16];
+    private int _depth = 0;
+    private int _left = UNLIMITED_MIN;
+    private int _top = UNLIMITED_MIN;
+    private int _right = UNLIMITED_MAX;
+    private int _bottom = UNLIMITED_MAX;
+
+    /**
+     * Intersects the current clip with a rectangle and pushes the result
+     *
+     * @param  aX       the x coordinate of the top left corner
+     * @param  aY       the y coordinate of the top left corner
+     * @param  aWidth   the width of the rectangle
+     * @param  aHeight  the height of the rectangle
+     */
+    void push(int aX, int aY, int aWidth, int aHeight) {
+        if ((_depth + 1) * 4 > _bounds.length) {
+            int [] bounds = new int [_bounds.length * 2];
+            System.arraycopy(_bounds, 0, bounds, 0, _bounds.length);
+            _bounds = bounds;
+        }
+
+        int base = _depth * 4;
+        _bounds[base] = _left;
+        _bounds[base + 1] = _top;
+        _bounds[base + 2] = _right;
+        _bounds[base + 3] = _bottom;
+        _depth++;
+
+        _left = Math.max(_left, aX);
+        _top = Math.max(_top, aY);
+        _right = Math.min(_right, aX + aWidth - 1);
+        _bottom = Math.min(_bottom, aY + aHeight - 1);
+    }
+
+    /**
+     * Restores the clip, that was current before the last <code>push</code>
+     */
+    void pop() {
+        if (_depth == 0) {
+            return;
+        }
+
+        _depth--;
+        int base = _depth * 4;
+        _left = _bounds[base];
+        _top = _bounds[base + 1];
+        _right = _bounds[base + 2];
+        _bottom = _bounds[base + 3];
+    }
+
+    /**
+     * @return    <code>true</code>, if no clip is set
+     */
+    boolean isUnlimited() {
+        return _depth == 0;
+    }
+
+    /**
+     * @return    <code>true</code>, if the current clip doesn't contain any cell
+     */
+    boolean isEmpty() {
+        return (_left > _right) || (_top > _bottom);
+    }
+
+    /**
+     * @param  aX  the x coordinate
+     * @param  aY  the y coordinate
+     * @return     <code>true</code>, if the current clip contains the cell
+     */
+    boolean contains(int aX, int aY) {
+        return (aX >= _left) && (aX <= _right) && (aY >= _top) && (aY <= _bottom);
+    }
+
+    /**
+     * @return    the leftmost column of the current clip
+     */
+    int getLeft() {
+        return _left;
+    }
+
+    /**
+     * @return    the topmost row of the current clip
+     */
+    int getTop() {
+        return _top;
+    }
+
+    /**
+     * @return    the rightmost column of the current clip
+     */
+    int getRight() {
+        return _right;
+    }
+
+    /**
+     * @return    the bottom row of the current clip
+     */
+    int getBottom() {
+        return _bottom;
+    }
+}
@@ -0,0 +1,100 @@
+package jcurses.system;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * This class is a jcurses-internal class, that decodes the bytes read from the terminal into unicode code points. The bytes are
+ * fed one by one, a character encoded with several bytes is returned, when its last byte has arrived. Malformed input is
+ * replaced by U+FFFD.
+ * <p>
+ * One decoder and its buffers are reused for the whole input stream. The terminal encoding is assumed to be a superset of
+ * ascii, as it is required by the escape sequences anyway, so ascii bytes bypass the decoder.
+ *
+ */
+class CodePointDecoder {
+    private final CharsetDecoder _decoder;
+    private final ByteBuffer _in = ByteBuffer.allocate(16);
+    private final CharBuffer _out = CharBuffer.allocate(8);
+    private int _ascii = - 1;
+
+    /**
+     * The constructor
+     *
+     * @param  aEncoding  the java name of the terminal encoding, <code>null</code> for the platform default
+     */
+    CodePointDecoder(String aEncoding) {
+        Charset charset = Charset.defaultCharset();
+
+        if (aEncoding != null) {
+            try {
+                charset = Charset.forName(aEncoding);
+            } catch (IllegalArgumentException e) {
+                // unknown encoding, keep the default
+            }
+        }
+
+        _decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Feeds the next byte. All code points decoded so far must be fetched with <code>poll</code> before.
+     *
+     * @param  aByte  the byte
+     */
+    void feed(int aByte) {
+        if ((aByte < 0x80) && (_in.position() == 0) && (_out.position() == 0)) {
+            _ascii = aByte;
+            return;
+        }
+
+        _in.put((byte) aByte);
+        _in.flip();
+        _decoder.decode(_in, _out, false);
+        _in.compact();
+
+        if (! _in.hasRemaining()) {
+            // no character completed within the whole buffer, drop the garbage
+            _in.clear();
+            _decoder.reset();
+            _out.put('\ufffd');
+        }
+    }
+
+    /**
+     * @return    the next decoded code point, or -1 if the bytes fed so far don't complete a character
+     */
+    int poll() {
+        if (_ascii != - 1) {
+            int result = _ascii;
+            _ascii = - 1;
+            return result;
+        }
+
+        if (_out.position() == 0) {
+            return - 1;
+        }
+
+        _out.flip();
+        char c = _out.get();
+        int result = c;
+
+        if (Character.isHighSurrogate(c)) {
+            if (! _out.hasRemaining()) {
+                // wait for the low surrogate
+                _out.clear();
+                _out.put(c);
+                return - 1;
+            }
+            result = Character.toCodePoint(c, _out.get());
+        }
+
+        _out.compact();
+        return result;
+    }
+}
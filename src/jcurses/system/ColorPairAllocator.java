@@ -0,0 +1,164 @@
+package jcurses.system;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class is a jcurses-internal class, that manages the color pairs of the terminal. Pairs are allocated on demand for a
+ * combination of background and foreground color. If all pairs offered by the terminal are in use, the least recently used pair
+ * is redefined.
+ * <p>
+ * Lookup, allocation and eviction are O(1): the pair of a color combination is found in a table indexed by both colors, and the
+ * pairs are kept in a doubly linked list in the order of their last use, implemented with index arrays.
+ * <p>
+ * Each eviction takes a new generation number. Colors caching a native attribute word compare it to the generation, they
+ * resolve their pair again after an eviction. The numbers are unique among all allocators, so a color used on several terminals
+ * never takes the cached word of one terminal for another. The evicted pairs are remembered, until the terminal collects them
+ * to repaint the cells, that the redefinition has recolored.
+ *
+ */
+class ColorPairAllocator {
+    /**
+     *  The number of colors, that can be combined
+     */
+    static final int MAX_COLORS = 256;
+
+    private static final int NONE = - 1;
+    private static final AtomicInteger __generations = new AtomicInteger();
+
+    private final Terminal _terminal;
+    private final int _capacity;
+    private final short [] _pairOfKey = new short [MAX_COLORS * MAX_COLORS];
+    private final int [] _keyOfPair;
+    private final short [] _prev;
+    private final short [] _next;
+    private short _head = NONE;
+    private short _tail = NONE;
+    private int _size = 0;
+    private final boolean [] _redefined;
+    private int _redefinedCount = 0;
+    private volatile int _generation = __generations.incrementAndGet();
+
+    /**
+     * The constructor
+     *
+     * @param  aTerminal  the terminal, whose pairs are managed
+     * @param  aCapacity  the number of pairs, that can be defined
+     */
+    ColorPairAllocator(Terminal aTerminal, int aCapacity) {
+        _terminal = aTerminal;
+        _capacity = Math.max(1, Math.min(aCapacity, Short.MAX_VALUE));
+        _keyOfPair = new int [_capacity];
+        _prev = new short [_capacity];
+        _next = new short [_capacity];
+        _redefined = new boolean [_capacity];
+        Arrays.fill(_pairOfKey, (short) NONE);
+    }
+
+    /**
+     * @return    the number of pairs, that can be defined
+     */
+    int getCapacity() {
+        return _capacity;
+    }
+
+    /**
+     * @return    the current generation, that changes every time a pair is redefined
+     */
+    int getGeneration() {
+        return _generation;
+    }
+
+    /**
+     * Returns the pair for a color combination, allocating or redefining a pair, if needed. The pair is marked as most recently
+     * used.
+     *
+     * @param  aBackground  the background color
+     * @param  aForeground  the foreground color
+     * @return              the pair number
+     */
+    synchronized short getPair(short aBackground, short aForeground) {
+        int key = (aBackground & 0xff) * MAX_COLORS + (aForeground & 0xff);
+        short pair = _pairOfKey[key];
+
+        if (pair != NONE) {
+            unlink(pair);
+            linkFirst(pair);
+            return pair;
+        }
+
+        if (_size < _capacity) {
+            pair = (short) _size++;
+        } else {
+            pair = _tail;
+            unlink(pair);
+            _pairOfKey[_keyOfPair[pair]] = NONE;
+            _generation = __generations.incrementAndGet();
+            if (! _redefined[pair]) {
+                _redefined[pair] = true;
+                _redefinedCount++;
+            }
+        }
+
+        _pairOfKey[key] = pair;
+        _keyOfPair[pair] = key;
+        linkFirst(pair);
+        _terminal.defineColorPair(aBackground, aForeground, pair);
+
+        return pair;
+    }
+
+    /**
+     * Returns the pairs redefined since the last call and forgets them
+     *
+     * @return    the pair numbers, <code>null</code>, if no pair was redefined
+     */
+    synchronized short [] takeRedefined() {
+        if (_redefinedCount == 0) {
+            return null;
+        }
+
+        short [] pairs = new short [_redefinedCount];
+        int count = 0;
+        for (short pair = 0; pair < _capacity; pair++) {
+            if (_redefined[pair]) {
+                _redefined[pair] = false;
+                pairs[count++] = pair;
+            }
+        }
+        _redefinedCount = 0;
+        return pairs;
+    }
+
+    private void unlink(short aPair) {
+        short prev = _prev[aPair];
+        short next = _next[aPair];
+
+        if (prev == NONE) {
+            _head = next;
+        } else {
+            _next[prev] = next;
+        }
+
+        if (next == NONE) {
+            _tail = prev;
+        } else {
+            _prev[next] = prev;
+        }
+    }
+
+    private void linkFirst(short aPair) {
+        _prev[aPair] = NONE;
+        _next[aPair] = _head;
+
+        if (_head != NONE) {
+            _prev[_head] = aPair;
+        }
+
+        _head = aPair;
+
+        if (_tail == NONE) {
+            _tail = aPair;
+        }
+    }
+}
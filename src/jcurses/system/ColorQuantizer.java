@@ -0,0 +1,139 @@
+package jcurses.system;
+
+import java.util.Hashtable;
+
+/**
+ * This class is a jcurses-internal class, that maps RGB values to the nearest color of the terminal palette. The standard xterm
+ * palettes with 8, 16 and 256 colors are assumed.
+ * <p>
+ * The result of every mapping is cached, so the nearest color is searched only once for every distinct RGB value. For the 256
+ * color palette the search is done arithmetically on the color cube and the gray ramp, for smaller palettes all palette
+ * entries are compared.
+ *
+ */
+class ColorQuantizer {
+    private static final int [] __basicPalette = {
+        0x000000, 0xcd0000, 0x00cd00, 0xcdcd00, 0x0000ee, 0xcd00cd, 0x00cdcd, 0xe5e5e5,
+        0x7f7f7f, 0xff0000, 0x00ff00, 0xffff00, 0x5c5cff, 0xff00ff, 0x00ffff, 0xffffff
+    };
+    private static final int [] __cubeLevels = {0, 95, 135, 175, 215, 255};
+
+    private final int _colors;
+    private final Hashtable<Integer, Short> _cache = new Hashtable<Integer, Short>();
+
+    /**
+     * The constructor
+     *
+     * @param  aColors  the number of colors of the terminal
+     */
+    ColorQuantizer(int aColors) {
+        _colors = aColors;
+    }
+
+    /**
+     * Returns the palette index of the color nearest to a RGB value
+     *
+     * @param  aRgb  the RGB value in the form 0xRRGGBB
+     * @return       the palette index, that can be used as a <code>CharColor</code> color
+     */
+    short quantize(int aRgb) {
+        Integer key = Integer.valueOf(aRgb & 0xffffff);
+        Short result = _cache.get(key);
+
+        if (result == null) {
+            result = Short.valueOf(computeNearest(key.intValue()));
+            _cache.put(key, result);
+        }
+
+        return result.shortValue();
+    }
+
+    /**
+     * Returns the palette index of the color of this palette nearest to a color of the 256 color palette
+     *
+     * @param  aColor  the index in the 256 color palette
+     * @return         the palette index, that can be used as a <code>CharColor</code> color
+     */
+    short reduce(short aColor) {
+        return quantize(getPaletteRGB(aColor & 0xff));
+    }
+
+    /**
+     * @param  aIndex  the index in the 256 color palette
+     * @return         the RGB value of the palette entry in the form 0xRRGGBB
+     */
+    static int getPaletteRGB(int aIndex) {
+        if (aIndex < 16) {
+            return __basicPalette[aIndex];
+        }
+
+        if (aIndex < 232) {
+            int cube = aIndex - 16;
+            return (__cubeLevels[cube / 36] << 16) | (__cubeLevels[(cube / 6) % 6] << 8) | __cubeLevels[cube % 6];
+        }
+
+        int level = 8 + (aIndex - 232) * 10;
+        return (level << 16) | (level << 8) | level;
+    }
+
+    private short computeNearest(int aRgb) {
+        if (_colors >= 256) {
+            return nearestOf256(aRgb);
+        }
+
+        return nearestOfBasic(aRgb, (_colors >= 16) ? 16 : 8);
+    }
+
+    private static short nearestOfBasic(int aRgb, int aCount) {
+        int best = 0;
+        int bestDistance = Integer.MAX_VALUE;
+
+        for (int i = 0; i < aCount; i++) {
+            int distance = distance(aRgb, __basicPalette[i]);
+            if (distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+
+        return (short) best;
+    }
+
+    private static short nearestOf256(int aRgb) {
+        int r = (aRgb >> 16) & 0xff;
+        int g = (aRgb >> 8) & 0xff;
+        int b = aRgb & 0xff;
+
+        int ri = cubeIndex(r);
+        int gi = cubeIndex(g);
+        int bi = cubeIndex(b);
+        int cube = (__cubeLevels[ri] << 16) | (__cubeLevels[gi] << 8) | __cubeLevels[bi];
+
+        int grayIndex = Math.max(0, Math.min(23, ((r + g + b) / 3 - 3) / 10));
+        int level = 8 + grayIndex * 10;
+        int gray = (level << 16) | (level << 8) | level;
+
+        if (distance(aRgb, gray) < distance(aRgb, cube)) {
+            return (short) (232 + grayIndex);
+        }
+
+        return (short) (16 + 36 * ri + 6 * gi + bi);
+    }
+
+    private static int cubeIndex(int aValue) {
+        if (aValue < 48) {
+            return 0;
+        }
+        if (aValue < 115) {
+            return 1;
+        }
+        return (aValue - 35) / 40;
+    }
+
+    private static int distance(int aRgb1, int aRgb2) {
+        int dr = ((aRgb1 >> 16) & 0xff) - ((aRgb2 >> 16) & 0xff);
+        int dg = ((aRgb1 >> 8) & 0xff) - ((aRgb2 >> 8) & 0xff);
+        int db = (aRgb1 & 0xff) - (aRgb2 & 0xff);
+        return 2 * dr * dr + 4 * dg * dg + 3 * db * db;
+    }
+}
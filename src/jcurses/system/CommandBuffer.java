@@ -0,0 +1,191 @@
+package jcurses.system;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * This class is a jcurses-internal class, that serializes the runs computed by {@link VirtualScreen#flush} into a direct byte
+ * buffer. The buffer is replayed by the native library in one call, so that a whole paint pass crosses the JNI border only once.
+ * <p>
+ * The buffer is reused between flushes and grows, if a paint pass doesn't fit into it. All values are written in the native
+ * byte order. The layout of a command is
+ * <pre>
+ *  TEXT:    op(1) x(4) y(4) attr(8) length(4) bytes(length)
+ *  GLYPHS:  op(1) glyph(1) x(4) y(4) attr(8) count(4)
+ *  WTEXT:   op(1) x(4) y(4) attr(8) count(4) codepoints(4 * count)
+ * </pre>
+ * If the native library is built with wide character support, text is passed as code points (WTEXT), otherwise it is encoded
+ * into the terminal encoding (TEXT). The encoder and its buffer are cached and reused as long as the encoding doesn't change.
+ * The layout must be kept in sync with the replay function in Toolkit.c.
+ *
+ */
+class CommandBuffer {
+    /**
+     *  Command printing a run of encoded characters
+     */
+    static final byte OP_TEXT = 1;
+    /**
+     *  Command drawing a run of identical line drawing glyphs
+     */
+    static final byte OP_GLYPHS = 2;
+    /**
+     *  Command printing a run of code points
+     */
+    static final byte OP_WTEXT = 3;
+
+    private static final int INITIAL_CAPACITY = 16 * 1024;
+    private static final int HEADER_SIZE = 1 + 1 + 4 + 4 + 8 + 4;
+
+    private ByteBuffer _buffer = null;
+    private boolean _wide = false;
+    private CharsetEncoder _encoder = null;
+    private String _encoderName = null;
+    private CharBuffer _chars = CharBuffer.allocate(256);
+
+    /**
+     * The constructor
+     */
+    CommandBuffer() {
+        _buffer = allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param  aWide  <code>true</code>, if text is to be passed as code points
+     */
+    void setWide(boolean aWide) {
+        _wide = aWide;
+    }
+
+    /**
+     * Discards all commands written since the last call
+     */
+    void clear() {
+        _buffer.clear();
+    }
+
+    /**
+     * @return    the buffer containing the commands, the commands are stored from the position 0 up to <code>getLength()</code>
+     */
+    ByteBuffer getBuffer() {
+        return _buffer;
+    }
+
+    /**
+     * @return    the number of bytes written since the last <code>clear</code>
+     */
+    int getLength() {
+        return _buffer.position();
+    }
+
+    /**
+     * @see TerminalBackend#printRun
+     */
+    public void printRun(int [] aCodePoints, int aLength, int aX, int aY, long aAttr) {
+        if (_wide) {
+            ensureCapacity(HEADER_SIZE + 4 * aLength);
+
+            _buffer.put(OP_WTEXT);
+            putPosition(aX, aY, aAttr);
+            _buffer.putInt(aLength);
+            for (int i = 0; i < aLength; i++) {
+                _buffer.putInt(aCodePoints[i]);
+            }
+            return;
+        }
+
+        CharsetEncoder encoder = getEncoder();
+
+        if (_chars.capacity() < 2 * aLength) {
+            _chars = CharBuffer.allocate(2 * aLength);
+        }
+        _chars.clear();
+        for (int i = 0; i < aLength; i++) {
+            if (Character.isBmpCodePoint(aCodePoints[i])) {
+                _chars.put((char) aCodePoints[i]);
+            } else {
+                _chars.put(Character.highSurrogate(aCodePoints[i]));
+                _chars.put(Character.lowSurrogate(aCodePoints[i]));
+            }
+        }
+        _chars.flip();
+
+        ensureCapacity(HEADER_SIZE + (int) Math.ceil(encoder.maxBytesPerChar() * _chars.remaining()));
+
+        _buffer.put(OP_TEXT);
+        putPosition(aX, aY, aAttr);
+        int lengthPosition = _buffer.position();
+        _buffer.putInt(0);
+
+        int start = _buffer.position();
+        encoder.reset();
+        encoder.encode(_chars, _buffer, true);
+        encoder.flush(_buffer);
+        _buffer.putInt(lengthPosition, _buffer.position() - start);
+    }
+
+    /**
+     * @see TerminalBackend#drawGlyphs
+     */
+    public void drawGlyphs(int aGlyph, int aX, int aY, int aLength, long aAttr) {
+        ensureCapacity(HEADER_SIZE);
+
+        _buffer.put(OP_GLYPHS);
+        _buffer.put((byte) aGlyph);
+        putPosition(aX, aY, aAttr);
+        _buffer.putInt(aLength);
+    }
+
+    private void putPosition(int aX, int aY, long aAttr) {
+        _buffer.putInt(aX);
+        _buffer.putInt(aY);
+        _buffer.putLong(aAttr);
+    }
+
+    private void ensureCapacity(int aSize) {
+        if (_buffer.remaining() >= aSize) {
+            return;
+        }
+
+        int capacity = _buffer.capacity();
+        while (capacity - _buffer.position() < aSize) {
+            capacity *= 2;
+        }
+
+        ByteBuffer bigger = allocate(capacity);
+        _buffer.flip();
+        bigger.put(_buffer);
+        _buffer = bigger;
+    }
+
+    private CharsetEncoder getEncoder() {
+        String name = Toolkit.getEncoding();
+
+        if ((_encoder == null) || ((name == null) ? (_encoderName != null) : ! name.equals(_encoderName))) {
+            Charset charset = Charset.defaultCharset();
+            if (name != null) {
+                try {
+                    charset = Charset.forName(name);
+                } catch (IllegalArgumentException e) {
+                    // unknown encoding, keep the default
+                }
+            }
+
+            _encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            _encoderName = name;
+        }
+
+        return _encoder;
+    }
+
+    private static ByteBuffer allocate(int aCapacity) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(aCapacity);
+        buffer.order(ByteOrder.nativeOrder());
+        return buffer;
+    }
+}
@@ -0,0 +1,496 @@
+package jcurses.system;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jcurses.util.TextUtils;
+
+/**
+ * A terminal backend without a terminal. The screen is a grid of cells in memory and the input is a queue, that is filled by the
+ * program. It is used to run jcurses applications on machines without a tty, to check the screen content and to measure the
+ * widget layer without the cost of terminal output.
+ * <p>
+ * The backend counts the cells written, the refreshes and the calls of its methods, that is every call the toolkit makes to
+ * the terminal. The output is written into the grid immediately, <code>refresh</code> only counts.
+ * <p>
+ * Select it with <code>-Djcurses.backend=headless</code>, or create it with the desired size and pass it to
+ * {@link Toolkit#setBackend}.
+ *
+ */
+public class HeadlessBackend implements TerminalBackend {
+    /**
+     *  Content of the right cell of a wide character
+     */
+    private static final int WIDE_TAIL = - 8;
+    private static final long ATTR_PAIR = 0xffff;
+    private static final long ATTR_REVERSE = 1L << 16;
+    private static final long ATTR_BOLD = 1L << 17;
+    private static final char [] GLYPHS = {'\u2500', '\u2502', '\u2592', '\u2514', '\u2518', '\u250c', '\u2510'};
+
+    private int _width = 0;
+    private int _height = 0;
+    private int _colorCount = 0;
+    private int [] _chars = null;
+    private long [] _attrs = null;
+    private short [] _pairForeground = new short[0];
+    private short [] _pairBackground = new short[0];
+
+    private long _cellsWritten = 0;
+    private long _refreshCount = 0;
+    private long _callCount = 0;
+
+    private final ReentrantLock _inputLock = new ReentrantLock();
+    private final Condition _inputChanged = _inputLock.newCondition();
+    private int [] _input = new int[256];
+    private int _inputHead = 0;
+    private int _inputCount = 0;
+    private boolean _resizePending = false;
+    private boolean _wakeupPending = false;
+    private boolean _waiting = false;
+
+    /**
+     * The constructor for a screen of 80x24 cells with 8 colors
+     */
+    public HeadlessBackend() {
+        this(80, 24, 8);
+    }
+
+    /**
+     * The constructor
+     *
+     * @param  aWidth   the screen width
+     * @param  aHeight  the screen height
+     * @param  aColors  the number of colors, 0, 8, 16 or 256
+     */
+    public HeadlessBackend(int aWidth, int aHeight, int aColors) {
+        _colorCount = aColors;
+        allocate(aWidth, aHeight);
+    }
+
+    private void allocate(int aWidth, int aHeight) {
+        _width = aWidth;
+        _height = aHeight;
+        _chars = new int[aWidth * aHeight];
+        _attrs = new long[aWidth * aHeight];
+        Arrays.fill(_chars, ' ');
+    }
+
+    public synchronized void init() {
+        _callCount++;
+    }
+
+    public synchronized void shutdown() {
+        _callCount++;
+        wakeup();
+    }
+
+    public synchronized int getScreenWidth() {
+        _callCount++;
+        return _width;
+    }
+
+    public synchronized int getScreenHeight() {
+        _callCount++;
+        return _height;
+    }
+
+    public synchronized boolean hasColors() {
+        _callCount++;
+        return _colorCount > 0;
+    }
+
+    public synchronized int getColorCount() {
+        _callCount++;
+        return _colorCount;
+    }
+
+    public synchronized int getColorPairCount() {
+        _callCount++;
+        return (_colorCount == 0) ? 0 : Math.min(_colorCount * _colorCount, 32767);
+    }
+
+    public synchronized void fillBasicColors(short [] aColors) {
+        _callCount++;
+        for (short i = 0; i < aColors.length; i++) {
+            aColors[i] = i;
+        }
+    }
+
+    public synchronized void fillAttributes(long [] aAttributes) {
+        _callCount++;
+        aAttributes[0] = 0;
+        aAttributes[1] = ATTR_REVERSE;
+        aAttributes[2] = ATTR_BOLD;
+    }
+
+    public synchronized void initColorPair(short aBackground, short aForeground, short aNumber) {
+        _callCount++;
+        if (aNumber >= _pairForeground.length) {
+            int length = Math.max(aNumber + 1, _pairForeground.length * 2);
+            short [] foreground = new short[length];
+            short [] background = new short[length];
+            System.arraycopy(_pairForeground, 0, foreground, 0, _pairForeground.length);
+            System.arraycopy(_pairBackground, 0, background, 0, _pairBackground.length);
+            _pairForeground = foreground;
+            _pairBackground = background;
+        }
+        _pairForeground[aNumber] = aForeground;
+        _pairBackground[aNumber] = aBackground;
+    }
+
+    public synchronized void adjustColor(short aNumber, short aRed, short aGreen, short aBlue) {
+        _callCount++;
+    }
+
+    public long getColorPairAttribute(short aPair) {
+        return (aPair + 1) & ATTR_PAIR;
+    }
+
+    public boolean hasDirectColors() {
+        return false;
+    }
+
+    public long getDirectColorAttribute(int aBackgroundRGB, int aForegroundRGB) {
+        throw new UnsupportedOperationException("the headless terminal has no direct colors");
+    }
+
+    public synchronized void printRun(int [] aCodePoints, int aLength, int aX, int aY, long aAttr) {
+        _callCount++;
+        if ((aY < 0) || (aY >= _height)) {
+            return;
+        }
+
+        int x = aX;
+        for (int i = 0; (i < aLength) && (x < _width); i++) {
+            int width = TextUtils.getCharWidth(aCodePoints[i]);
+            if (width == 0) {
+                continue;
+            }
+            put(x++, aY, aCodePoints[i], aAttr);
+            if ((width == 2) && (x < _width)) {
+                put(x++, aY, WIDE_TAIL, aAttr);
+            }
+        }
+    }
+
+    public synchronized void drawGlyphs(int aGlyph, int aX, int aY, int aLength, long aAttr) {
+        _callCount++;
+        if ((aY < 0) || (aY >= _height)) {
+            return;
+        }
+
+        for (int x = aX; (x < aX + aLength) && (x < _width); x++) {
+            put(x, aY, aGlyph, aAttr);
+        }
+    }
+
+    private void put(int aX, int aY, int aChar, long aAttr) {
+        if (aX < 0) {
+            return;
+        }
+        _chars[aY * _width + aX] = aChar;
+        _attrs[aY * _width + aX] = aAttr;
+        _cellsWritten++;
+    }
+
+    public synchronized void refresh() {
+        _callCount++;
+        _refreshCount++;
+    }
+
+    public synchronized void beep() {
+        _callCount++;
+    }
+
+    /**
+     * Returns a character of the screen. Line drawing glyphs are returned as unicode box drawing characters.
+     *
+     * @param  aX  the column
+     * @param  aY  the row
+     * @return     the code point of the character, the right half of a wide character is returned as 0
+     */
+    public synchronized int getCharacter(int aX, int aY) {
+        int ch = _chars[aY * _width + aX];
+        if (ch == WIDE_TAIL) {
+            return 0;
+        }
+        if (ch >= 0) {
+            return ch;
+        }
+        return (- ch - 1 < GLYPHS.length) ? GLYPHS[- ch - 1] : '?';
+    }
+
+    /**
+     * Returns a row of the screen as text, line drawing glyphs are returned as unicode box drawing characters.
+     *
+     * @param  aY  the row
+     * @return     the text of the row
+     */
+    public synchronized String getLine(int aY) {
+        StringBuilder result = new StringBuilder(_width);
+        for (int x = 0; x < _width; x++) {
+            int ch = getCharacter(x, aY);
+            if (ch != 0) {
+                result.appendCodePoint(ch);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the text of a region of a row
+     *
+     * @param  aX       the first column
+     * @param  aY       the row
+     * @param  aLength  the number of columns
+     * @return          the text of the region
+     */
+    public synchronized String getText(int aX, int aY, int aLength) {
+        StringBuilder result = new StringBuilder(aLength);
+        for (int x = aX; (x < aX + aLength) && (x < _width); x++) {
+            int ch = getCharacter(x, aY);
+            if (ch != 0) {
+                result.appendCodePoint(ch);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return    the terminal color number of the foreground of a cell, -1 for the default color
+     */
+    public synchronized int getForeground(int aX, int aY) {
+        int pair = (int) (_attrs[aY * _width + aX] & ATTR_PAIR);
+        return ((pair == 0) || (pair > _pairForeground.length)) ? - 1 : _pairForeground[pair - 1];
+    }
+
+    /**
+     * @return    the terminal color number of the background of a cell, -1 for the default color
+     */
+    public synchronized int getBackground(int aX, int aY) {
+        int pair = (int) (_attrs[aY * _width + aX] & ATTR_PAIR);
+        return ((pair == 0) || (pair > _pairBackground.length)) ? - 1 : _pairBackground[pair - 1];
+    }
+
+    /**
+     * @return    <code>true</code>, if a cell is painted bold
+     */
+    public synchronized boolean isBold(int aX, int aY) {
+        return (_attrs[aY * _width + aX] & ATTR_BOLD) != 0;
+    }
+
+    /**
+     * @return    <code>true</code>, if a cell is painted reverse
+     */
+    public synchronized boolean isReverse(int aX, int aY) {
+        return (_attrs[aY * _width + aX] & ATTR_REVERSE) != 0;
+    }
+
+    /**
+     * @return    the screen content, one line per row
+     */
+    public synchronized String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int y = 0; y < _height; y++) {
+            result.append(getLine(y)).append('\n');
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return    the number of cells written since the last <code>resetCounters</code>
+     */
+    public synchronized long getCellsWritten() {
+        return _cellsWritten;
+    }
+
+    /**
+     * @return    the number of refreshes since the last <code>resetCounters</code>
+     */
+    public synchronized long getRefreshCount() {
+        return _refreshCount;
+    }
+
+    /**
+     * @return    the number of calls of the backend methods since the last <code>resetCounters</code>
+     */
+    public synchronized long getCallCount() {
+        return _callCount;
+    }
+
+    /**
+     * Sets all counters to 0
+     */
+    public synchronized void resetCounters() {
+        _cellsWritten = 0;
+        _refreshCount = 0;
+        _callCount = 0;
+    }
+
+    /**
+     * Appends bytes to the input queue. Escape sequences of function keys and mouse reports are decoded as they are from a real
+     * terminal.
+     *
+     * @param  aBytes  the bytes
+     */
+    public void queueInput(byte [] aBytes) {
+        _inputLock.lock();
+        try {
+            if (_inputCount + aBytes.length > _input.length) {
+                int [] input = new int[Math.max(_input.length * 2, _inputCount + aBytes.length)];
+                for (int i = 0; i < _inputCount; i++) {
+                    input[i] = _input[(_inputHead + i) % _input.length];
+                }
+                _input = input;
+                _inputHead = 0;
+            }
+            for (int i = 0; i < aBytes.length; i++) {
+                _input[(_inputHead + _inputCount) % _input.length] = aBytes[i] & 0xff;
+                _inputCount++;
+            }
+            _inputChanged.signalAll();
+        } finally {
+            _inputLock.unlock();
+        }
+    }
+
+    /**
+     * Appends a text to the input queue, encoded in the encoding of the toolkit. The text may contain escape sequences, for
+     * example <code>"\033[B"</code> for the down arrow.
+     *
+     * @param  aText  the text
+     */
+    public void queueInput(String aText) {
+        String encoding = Toolkit.getEncoding();
+        Charset charset = (encoding == null) ? Charset.defaultCharset() : Charset.forName(encoding);
+        queueInput(aText.getBytes(charset));
+    }
+
+    /**
+     * Changes the screen size, the content of the screen is cleared and <code>KEY_RESIZE</code> is queued as input
+     *
+     * @param  aWidth   the new screen width
+     * @param  aHeight  the new screen height
+     */
+    public void setScreenSize(int aWidth, int aHeight) {
+        synchronized (this) {
+            allocate(aWidth, aHeight);
+        }
+        _inputLock.lock();
+        try {
+            _resizePending = true;
+            _inputChanged.signalAll();
+        } finally {
+            _inputLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until all queued input is read and the reading thread waits for more input, that is until the application has
+     * handled the input.
+     *
+     * @param  aTimeout  the maximal time to wait in milliseconds
+     * @return           <code>true</code>, if the application became idle within the timeout
+     */
+    public boolean awaitIdle(long aTimeout) {
+        _inputLock.lock();
+        try {
+            long deadline = System.currentTimeMillis() + aTimeout;
+            while ((_inputCount > 0) || _resizePending || ! _waiting) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    _inputChanged.await(remaining, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            _inputLock.unlock();
+        }
+    }
+
+    public int readInput(int [] aBuffer, int aOffset, int aLength) {
+        synchronized (this) {
+            _callCount++;
+        }
+        _inputLock.lock();
+        try {
+            int count = 0;
+
+            if (_resizePending && (aLength > 0)) {
+                _resizePending = false;
+                aBuffer[aOffset + count++] = KEY_RESIZE;
+            }
+
+            while ((count < aLength) && (_inputCount > 0)) {
+                aBuffer[aOffset + count++] = _input[_inputHead];
+                _inputHead = (_inputHead + 1) % _input.length;
+                _inputCount--;
+            }
+
+            return count;
+        } finally {
+            _inputLock.unlock();
+        }
+    }
+
+    public boolean waitForInput(int aTimeout) {
+        synchronized (this) {
+            _callCount++;
+        }
+        _inputLock.lock();
+        try {
+            long deadline = System.currentTimeMillis() + aTimeout;
+
+            try {
+                while ((_inputCount == 0) && ! _resizePending && ! _wakeupPending) {
+                    long remaining = (aTimeout < 0) ? 0 : deadline - System.currentTimeMillis();
+                    if ((aTimeout >= 0) && (remaining <= 0)) {
+                        return false;
+                    }
+                    _waiting = true;
+                    _inputChanged.signalAll();
+                    try {
+                        if (remaining > 0) {
+                            _inputChanged.await(remaining, TimeUnit.MILLISECONDS);
+                        } else {
+                            _inputChanged.await();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+            } finally {
+                _waiting = false;
+            }
+
+            _wakeupPending = false;
+            return (_inputCount > 0) || _resizePending;
+        } finally {
+            _inputLock.unlock();
+        }
+    }
+
+    public void wakeup() {
+        _inputLock.lock();
+        try {
+            _wakeupPending = true;
+            _inputChanged.signalAll();
+        } finally {
+            _inputLock.unlock();
+        }
+    }
+
+    public boolean isNativeWait() {
+        return false;
+    }
+}
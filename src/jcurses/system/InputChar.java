@@ -1,69 +1,141 @@
-
 package jcurses.system;
 
 /**
- * The instances of this class represent characters or key codes, that are input by an user. An instance of the class contains einther a ascii character or one
+ * The instances of this class represent characters or key codes, that are input by an user. An instance of the class contains einther a character or one
  * of in the class declared constants for function keys and control keys.
+ * <p>
+ * Characters are identified by their unicode code point. The codes of function and control keys lie beyond the unicode range, so
+ * they can't be confused with characters.
  */
 public class InputChar
 {
-  public static final int KEY_DOWN      = Toolkit.getSpecialKeyCode(0402); /* Down-arrow */
-  public static final int KEY_UP        = Toolkit.getSpecialKeyCode(0403); /* Up-arrow */
-  public static final int KEY_LEFT      = Toolkit.getSpecialKeyCode(0404); /* Left-arrow */
-  public static final int KEY_RIGHT     = Toolkit.getSpecialKeyCode(0405); /* Right-arrow */
-  public static final int KEY_HOME      = Toolkit.getSpecialKeyCode(0406); /* Home */
-  public static final int KEY_BACKSPACE = Toolkit.getSpecialKeyCode(0407); /* Backspace (unreliable) */
-  public static final int KEY_F1        = Toolkit.getSpecialKeyCode(0411); /* Function keys. Space for 64 */
-  public static final int KEY_F2        = Toolkit.getSpecialKeyCode(0412); /* Function keys */
-  public static final int KEY_F3        = Toolkit.getSpecialKeyCode(0413); /* Function keys */
-  public static final int KEY_F4        = Toolkit.getSpecialKeyCode(0414); /* Function keys */
-  public static final int KEY_F5        = Toolkit.getSpecialKeyCode(0415); /* Function keys */
-  public static final int KEY_F6        = Toolkit.getSpecialKeyCode(0416); /* Function keys */
-  public static final int KEY_F7        = Toolkit.getSpecialKeyCode(0417); /* Function keys */
-  public static final int KEY_F8        = Toolkit.getSpecialKeyCode(0420); /* Function keys */
-  public static final int KEY_F9        = Toolkit.getSpecialKeyCode(0421); /* Function keys */
-  public static final int KEY_F10       = Toolkit.getSpecialKeyCode(0422); /* Function keys */
-  public static final int KEY_F11       = Toolkit.getSpecialKeyCode(0423); /* Function keys */
-  public static final int KEY_F12       = Toolkit.getSpecialKeyCode(0424); /* Function keys */
-  public static final int KEY_DC        = Toolkit.getSpecialKeyCode(0512); /* Delete character */
-  public static final int KEY_IC        = Toolkit.getSpecialKeyCode(0513); /* Insert char or enter insert mode */
-  public static final int KEY_NPAGE     = Toolkit.getSpecialKeyCode(0522); /* Next page */
-  public static final int KEY_PPAGE     = Toolkit.getSpecialKeyCode(0523); /* Previous page */
-  public static final int KEY_PRINT     = Toolkit.getSpecialKeyCode(0532); /* Print */
-  public static final int KEY_END       = Toolkit.getSpecialKeyCode(0550); /* End */
+  /**
+   * The offset added to the curses key codes to move them beyond the unicode range
+   */
+  public static final int SPECIAL_BASE  = 0x200000;
+
+  public static final int KEY_DOWN      = SPECIAL_BASE + 0402;            /* Down-arrow */
+  public static final int KEY_UP        = SPECIAL_BASE + 0403;            /* Up-arrow */
+  public static final int KEY_LEFT      = SPECIAL_BASE + 0404;            /* Left-arrow */
+  public static final int KEY_RIGHT     = SPECIAL_BASE + 0405;            /* Right-arrow */
+  public static final int KEY_HOME      = SPECIAL_BASE + 0406;            /* Home */
+  public static final int KEY_BACKSPACE = SPECIAL_BASE + 0407;            /* Backspace (unreliable) */
+  public static final int KEY_F1        = SPECIAL_BASE + 0411;            /* Function keys. Space for 64 */
+  public static final int KEY_F2        = SPECIAL_BASE + 0412;            /* Function keys */
+  public static final int KEY_F3        = SPECIAL_BASE + 0413;            /* Function keys */
+  public static final int KEY_F4        = SPECIAL_BASE + 0414;            /* Function keys */
+  public static final int KEY_F5        = SPECIAL_BASE + 0415;            /* Function keys */
+  public static final int KEY_F6        = SPECIAL_BASE + 0416;            /* Function keys */
+  public static final int KEY_F7        = SPECIAL_BASE + 0417;            /* Function keys */
+  public static final int KEY_F8        = SPECIAL_BASE + 0420;            /* Function keys */
+  public static final int KEY_F9        = SPECIAL_BASE + 0421;            /* Function keys */
+  public static final int KEY_F10       = SPECIAL_BASE + 0422;            /* Function keys */
+  public static final int KEY_F11       = SPECIAL_BASE + 0423;            /* Function keys */
+  public static final int KEY_F12       = SPECIAL_BASE + 0424;            /* Function keys */
+  public static final int KEY_DC        = SPECIAL_BASE + 0512;            /* Delete character */
+  public static final int KEY_IC        = SPECIAL_BASE + 0513;            /* Insert char or enter insert mode */
+  public static final int KEY_NPAGE     = SPECIAL_BASE + 0522;            /* Next page */
+  public static final int KEY_PPAGE     = SPECIAL_BASE + 0523;            /* Previous page */
+  public static final int KEY_PRINT     = SPECIAL_BASE + 0532;            /* Print */
+  public static final int KEY_END       = SPECIAL_BASE + 0550;            /* End */
+  public static final int KEY_MOUSE     = SPECIAL_BASE + 0631;            /* Mouse event, see MouseInput */
+  public static final int KEY_RESIZE    = SPECIAL_BASE + 0632;            /* Terminal resize, the new size is returned by Toolkit */
   public static final int KEY_ESC       = 27;                             /* Escape character */
   public static final int KEY_TAB       = '\t';                           /* Tab character */
+  public static final int KEY_PASTE_BEGIN = 0x110001;                     /* Start of bracketed paste, beyond the unicode range */
+  public static final int KEY_PASTE_END   = 0x110002;                     /* End of bracketed paste */
+  public static final int KEY_PASTE     = 0x110003;                       /* Pasted text, see getText() */
+
+  public static final int MOD_SHIFT     = 1;                              /* Shift modifier */
+  public static final int MOD_ALT       = 2;                              /* Alt modifier */
+  public static final int MOD_CTRL      = 4;                              /* Control modifier */
 
-  private static byte[]   __bytes       = new byte[1];
+  private static InputChar[] __characters = new InputChar[2048];
+  private static InputChar[] __specials = new InputChar[01000];
   private String          _string       = null;
   private int             _code         = - 1;
+  private int             _modifiers    = 0;
 
   /**
    * The constructor
    * 
-   * @param code the code of input char
+   * @param code the code of input char, a unicode code point or one of the key constants
    */
   public InputChar(int code)
   {
     _code = code;
+  }
+
+  /**
+   * The constructor
+   * 
+   * @param code the code of input char
+   * @param modifiers the modifier keys held down, a combination of <code>MOD_SHIFT</code>, <code>MOD_ALT</code> and
+   *          <code>MOD_CTRL</code>
+   */
+  public InputChar(int code, int modifiers)
+  {
+    _code = code;
+    _modifiers = modifiers;
+  }
 
-    if ( _code <= 0xff )
-      _string = convertByteToString(_code);
+  /**
+   * The constructor for characters carrying a text, for example <code>KEY_PASTE</code>
+   * 
+   * @param code the code of input char
+   * @param text the text
+   */
+  public InputChar(int code, String text)
+  {
+    _code = code;
+    _string = text;
   }
 
   /**
    * The constructor
    * 
-   * @param character an input ascii character
+   * @param character an input character
    */
   public InputChar(char character)
   {
-    _string = "" + character;
-    _code = _string.getBytes()[0];
+    _code = character;
   }
 
   /**
-   * The method returns the character, contained in this object.
+   * Returns an instance for a code. Instances for the codes read from the keyboard are shared, so reading a key doesn't allocate
+   * an object.
+   * 
+   * @param code the code of input char
+   * 
+   * @return the instance containing the code
+   */
+  public static InputChar valueOf(int code)
+  {
+    InputChar[] cache = __characters;
+    int index = code;
+
+    if ( code >= SPECIAL_BASE )
+    {
+      cache = __specials;
+      index = code - SPECIAL_BASE;
+    }
+
+    if ( index < 0 || index >= cache.length )
+      return new InputChar(code);
+
+    InputChar result = cache[index];
+    if ( result == null )
+    {
+      result = new InputChar(code);
+      cache[index] = result;
+    }
+
+    return result;
+  }
+
+  /**
+   * The method returns the character, contained in this object. Characters outside of the basic multilingual plane can't be
+   * returned as <code>char</code>, use <code>getCode</code> or <code>getText</code> for them.
    * 
    * @return the character, contained in this object
    * 
@@ -74,13 +146,13 @@ public class InputChar
     if ( isSpecialCode() )
       throw new RuntimeException("this is a special key");
 
-    return _string.charAt(0);
+    return Character.isBmpCodePoint(_code) ? (char)_code : '\ufffd';
   }
 
   /**
    * DOCUMENT ME!
    * 
-   * @return the code ( ascii or control), contained in this instance
+   * @return the code ( unicode code point or control), contained in this instance
    */
   public int getCode()
   {
@@ -88,17 +160,39 @@ public class InputChar
   }
 
   /**
-   * The return value of this method tells, whether the instance contains a control code or an ascii character.
+   * @return the text contained in this instance: the pasted text for <code>KEY_PASTE</code>, the character as string for
+   *         characters, <code>null</code> for other control codes
+   */
+  public String getText()
+  {
+    if ( _string == null && ! isSpecialCode() )
+      _string = new String(Character.toChars(_code));
+
+    return _string;
+  }
+
+  /**
+   * @return the modifier keys held down, a combination of <code>MOD_SHIFT</code>, <code>MOD_ALT</code> and <code>MOD_CTRL</code>.
+   *         An Alt-modified character has the code of the character and is a special code.
+   */
+  public int getModifiers()
+  {
+    return _modifiers;
+  }
+
+  /**
+   * The return value of this method tells, whether the instance contains a control code or a character. Characters typed
+   * together with Alt or Control are control codes too.
    * 
    * @return <code>true</code>, if a control code is contained, <code>false<code> otherwise.
    */
   public boolean isSpecialCode()
   {
-    return ( _code > 0xff );
+    return ( _code > Character.MAX_CODE_POINT ) || ( _code < 0 ) || ( ( _modifiers & ( MOD_ALT | MOD_CTRL ) ) != 0 );
   }
 
   /**
-   * Two instances of this class are equal, if they contain same codes.
+   * Two instances of this class are equal, if they contain same codes and modifiers.
    * 
    * @param obj the object to compare
    * 
@@ -111,7 +205,7 @@ public class InputChar
 
     InputChar character2 = (InputChar)obj;
 
-    return ( _code == character2.getCode() );
+    return ( _code == character2.getCode() ) && ( _modifiers == character2.getModifiers() );
   }
 
   /**
@@ -126,30 +220,6 @@ public class InputChar
 
   public String toString()
   {
-    return _string;
-  }
-
-  private static synchronized String convertByteToString(int code)
-  {
-    __bytes[0] = (byte)code;
-    String result = null;
-    String encoding = Toolkit.getEncoding();
-
-    if ( encoding == null )
-      result = new String(__bytes);
-    else
-    {
-      try
-      {
-        result = new String(__bytes, encoding);
-      }
-      catch (java.io.UnsupportedEncodingException e)
-      {
-        result = new String(__bytes);
-        Toolkit.setEncoding(null);
-      }
-    }
-
-    return result;
+    return getText();
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,385 @@
+package jcurses.system;
+
+/**
+ * This class is a jcurses-internal class, that decodes the raw codes read from the terminal into input characters. It is an
+ * incremental state machine: the codes are fed one by one, and a character is returned as soon as a key is complete, without
+ * reading ahead.
+ * <p>
+ * Recognized are CSI sequences (<code>ESC [</code>) and SS3 sequences (<code>ESC O</code>) for cursor, editing and function
+ * keys, the xterm modifier parameter, Alt-modified keys (<code>ESC</code> followed by a character), the bracketed paste
+ * markers and mouse reports, in the SGR format (<code>ESC [ &lt; b ; x ; y M</code>) as well as in the legacy X10 format
+ * (<code>ESC [ M</code> followed by three bytes). Sequences, that are not recognized, are discarded as a whole, so they don't reach the widgets as characters.
+ * <p>
+ * A lone <code>ESC</code> can't be told from the start of a sequence, until the next code arrives. If no code arrives within
+ * the escape delay, the caller calls <code>flush</code>, that returns the escape key.
+ *
+ */
+class InputDecoder {
+    private static final int GROUND = 0;
+    private static final int ESCAPE = 1;
+    private static final int CSI = 2;
+    private static final int SS3 = 3;
+    private static final int CONSOLE_FKEY = 4;
+    private static final int X10_MOUSE = 5;
+
+    private static final int MAX_PARAMS = 8;
+    private static final int MAX_LENGTH = 32;
+
+    private int _state = GROUND;
+    private int [] _params = new int [MAX_PARAMS];
+    private int _paramCount = 0;
+    private int _private = 0;
+    private int _length = 0;
+
+    /**
+     * Feeds the next code read from the terminal
+     *
+     * @param  aCode  the code, a unicode code point or a curses key code moved by <code>InputChar.SPECIAL_BASE</code>
+     * @return        the decoded character, or <code>null</code> if the code doesn't complete a key
+     */
+    InputChar feed(int aCode) {
+        switch (_state) {
+            case ESCAPE:
+                return feedEscape(aCode);
+            case CSI:
+                return feedCsi(aCode);
+            case SS3:
+                _state = GROUND;
+                return decodeFinal(aCode, 1);
+            case CONSOLE_FKEY:
+                // the linux console sends ESC [ [ A to ESC [ [ E for F1 to F5
+                _state = GROUND;
+                return ((aCode >= 'A') && (aCode <= 'E')) ? InputChar.valueOf(functionKey(aCode - 'A' + 1)) : null;
+            case X10_MOUSE:
+                return feedX10Mouse(aCode);
+            default:
+                return feedGround(aCode);
+        }
+    }
+
+    /**
+     * @return    <code>true</code>, if an incomplete sequence was fed, that waits for more codes
+     */
+    boolean isPending() {
+        return _state != GROUND;
+    }
+
+    /**
+     * Tells, whether a code ends the pending sequence without belonging to it. Key codes of the backend can't be part of a
+     * sequence, the caller flushes the sequence, before it feeds such a code, so neither is lost.
+     *
+     * @param  aCode  the next code
+     * @return        <code>true</code>, if the pending sequence must be flushed before the code is fed
+     */
+    boolean isInterruptedBy(int aCode) {
+        return (aCode >= InputChar.SPECIAL_BASE) && (_state != GROUND);
+    }
+
+    /**
+     * Ends an incomplete sequence, called if no more codes arrived within the escape delay
+     *
+     * @return    the escape key or the Alt-modified key, that was typed, or <code>null</code> if an incomplete sequence was
+     *            discarded
+     */
+    InputChar flush() {
+        int state = _state;
+        _state = GROUND;
+
+        if (state == ESCAPE) {
+            return InputChar.valueOf(InputChar.KEY_ESC);
+        }
+        if (state == SS3) {
+            return alt('O');
+        }
+        if ((state == CSI) && (_length == 0)) {
+            return alt('[');
+        }
+
+        return null;
+    }
+
+    private InputChar feedGround(int aCode) {
+        if (aCode == 0x1b) {
+            _state = ESCAPE;
+            return null;
+        }
+        if ((aCode == 0x7f) || (aCode == 0x08)) {
+            return InputChar.valueOf(InputChar.KEY_BACKSPACE);
+        }
+
+        return InputChar.valueOf(aCode);
+    }
+
+    private InputChar feedEscape(int aCode) {
+        if (aCode == '[') {
+            startSequence(CSI);
+            return null;
+        }
+        if (aCode == 'O') {
+            startSequence(SS3);
+            return null;
+        }
+        if (aCode == 0x1b) {
+            // the first escape was typed alone, the second one may start a sequence
+            return InputChar.valueOf(InputChar.KEY_ESC);
+        }
+
+        _state = GROUND;
+        return alt(aCode);
+    }
+
+    private InputChar feedCsi(int aCode) {
+        if (++_length > MAX_LENGTH) {
+            // runaway sequence, discard it
+            _state = GROUND;
+            return null;
+        }
+
+        if ((aCode >= '0') && (aCode <= '9')) {
+            int index = Math.max(_paramCount - 1, 0);
+            if (_paramCount == 0) {
+                _paramCount = 1;
+            }
+            _params[index] = Math.min(_params[index] * 10 + (aCode - '0'), 0xffff);
+            return null;
+        }
+
+        if (aCode == ';') {
+            if (_paramCount == 0) {
+                _paramCount = 1;
+            }
+            if (_paramCount < MAX_PARAMS) {
+                _params[_paramCount++] = 0;
+            }
+            return null;
+        }
+
+        if ((aCode == '[') && (_length == 1)) {
+            _state = CONSOLE_FKEY;
+            return null;
+        }
+
+        if ((aCode >= '<') && (aCode <= '?') && (_length == 1)) {
+            _private = aCode;
+            return null;
+        }
+
+        if ((aCode >= 0x20) && (aCode <= 0x2f)) {
+            // intermediate bytes, not used by any key
+            return null;
+        }
+
+        _state = GROUND;
+
+        if ((aCode >= 0x40) && (aCode <= 0x7e)) {
+            if (_private == '<') {
+                return ((aCode == 'M') || (aCode == 'm')) ? decodeSgrMouse(aCode == 'M') : null;
+            }
+            if (_private != 0) {
+                return null;
+            }
+            if ((aCode == 'M') && (_length == 1)) {
+                // a X10 mouse report, three bytes follow
+                _state = X10_MOUSE;
+                return null;
+            }
+            return decodeCsi(aCode);
+        }
+
+        // a control character aborts the sequence
+        return (aCode == 0x1b) ? feedGround(aCode) : null;
+    }
+
+    private void startSequence(int aState) {
+        _state = aState;
+        _paramCount = 0;
+        _private = 0;
+        _length = 0;
+        for (int i = 0; i < MAX_PARAMS; i++) {
+            _params[i] = 0;
+        }
+    }
+
+    private InputChar decodeCsi(int aFinal) {
+        int modifier = (_paramCount >= 2) ? _params[1] : 1;
+
+        if (aFinal == '~') {
+            return decodeTilde((_paramCount >= 1) ? _params[0] : 0, modifier);
+        }
+        if (aFinal == 'Z') {
+            return new InputChar(InputChar.KEY_TAB, InputChar.MOD_SHIFT);
+        }
+
+        return decodeFinal(aFinal, modifier);
+    }
+
+    private InputChar feedX10Mouse(int aCode) {
+        _params[_paramCount++] = aCode - 32;
+
+        if (_paramCount < 3) {
+            return null;
+        }
+
+        _state = GROUND;
+        // the release of any button is reported as button 3
+        return mouse(_params[0], _params[1], _params[2], (_params[0] & 3) != 3);
+    }
+
+    private InputChar decodeSgrMouse(boolean aPressed) {
+        if (_paramCount < 3) {
+            return null;
+        }
+
+        return mouse(_params[0], _params[1], _params[2], aPressed);
+    }
+
+    /**
+     * @param  aFlags    the button and modifier flags of the report
+     * @param  aX        the column, starting with 1
+     * @param  aY        the row, starting with 1
+     * @param  aPressed  <code>false</code>, if a button was released
+     * @return           the mouse event, or <code>null</code> for the additional buttons, that aren't supported
+     */
+    private static InputChar mouse(int aFlags, int aX, int aY, boolean aPressed) {
+        if ((aFlags & 128) != 0) {
+            return null;
+        }
+
+        int modifiers = 0;
+        if ((aFlags & 4) != 0) {
+            modifiers |= InputChar.MOD_SHIFT;
+        }
+        if ((aFlags & 8) != 0) {
+            modifiers |= InputChar.MOD_ALT;
+        }
+        if ((aFlags & 16) != 0) {
+            modifiers |= InputChar.MOD_CTRL;
+        }
+
+        int button = (aFlags & 3) + 1;
+        int type;
+
+        if ((aFlags & 64) != 0) {
+            type = ((aFlags & 1) == 0) ? MouseInput.WHEEL_UP : MouseInput.WHEEL_DOWN;
+            button = MouseInput.BUTTON_NONE;
+        } else if ((aFlags & 32) != 0) {
+            type = (button > MouseInput.BUTTON_RIGHT) ? MouseInput.MOVED : MouseInput.DRAGGED;
+        } else if (! aPressed || (button > MouseInput.BUTTON_RIGHT)) {
+            type = MouseInput.RELEASED;
+        } else {
+            type = MouseInput.PRESSED;
+        }
+
+        if (button > MouseInput.BUTTON_RIGHT) {
+            button = MouseInput.BUTTON_NONE;
+        }
+
+        return new MouseInput(type, button, aX - 1, aY - 1, modifiers);
+    }
+
+    private static InputChar decodeTilde(int aNumber, int aModifier) {
+        int code;
+
+        switch (aNumber) {
+            case 1:
+            case 7:
+                code = InputChar.KEY_HOME;
+                break;
+            case 2:
+                code = InputChar.KEY_IC;
+                break;
+            case 3:
+                code = InputChar.KEY_DC;
+                break;
+            case 4:
+            case 8:
+                code = InputChar.KEY_END;
+                break;
+            case 5:
+                code = InputChar.KEY_PPAGE;
+                break;
+            case 6:
+                code = InputChar.KEY_NPAGE;
+                break;
+            case 11:
+            case 12:
+            case 13:
+            case 14:
+            case 15:
+                code = functionKey(aNumber - 10);
+                break;
+            case 17:
+            case 18:
+            case 19:
+            case 20:
+            case 21:
+                code = functionKey(aNumber - 11);
+                break;
+            case 23:
+            case 24:
+                code = functionKey(aNumber - 12);
+                break;
+            case 200:
+                return InputChar.valueOf(InputChar.KEY_PASTE_BEGIN);
+            case 201:
+                return InputChar.valueOf(InputChar.KEY_PASTE_END);
+            default:
+                return null;
+        }
+
+        return key(code, aModifier);
+    }
+
+    private static InputChar decodeFinal(int aFinal, int aModifier) {
+        int code;
+
+        switch (aFinal) {
+            case 'A':
+                code = InputChar.KEY_UP;
+                break;
+            case 'B':
+                code = InputChar.KEY_DOWN;
+                break;
+            case 'C':
+                code = InputChar.KEY_RIGHT;
+                break;
+            case 'D':
+                code = InputChar.KEY_LEFT;
+                break;
+            case 'H':
+                code = InputChar.KEY_HOME;
+                break;
+            case 'F':
+                code = InputChar.KEY_END;
+                break;
+            case 'P':
+            case 'Q':
+            case 'R':
+            case 'S':
+                code = functionKey(aFinal - 'P' + 1);
+                break;
+            default:
+                return null;
+        }
+
+        return key(code, aModifier);
+    }
+
+    private static int functionKey(int aNumber) {
+        return InputChar.KEY_F1 + aNumber - 1;
+    }
+
+    /**
+     * @param  aCode      the key code
+     * @param  aModifier  the xterm modifier parameter, 1 + the sum of 1 for shift, 2 for alt and 4 for control
+     * @return            the character for the key
+     */
+    private static InputChar key(int aCode, int aModifier) {
+        int modifiers = Math.max(aModifier - 1, 0) & (InputChar.MOD_SHIFT | InputChar.MOD_ALT | InputChar.MOD_CTRL);
+        return (modifiers == 0) ? InputChar.valueOf(aCode) : new InputChar(aCode, modifiers);
+    }
+
+    private static InputChar alt(int aCode) {
+        return new InputChar(aCode, InputChar.MOD_ALT);
+    }
+}
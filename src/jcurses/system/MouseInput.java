@@ -0,0 +1,115 @@
+package jcurses.system;
+
+/**
+ * The instances of this class represent mouse events read from the terminal. A mouse event is an input char with the code
+ * <code>InputChar.KEY_MOUSE</code>, that carries additionally the type of the event, the button and the screen position.
+ * <p>
+ * The position is given in screen coordinates, the top left corner is <code>(0,0)</code>.
+ */
+public class MouseInput extends InputChar
+{
+  public static final int PRESSED       = 1;                              /* A button was pressed */
+  public static final int RELEASED      = 2;                              /* A button was released */
+  public static final int DRAGGED       = 3;                              /* The mouse was moved with a button held down */
+  public static final int MOVED         = 4;                              /* The mouse was moved without a button */
+  public static final int WHEEL_UP      = 5;                              /* The wheel was rotated up */
+  public static final int WHEEL_DOWN    = 6;                              /* The wheel was rotated down */
+
+  public static final int BUTTON_NONE   = 0;
+  public static final int BUTTON_LEFT   = 1;
+  public static final int BUTTON_MIDDLE = 2;
+  public static final int BUTTON_RIGHT  = 3;
+
+  private int             _type         = 0;
+  private int             _button       = BUTTON_NONE;
+  private int             _x            = 0;
+  private int             _y            = 0;
+
+  /**
+   * The constructor
+   *
+   * @param type the type of the event, one of the constants declared in this class
+   * @param button the button, one of the <code>BUTTON_</code> constants
+   * @param x the screen column of the mouse
+   * @param y the screen row of the mouse
+   * @param modifiers the modifier keys held down, a combination of <code>MOD_SHIFT</code>, <code>MOD_ALT</code> and
+   *          <code>MOD_CTRL</code>
+   */
+  public MouseInput(int type, int button, int x, int y, int modifiers)
+  {
+    super(KEY_MOUSE, modifiers);
+    _type = type;
+    _button = button;
+    _x = x;
+    _y = y;
+  }
+
+  /**
+   * @return the type of the event, one of the constants declared in this class
+   */
+  public int getType()
+  {
+    return _type;
+  }
+
+  /**
+   * @return the button, one of the <code>BUTTON_</code> constants. <code>BUTTON_NONE</code> for wheel and move events and, on
+   *         terminals, that don't report it, for released buttons.
+   */
+  public int getButton()
+  {
+    return _button;
+  }
+
+  /**
+   * @return the screen column of the mouse
+   */
+  public int getX()
+  {
+    return _x;
+  }
+
+  /**
+   * @return the screen row of the mouse
+   */
+  public int getY()
+  {
+    return _y;
+  }
+
+  /**
+   * @return <code>true</code>, if the event is a wheel rotation
+   */
+  public boolean isWheel()
+  {
+    return ( _type == WHEEL_UP ) || ( _type == WHEEL_DOWN );
+  }
+
+  /**
+   * Two mouse events are equal, if they have the same type, button, position and modifiers.
+   *
+   * @param obj the object to compare
+   *
+   * @return <code>true</code>, if this instance equal to <code>obj</code>, false otherwise
+   */
+  public boolean equals(Object obj)
+  {
+    if ( ! ( obj instanceof MouseInput ) )
+      return false;
+
+    MouseInput mouse2 = (MouseInput)obj;
+
+    return ( _type == mouse2._type ) && ( _button == mouse2._button ) && ( _x == mouse2._x ) && ( _y == mouse2._y )
+        && ( getModifiers() == mouse2.getModifiers() );
+  }
+
+  public int hashCode()
+  {
+    return getCode() ^ ( _x << 8 ) ^ ( _y << 20 ) ^ _type;
+  }
+
+  public String toString()
+  {
+    return "MouseInput[type=" + _type + ",button=" + _button + ",x=" + _x + ",y=" + _y + "]";
+  }
+}
@@ -0,0 +1,328 @@
+package jcurses.system;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The terminal backend using the native jcurses library, which is built on ncurses. The runs of changed cells are serialized
+ * into a {@link CommandBuffer} and replayed by the native library in one call on <code>refresh</code>, so that a whole paint pass
+ * crosses the JNI border only once.
+ * <p>
+ * The native library is searched in the working directory, the home directory and finally in <code>java.library.path</code>.
+ * It is loaded by the constructor, that throws an <code>IllegalStateException</code>, if it can't be found.
+ * <p>
+ * Every backend is a separate curses session created with <code>newterm</code>, so one JVM can drive several terminals, for
+ * example the terminal of the process and pseudo terminals of remote logins. curses isn't thread safe, the native functions
+ * working on a session are therefore serialized for all backends. Only waiting for input and waking up run in parallel.
+ *
+ */
+public class NcursesBackend implements TerminalBackend {
+    private static final String LIBRARY_NAME = "jcurses";
+    private static boolean __loaded = false;
+
+    private final CommandBuffer _commands = new CommandBuffer();
+    private final String _device;
+    private final String _terminalType;
+
+    /**
+     * The handle of the native session, 0 if the backend isn't initialized
+     */
+    private volatile long _session = 0;
+
+    /**
+     * Guards the handle against being released, while threads wait for input or wake up waiting threads
+     */
+    private final Object _sessionLock = new Object();
+    private int _waiting = 0;
+
+    /**
+     * The constructor of a backend for the terminal of the process, loads the native library
+     *
+     * @throws  IllegalStateException  if the native library can't be loaded
+     */
+    public NcursesBackend() {
+        this(null, null);
+    }
+
+    /**
+     * The constructor of a backend for a terminal device, loads the native library
+     *
+     * @param  aDevice        the path of the terminal device, for example a pseudo terminal, <code>null</code> for the terminal
+     *                        of the process
+     * @param  aTerminalType  the terminal type, <code>null</code> for the type in the environment variable <code>TERM</code>
+     * @throws  IllegalStateException  if the native library can't be loaded
+     */
+    public NcursesBackend(String aDevice, String aTerminalType) {
+        _device = aDevice;
+        _terminalType = aTerminalType;
+        loadLibrary();
+    }
+
+    /**
+     *  Loads the native library, if it isn't loaded yet
+     */
+    private static synchronized void loadLibrary() {
+        if (__loaded) {
+            return;
+        }
+
+        List<String> searchPaths = new ArrayList<String>();
+        final String osName = System.getProperty("os.name").toLowerCase();
+        String libExtension = null;
+        if (osName.indexOf("linux") >= 0) {
+            libExtension = ".so";
+        } else if (osName.indexOf("win") >= 0) {
+            libExtension = ".dll";
+        } else if (osName.indexOf("mac") >= 0) {
+            libExtension = ".jnilib"; // TODO not sure
+        }
+        // $PWD/jcurses.so
+        searchPaths.add(System.getProperty("user.dir") + "/" + LIBRARY_NAME + libExtension);
+        // $PWD/libjcurses.so
+        searchPaths.add(System.getProperty("user.dir") + "/lib" + LIBRARY_NAME + libExtension);
+        // $PWD/lib/jcurses.so
+        searchPaths.add(System.getProperty("user.dir") + "/lib/" + LIBRARY_NAME + libExtension);
+        // $PWD/lib/libjcurses.so
+        searchPaths.add(System.getProperty("user.dir") + "/lib/lib" + LIBRARY_NAME + libExtension);
+
+        // $HOME/jcurses.so
+        searchPaths.add(System.getProperty("user.home") + "/" + LIBRARY_NAME + libExtension);
+        // $HOME/libjcurses.so
+        searchPaths.add(System.getProperty("user.home") + "/lib" + LIBRARY_NAME + libExtension);
+        // $HOME/.local/lib/jcurses.so
+        searchPaths.add(System.getProperty("user.home") + "/.local/lib/" + LIBRARY_NAME + libExtension);
+        // $HOME/.local/lib/libjcurses.so
+        searchPaths.add(System.getProperty("user.home") + "/.local/lib/lib" + LIBRARY_NAME + libExtension);
+
+        for (String sp : searchPaths) {
+            try {
+                System.load(sp);
+                __loaded = true;
+                return;
+            } catch (UnsatisfiedLinkError e) {
+                // not in this directory, try the next one
+            }
+        }
+
+        try {
+            System.loadLibrary(LIBRARY_NAME);
+            __loaded = true;
+        } catch (UnsatisfiedLinkError e) {
+            throw new IllegalStateException("Native library " + LIBRARY_NAME + " found neither in " + searchPaths
+                     + " nor in java.library.path", e);
+        }
+    }
+
+    public synchronized void init() {
+        long session = nativeInit(_device, _terminalType);
+        synchronized (_sessionLock) {
+            _session = session;
+        }
+        _commands.setWide(hasWideOutput());
+    }
+
+    /**
+     * Releases the native session, after all threads waiting for input have been woken up
+     */
+    public synchronized void shutdown() {
+        long session;
+        synchronized (_sessionLock) {
+            session = _session;
+            _session = 0;
+            while ((session != 0) && (_waiting > 0)) {
+                wakeup(session);
+                try {
+                    _sessionLock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        if (session != 0) {
+            _commands.clear();
+            shutdown(session);
+        }
+    }
+
+    /**
+     * @return    the handle of the native session
+     * @throws  IllegalStateException  if the backend isn't initialized
+     */
+    private long session() {
+        long result = _session;
+        if (result == 0) {
+            throw new IllegalStateException("The terminal isn't initialized");
+        }
+        return result;
+    }
+
+    public int getScreenWidth() {
+        return getScreenWidth(session());
+    }
+
+    public int getScreenHeight() {
+        return getScreenHeight(session());
+    }
+
+    public boolean hasColors() {
+        return hasColorsAsInteger(session()) != 0;
+    }
+
+    public int getColorCount() {
+        return getColorCount(session());
+    }
+
+    /**
+     * @return    the number of color pairs the terminal supports, at most 256, because the pair number is stored in the 8 bits
+     *            of the chtype, that <code>COLOR_PAIR</code> provides
+     */
+    public int getColorPairCount() {
+        return getColorPairCount(session());
+    }
+
+    public native void fillBasicColors(short [] aColors);
+
+    public native void fillAttributes(long [] aAttributes);
+
+    public void initColorPair(short aBackground, short aForeground, short aNumber) {
+        initColorPair(session(), aBackground, aForeground, aNumber);
+    }
+
+    public void adjustColor(short aNumber, short aRed, short aGreen, short aBlue) {
+        adjustColor(session(), aNumber, aRed, aGreen, aBlue);
+    }
+
+    public long getColorPairAttribute(short aPair) {
+        return computeChtype(aPair) & 0xffffffffL;
+    }
+
+    public boolean hasDirectColors() {
+        return false;
+    }
+
+    public long getDirectColorAttribute(int aBackgroundRGB, int aForegroundRGB) {
+        throw new UnsupportedOperationException("curses has no direct colors");
+    }
+
+    public synchronized void printRun(int [] aCodePoints, int aLength, int aX, int aY, long aAttr) {
+        _commands.printRun(aCodePoints, aLength, aX, aY, aAttr);
+    }
+
+    public synchronized void drawGlyphs(int aGlyph, int aX, int aY, int aLength, long aAttr) {
+        _commands.drawGlyphs(aGlyph, aX, aY, aLength, aAttr);
+    }
+
+    /**
+     * Replays the commands collected since the last refresh and refreshes the physical screen once
+     */
+    public synchronized void refresh() {
+        if (_commands.getLength() > 0) {
+            replay(session(), _commands.getBuffer(), _commands.getLength());
+        }
+        _commands.clear();
+    }
+
+    public int readInput(int [] aBuffer, int aOffset, int aLength) {
+        return readInput(session(), aBuffer, aOffset, aLength);
+    }
+
+    public boolean waitForInput(int aTimeout) {
+        long session;
+        synchronized (_sessionLock) {
+            session = _session;
+            if (session == 0) {
+                return false;
+            }
+            _waiting++;
+        }
+
+        try {
+            return waitForInput(session, aTimeout);
+        } finally {
+            synchronized (_sessionLock) {
+                _waiting--;
+                _sessionLock.notifyAll();
+            }
+        }
+    }
+
+    public void wakeup() {
+        synchronized (_sessionLock) {
+            if (_session != 0) {
+                wakeup(_session);
+            }
+        }
+    }
+
+    /**
+     * @return    <code>true</code>, the input is polled in native code
+     */
+    public boolean isNativeWait() {
+        return true;
+    }
+
+    public void beep() {
+        beep(session());
+    }
+
+    /**
+     *  Creates the curses session, initializes the terminal modes and the wakeup pipe
+     *
+     * @param  aDevice        the path of the terminal device, <code>null</code> for the terminal of the process
+     * @param  aTerminalType  the terminal type, <code>null</code> for the type in <code>TERM</code>
+     * @return                the handle of the session
+     */
+    private static synchronized native long nativeInit(String aDevice, String aTerminalType);
+
+    private static synchronized native void shutdown(long aSession);
+
+    private static synchronized native int getScreenWidth(long aSession);
+
+    private static synchronized native int getScreenHeight(long aSession);
+
+    private static synchronized native int getColorCount(long aSession);
+
+    private static synchronized native int getColorPairCount(long aSession);
+
+    private static synchronized native void initColorPair(long aSession, short aBackground, short aForeground, short aNumber);
+
+    private static synchronized native void adjustColor(long aSession, short aNumber, short aRed, short aGreen, short aBlue);
+
+    private static synchronized native int readInput(long aSession, int [] aBuffer, int aOffset, int aLength);
+
+    private static native boolean waitForInput(long aSession, int aTimeout);
+
+    private static native void wakeup(long aSession);
+
+    private static synchronized native void beep(long aSession);
+
+    /**
+     *  Executes the drawing commands serialized in a direct buffer and refreshes the physical screen once.
+     *
+     * @param  aSession  the handle of the session
+     * @param  aBuffer   direct buffer containing the commands, see {@link CommandBuffer}
+     * @param  aLength   number of valid bytes in the buffer
+     */
+    private static synchronized native void replay(long aSession, ByteBuffer aBuffer, int aLength);
+
+    /**
+     *  Computes the curses attribute word of a color pair with normal attributes
+     *
+     * @param  aPair  the color pair number
+     * @return        the attribute word
+     */
+    private static native int computeChtype(short aPair);
+
+    /**
+     * @param  aSession  the handle of the session
+     * @return           the curses <code>has_colors()</code> value
+     */
+    private static synchronized native int hasColorsAsInteger(long aSession);
+
+    /**
+     * @return    <code>true</code>, if the native library prints wide characters passed as code points
+     */
+    private static native boolean hasWideOutput();
+}
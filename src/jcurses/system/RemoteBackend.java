@@ -0,0 +1,356 @@
+package jcurses.system;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jcurses.util.TextUtils;
+
+/**
+ * A terminal backend for a terminal connected by a non blocking connection, for example a network socket served by a selector.
+ * The output is encoded with ANSI escape sequences like by {@link AnsiBackend}, the input is delivered by the owner of the
+ * connection with <code>queueInput</code>.
+ * <p>
+ * The backend never lets the output queue of a slow client grow. The runs painted since the last frame are collected in a copy of
+ * the screen. A frame is encoded only, if the output of the previous frames has left the queue of the connection, see
+ * <code>isOutputPending</code>. Otherwise the frame is skipped, and when the owner reports the queue drained with
+ * <code>outputDrained</code>, only the difference between the latest screen and the screen last sent is encoded. Intermediate
+ * frames are never sent to a client, that can't keep up.
+ * <p>
+ * The owner of the connection extends the backend and overrides the hooks <code>isOutputPending</code>,
+ * <code>inputConsumed</code> and <code>terminalClosed</code>.
+ *
+ */
+public class RemoteBackend implements TerminalBackend {
+    private static final int INPUT_CAPACITY = 4096;
+
+    private final AnsiBackend _encoder;
+    private final VirtualScreen _pending;
+    private volatile int _width;
+    private volatile int _height;
+    private boolean _inFrame = false;
+    private boolean _framePending = false;
+    private long _framesSent = 0;
+    private long _framesSkipped = 0;
+
+    private final ReentrantLock _inputLock = new ReentrantLock();
+    private final Condition _inputChanged = _inputLock.newCondition();
+    private final int [] _input = new int[INPUT_CAPACITY];
+    private int _inputHead = 0;
+    private int _inputCount = 0;
+    private boolean _inputBlocked = false;
+    private boolean _resizePending = false;
+    private boolean _wakeupPending = false;
+
+    /**
+     * The constructor
+     *
+     * @param  aOut     the stream, the encoded frames are written to. It must not block, the frames are queued by the owner.
+     * @param  aWidth   the screen width
+     * @param  aHeight  the screen height
+     * @param  aColors  the number of colors the terminal supports, 0, 8, 16, 256 or 16777216 for direct colors
+     */
+    public RemoteBackend(OutputStream aOut, int aWidth, int aHeight, int aColors) {
+        _encoder = new AnsiBackend(null, aOut, aWidth, aHeight, aColors);
+        _pending = new VirtualScreen(aWidth, aHeight);
+        _width = aWidth;
+        _height = aHeight;
+    }
+
+    /**
+     * Called to decide, whether a frame can be sent. The default implementation returns <code>false</code>, so every frame is
+     * sent.
+     *
+     * @return    <code>true</code>, if output written before hasn't left the queue of the connection yet
+     */
+    protected boolean isOutputPending() {
+        return false;
+    }
+
+    /**
+     * Called, after input was consumed, that couldn't be queued completely before, see <code>queueInput</code>. The owner should
+     * queue the rest of the input. Called by the thread reading the input, without holding a lock of the backend.
+     */
+    protected void inputConsumed() {
+    }
+
+    /**
+     * Called after the terminal was shut down and the last output was written to the stream. The owner may close the connection,
+     * when the output is sent.
+     */
+    protected void terminalClosed() {
+    }
+
+    public synchronized void init() {
+        _encoder.init();
+        _inFrame = false;
+        _framePending = false;
+    }
+
+    public void shutdown() {
+        synchronized (this) {
+            _encoder.shutdown();
+        }
+        _inputLock.lock();
+        try {
+            _inputCount = 0;
+            _inputBlocked = false;
+            _inputChanged.signalAll();
+        } finally {
+            _inputLock.unlock();
+        }
+        terminalClosed();
+    }
+
+    public int getScreenWidth() {
+        return _width;
+    }
+
+    public int getScreenHeight() {
+        return _height;
+    }
+
+    /**
+     * Sets the screen size reported by the client. If it has changed, <code>KEY_RESIZE</code> is reported as the next input and
+     * the next frame clears the screen.
+     *
+     * @param  aWidth   the new screen width
+     * @param  aHeight  the new screen height
+     */
+    public void setScreenSize(int aWidth, int aHeight) {
+        synchronized (this) {
+            if ((aWidth == _width) && (aHeight == _height)) {
+                return;
+            }
+            _width = aWidth;
+            _height = aHeight;
+            _pending.resize(aWidth, aHeight);
+            _encoder.setScreenSize(aWidth, aHeight);
+        }
+        _inputLock.lock();
+        try {
+            _resizePending = true;
+            _inputChanged.signalAll();
+        } finally {
+            _inputLock.unlock();
+        }
+    }
+
+    public boolean hasColors() {
+        return _encoder.hasColors();
+    }
+
+    public int getColorCount() {
+        return _encoder.getColorCount();
+    }
+
+    public int getColorPairCount() {
+        return _encoder.getColorPairCount();
+    }
+
+    public void fillBasicColors(short [] aColors) {
+        _encoder.fillBasicColors(aColors);
+    }
+
+    public void fillAttributes(long [] aAttributes) {
+        _encoder.fillAttributes(aAttributes);
+    }
+
+    public synchronized void initColorPair(short aBackground, short aForeground, short aNumber) {
+        _encoder.initColorPair(aBackground, aForeground, aNumber);
+    }
+
+    public synchronized void adjustColor(short aNumber, short aRed, short aGreen, short aBlue) {
+        _encoder.adjustColor(aNumber, aRed, aGreen, aBlue);
+    }
+
+    public long getColorPairAttribute(short aPair) {
+        return _encoder.getColorPairAttribute(aPair);
+    }
+
+    public boolean hasDirectColors() {
+        return _encoder.hasDirectColors();
+    }
+
+    public long getDirectColorAttribute(int aBackgroundRGB, int aForegroundRGB) {
+        return _encoder.getDirectColorAttribute(aBackgroundRGB, aForegroundRGB);
+    }
+
+    public synchronized void printRun(int [] aCodePoints, int aLength, int aX, int aY, long aAttr) {
+        int columns = 0;
+        for (int i = 0; i < aLength; i++) {
+            columns += TextUtils.getCharWidth(aCodePoints[i]);
+        }
+        _pending.print(new String(aCodePoints, 0, aLength), aX, aY, columns, 1, aAttr);
+        _inFrame = true;
+    }
+
+    public synchronized void drawGlyphs(int aGlyph, int aX, int aY, int aLength, long aAttr) {
+        _pending.fill(aX, aY, aLength, 1, aGlyph, aAttr);
+        _inFrame = true;
+    }
+
+    /**
+     * Sends the frame, if the connection has sent the previous ones, otherwise the frame is skipped
+     */
+    public synchronized void refresh() {
+        _inFrame = false;
+        if (isOutputPending()) {
+            _framePending = true;
+            _framesSkipped++;
+            return;
+        }
+        sendFrame();
+    }
+
+    /**
+     * Tells the backend, that the queue of the connection is empty. If frames were skipped meanwhile, the difference between the
+     * latest screen and the screen last sent is sent now. Called by the owner of the connection, never while it holds a lock,
+     * that it takes in <code>isOutputPending</code> or while writing the stream.
+     */
+    public synchronized void outputDrained() {
+        if (_framePending && ! _inFrame && ! isOutputPending()) {
+            sendFrame();
+        }
+    }
+
+    private void sendFrame() {
+        _framePending = false;
+        if (_pending.isDirty()) {
+            _pending.flush(_encoder);
+        }
+        _encoder.refresh();
+        _framesSent++;
+    }
+
+    /**
+     * @return    the number of frames sent to the client
+     */
+    public synchronized long getFramesSent() {
+        return _framesSent;
+    }
+
+    /**
+     * @return    the number of frames skipped, because the client hadn't received the previous ones yet
+     */
+    public synchronized long getFramesSkipped() {
+        return _framesSkipped;
+    }
+
+    /**
+     * @return    the number of bytes written to the stream
+     */
+    public long getBytesWritten() {
+        return _encoder.getBytesWritten();
+    }
+
+    /**
+     * Queues raw input of the terminal, as much as fits into the input queue. If not all bytes fit, <code>inputConsumed</code>
+     * is called, when space is available again.
+     *
+     * @param  aBytes   the bytes in the terminal encoding
+     * @param  aOffset  the index of the first byte
+     * @param  aLength  the number of bytes
+     * @return          the number of bytes queued
+     */
+    public int queueInput(byte [] aBytes, int aOffset, int aLength) {
+        _inputLock.lock();
+        try {
+            int count = Math.min(aLength, _input.length - _inputCount);
+
+            for (int i = 0; i < count; i++) {
+                _input[(_inputHead + _inputCount) % _input.length] = aBytes[aOffset + i] & 0xff;
+                _inputCount++;
+            }
+
+            if (count < aLength) {
+                _inputBlocked = true;
+            }
+            if (count > 0) {
+                _inputChanged.signalAll();
+            }
+            return count;
+        } finally {
+            _inputLock.unlock();
+        }
+    }
+
+    public int readInput(int [] aBuffer, int aOffset, int aLength) {
+        int count = 0;
+        boolean consumed;
+
+        _inputLock.lock();
+        try {
+            if (_resizePending && (aLength > 0)) {
+                _resizePending = false;
+                aBuffer[aOffset + count++] = KEY_RESIZE;
+            }
+
+            while ((count < aLength) && (_inputCount > 0)) {
+                aBuffer[aOffset + count++] = _input[_inputHead];
+                _inputHead = (_inputHead + 1) % _input.length;
+                _inputCount--;
+            }
+
+            consumed = _inputBlocked && (_inputCount < _input.length);
+            if (consumed) {
+                _inputBlocked = false;
+            }
+        } finally {
+            _inputLock.unlock();
+        }
+
+        if (consumed) {
+            inputConsumed();
+        }
+        return count;
+    }
+
+    public boolean waitForInput(int aTimeout) {
+        _inputLock.lock();
+        try {
+            long deadline = System.currentTimeMillis() + aTimeout;
+
+            while ((_inputCount == 0) && ! _resizePending && ! _wakeupPending) {
+                long remaining = (aTimeout < 0) ? 0 : deadline - System.currentTimeMillis();
+                if ((aTimeout >= 0) && (remaining <= 0)) {
+                    return false;
+                }
+                try {
+                    if (remaining > 0) {
+                        _inputChanged.await(remaining, TimeUnit.MILLISECONDS);
+                    } else {
+                        _inputChanged.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+
+            _wakeupPending = false;
+            return (_inputCount > 0) || _resizePending;
+        } finally {
+            _inputLock.unlock();
+        }
+    }
+
+    public void wakeup() {
+        _inputLock.lock();
+        try {
+            _wakeupPending = true;
+            _inputChanged.signalAll();
+        } finally {
+            _inputLock.unlock();
+        }
+    }
+
+    public boolean isNativeWait() {
+        return false;
+    }
+
+    public synchronized void beep() {
+        _encoder.beep();
+    }
+}
@@ -0,0 +1,824 @@
+package jcurses.system;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import jcurses.util.Rectangle;
+
+/**
+ * This class represents one terminal driven by jcurses. It owns the terminal backend and the state, that {@link Toolkit} keeps
+ * for it: the virtual screen, the cached screen size, the color pairs, the encoding and the input buffers.
+ * <p>
+ * The static methods of <code>Toolkit</code> operate on the terminal bound to the current thread by <code>setCurrent</code>,
+ * or on the default terminal, if the thread isn't bound to a terminal. Threads inherit the binding of the thread, that has started
+ * them. An application using one terminal never needs this class, the default terminal is created with the backend selected by
+ * <code>Toolkit.setBackend</code> or the system property <code>jcurses.backend</code>. An application serving many terminals in
+ * one JVM creates a terminal for every session, usually through {@link jcurses.widgets.Screen}.
+ *
+ */
+public class Terminal {
+    private static final InheritableThreadLocal<Terminal> __current = new InheritableThreadLocal<Terminal>();
+    private static Terminal __default = null;
+
+    private long [] _attributes = {0 ,0 ,0} ;
+    private long _attributeMask = 0;
+    private short [] _basicColors = {0 ,0 ,0 ,0 ,0 ,0 ,0 ,0} ;
+    private ColorPairAllocator _colorPairs = null;
+    private int _colorCount = 0;
+    private ColorQuantizer _quantizer = null;
+    private boolean _hasColors = false;
+    private boolean _hasDirectColors = false;
+    private volatile String _encoding;
+    private VirtualScreen _screen = null;
+    private volatile int _screenWidth = 0;
+    private volatile int _screenHeight = 0;
+    private int _paintingDepth = 0;
+    private long _refreshCount = 0;
+    private TerminalBackend _backend;
+    private volatile boolean _initialized = false;
+
+    /**
+     * Lock for character reading. It is held while waiting for input, so it isn't a monitor, that would pin a virtual input
+     * thread to its carrier thread.
+     */
+    private final ReentrantLock _readLock = new ReentrantLock();
+
+    /**
+     * Milliseconds to wait for the rest of an escape sequence
+     */
+    private volatile int _escapeDelay = 50;
+
+    /**
+     * Ring buffer holding the codes read from the backend, but not yet consumed
+     */
+    private final int [] _inputRing = new int [256];
+    private int _inputHead = 0;
+    private int _inputCount = 0;
+
+    /**
+     * Decoder for escape sequences, and a character decoded ahead, but not yet returned
+     */
+    private final InputDecoder _decoder = new InputDecoder();
+    private InputChar _lookahead = null;
+
+    /**
+     * Decoder for the bytes read from the backend, created for the current encoding on demand
+     */
+    private volatile CodePointDecoder _codePoints = null;
+
+    /**
+     * Milliseconds to wait for the rest of a pasted text, before the paste is taken as finished
+     */
+    private static final int PASTE_TIMEOUT = 1000;
+
+    /**
+     * The constructor
+     *
+     * @param  aBackend  the backend of the terminal, <code>null</code> to create the backend selected by the system property
+     *                   <code>jcurses.backend</code>, when the terminal is initialized
+     */
+    public Terminal(TerminalBackend aBackend) {
+        _backend = aBackend;
+    }
+
+    /**
+     * @return    the terminal used by threads, that aren't bound to a terminal. It is created on the first call.
+     */
+    public static synchronized Terminal getDefault() {
+        if (__default == null) {
+            __default = new Terminal(null);
+        }
+        return __default;
+    }
+
+    /**
+     * @return    the terminal bound to the current thread, or the default terminal, if the thread isn't bound
+     */
+    public static Terminal getCurrent() {
+        Terminal result = __current.get();
+        return (result != null) ? result : getDefault();
+    }
+
+    /**
+     * Binds a terminal to the current thread. The binding is inherited by the threads started by the current thread afterwards.
+     *
+     * @param  aTerminal  the terminal, <code>null</code> to use the default terminal
+     * @return            the terminal bound before, or <code>null</code>, if the thread wasn't bound, to be restored later
+     */
+    public static Terminal setCurrent(Terminal aTerminal) {
+        Terminal result = __current.get();
+        __current.set(aTerminal);
+        return result;
+    }
+
+    /**
+     * Sets the backend. It must be called before the terminal is initialized.
+     *
+     * @param  aBackend  the backend
+     * @throws  IllegalStateException  if the terminal is already initialized
+     */
+    public synchronized void setBackend(TerminalBackend aBackend) {
+        if (_initialized) {
+            throw new IllegalStateException("The terminal is already initialized");
+        }
+        _backend = aBackend;
+    }
+
+    /**
+     * @return    the backend, the terminal is initialized if needed
+     */
+    public TerminalBackend getBackend() {
+        return backend();
+    }
+
+    /**
+     * @return    <code>true</code>, if the terminal is initialized and not shut down
+     */
+    public boolean isInitialized() {
+        return _initialized;
+    }
+
+    /**
+     *  Creates the backend named by the system property <code>jcurses.backend</code>
+     *
+     * @param  aName  the value of the property, <code>null</code> for the default backend
+     * @return        the backend
+     */
+    private static TerminalBackend createBackend(String aName) {
+        if ((aName == null) || aName.equals("ncurses")) {
+            return new NcursesBackend();
+        }
+        if (aName.equals("ansi")) {
+            return new AnsiBackend();
+        }
+        if (aName.equals("headless")) {
+            return new HeadlessBackend();
+        }
+
+        try {
+            return (TerminalBackend) Class.forName(aName).getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new IllegalStateException("The terminal backend " + aName + " can't be created", e);
+        }
+    }
+
+    /**
+     * Initializes the terminal and its backend. Calls after the first one do nothing, until the terminal is shut down. The
+     * terminal is bound to the current thread while the backend is initialized.
+     *
+     * @throws  IllegalStateException  if the backend can't be created or initialized
+     */
+    public synchronized void init() {
+        if (_initialized) {
+            return;
+        }
+
+        Terminal previous = setCurrent(this);
+        try {
+            if (_backend == null) {
+                _backend = createBackend(System.getProperty(Toolkit.BACKEND_PROPERTY));
+            }
+            _backend.fillBasicColors(_basicColors);
+            _backend.fillAttributes(_attributes);
+            _attributeMask = _attributes[0] | _attributes[1] | _attributes[2];
+            initEncoding();
+            _backend.init();
+            _hasColors = _backend.hasColors();
+            _hasDirectColors = _hasColors && _backend.hasDirectColors();
+            _colorCount = _backend.getColorCount();
+            _colorPairs = new ColorPairAllocator(this, _backend.getColorPairCount() - 1);
+            _quantizer = new ColorQuantizer(_colorCount);
+            _screenWidth = _backend.getScreenWidth();
+            _screenHeight = _backend.getScreenHeight();
+            _screen = new VirtualScreen(_screenWidth, _screenHeight);
+            _initialized = true;
+        } finally {
+            setCurrent(previous);
+        }
+    }
+
+    /**
+     * Shuts the terminal down and restores it to the state before it was initialized
+     */
+    public synchronized void shutdown() {
+        if (_initialized) {
+            _initialized = false;
+            _backend.shutdown();
+        }
+    }
+
+    /**
+     *  Initializes the terminal, if it isn't initialized yet
+     */
+    private void ensureInitialized() {
+        if (! _initialized) {
+            init();
+        }
+    }
+
+    /**
+     * @return    the backend of the initialized terminal
+     */
+    private TerminalBackend backend() {
+        ensureInitialized();
+        return _backend;
+    }
+
+    /**
+     *  Sets the default encoding of the platform, if it differs from the default encoding of java
+     */
+    private void initEncoding() {
+        if (java.io.File.separatorChar == '\\') {
+            setEncoding("CP850");
+        }
+    }
+
+    /**
+     * Sets the java encoding for string input and output operations
+     *
+     * @param  aEncoding  the encoding, <code>null</code> for the default encoding
+     */
+    public void setEncoding(String aEncoding) {
+        _encoding = aEncoding;
+        _codePoints = null;
+    }
+
+    /**
+     * @return    the java encoding used by string input and output operations
+     */
+    public String getEncoding() {
+        return _encoding;
+    }
+
+    /**
+     * @return    the cached screen width
+     */
+    public int getScreenWidth() {
+        ensureInitialized();
+        return _screenWidth;
+    }
+
+    /**
+     * @return    the cached screen height
+     */
+    public int getScreenHeight() {
+        ensureInitialized();
+        return _screenHeight;
+    }
+
+    /**
+     *  Reads the terminal size after a resize. If it has changed, the virtual screen is resized and its content is discarded,
+     *  so everything must be painted again.
+     *
+     * @return    <code>true</code>, if the size has changed
+     */
+    private synchronized boolean updateScreenSize() {
+        int width = _backend.getScreenWidth();
+        int height = _backend.getScreenHeight();
+
+        if ((width == _screenWidth) && (height == _screenHeight)) {
+            return false;
+        }
+
+        _screenWidth = width;
+        _screenHeight = height;
+        _screen.resize(width, height);
+        return true;
+    }
+
+    /**
+     * Makes an audio alert
+     */
+    public void beep() {
+        backend().beep();
+    }
+
+    /**
+     * @return    <code>true</code>, if the terminal can paint colors
+     */
+    public boolean hasColors() {
+        ensureInitialized();
+        return _hasColors;
+    }
+
+    /**
+     * @return    the number of colors, the terminal supports
+     */
+    public int getColorCount() {
+        ensureInitialized();
+        return _colorCount;
+    }
+
+    /**
+     * Starts a painting action, see {@link Toolkit#startPainting}
+     */
+    synchronized void startPainting() {
+        _paintingDepth++;
+    }
+
+    /**
+     * Ends a painting action, see {@link Toolkit#endPainting}
+     */
+    synchronized void endPainting() {
+        if (_paintingDepth > 0) {
+            _paintingDepth--;
+        }
+
+        if (_paintingDepth == 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Suspends the running painting actions, see {@link Toolkit#suspendPainting}
+     *
+     * @return    the depth of the suspended painting actions
+     */
+    synchronized int suspendPainting() {
+        int depth = _paintingDepth;
+        _paintingDepth = 0;
+        flush();
+        return depth;
+    }
+
+    /**
+     * Resumes the painting actions suspended by <code>suspendPainting</code>
+     *
+     * @param  aDepth  the value returned by <code>suspendPainting</code>
+     */
+    synchronized void resumePainting(int aDepth) {
+        _paintingDepth += aDepth;
+    }
+
+    /**
+     * @return    the number of physical screen refreshes since the terminal was initialized
+     */
+    public synchronized long getRefreshCount() {
+        return _refreshCount;
+    }
+
+    /**
+     *  Fills a region of the virtual screen and flushes it, if no painting action is running
+     *
+     * @param  aX      the x coordinate of the top left corner
+     * @param  aY      the y coordinate of the top left corner
+     * @param  aWidth  the width of the region
+     * @param  aHeight the height of the region
+     * @param  aChar   character or glyph code to fill with
+     * @param  aAttr   native attribute word
+     */
+    synchronized void fillRegion(int aX, int aY, int aWidth, int aHeight, int aChar, long aAttr) {
+        ensureInitialized();
+        _screen.fill(aX, aY, aWidth, aHeight, aChar, aAttr);
+        flushIfIdle();
+    }
+
+    /**
+     *  Changes the colors of a region of the virtual screen and flushes it, if no painting action is running
+     *
+     * @param  aX      the x coordinate of the top left corner
+     * @param  aY      the y coordinate of the top left corner
+     * @param  aWidth  the width of the region
+     * @param  aHeight the height of the region
+     * @param  aAttr   native attribute word
+     */
+    synchronized void recolorRegion(int aX, int aY, int aWidth, int aHeight, long aAttr) {
+        ensureInitialized();
+        _screen.recolor(aX, aY, aWidth, aHeight, aAttr);
+        flushIfIdle();
+    }
+
+    /**
+     *  Prints a string into the virtual screen and flushes it, if no painting action is running
+     *
+     * @param  aText    string to be printed
+     * @param  aX       the x coordinate of the string start point
+     * @param  aY       the y coordinate of the string start point
+     * @param  aWidth   the width of bounds rectangle
+     * @param  aHeight  the height of bounds rectangle
+     * @param  aAttr    native attribute word
+     */
+    synchronized void printRegion(String aText, int aX, int aY, int aWidth, int aHeight, long aAttr) {
+        ensureInitialized();
+        _screen.print(aText, aX, aY, aWidth, aHeight, aAttr);
+        flushIfIdle();
+    }
+
+    /**
+     *  Flushes the virtual screen, if no painting action is running
+     */
+    private void flushIfIdle() {
+        if (_paintingDepth == 0) {
+            flush();
+        }
+    }
+
+    /**
+     *  Pushes the cells of the virtual screen, that were changed since the last flush, to the backend and refreshes the
+     *  physical screen once.
+     */
+    private synchronized void flush() {
+        if (! _initialized || ! _screen.isDirty()) {
+            return;
+        }
+
+        if (_screen.flush(_backend) > 0) {
+            _backend.refresh();
+            _refreshCount++;
+        }
+    }
+
+    /**
+     * Sets the time to wait for the rest of an escape sequence, see {@link Toolkit#setEscapeDelay}
+     *
+     * @param  aMillis  the delay in milliseconds
+     */
+    public void setEscapeDelay(int aMillis) {
+        _escapeDelay = Math.max(aMillis, 0);
+    }
+
+    /**
+     * @return    the time in milliseconds to wait for the rest of an escape sequence
+     */
+    public int getEscapeDelay() {
+        return _escapeDelay;
+    }
+
+    /**
+     * Reads the next character, see {@link Toolkit#readCharacter}
+     *
+     * @return    the next character, or <code>null</code> if the method was woken up before a character was read
+     */
+    InputChar readCharacter() {
+        _readLock.lock();
+        try {
+            InputChar result = waitForCharacter(- 1);
+
+            if ((result != null) && (result.getCode() == InputChar.KEY_PASTE_BEGIN)) {
+                result = readPaste();
+            }
+
+            return result;
+        } finally {
+            _readLock.unlock();
+        }
+    }
+
+    /**
+     * Collects the characters up to the end of a bracketed paste into one character of the type <code>KEY_PASTE</code>
+     *
+     * @return    the character containing the pasted text
+     */
+    private InputChar readPaste() {
+        StringBuffer text = new StringBuffer();
+        boolean afterReturn = false;
+
+        while (true) {
+            InputChar next = waitForCharacter(PASTE_TIMEOUT);
+            if ((next == null) || (next.getCode() == InputChar.KEY_PASTE_END)) {
+                break;
+            }
+            if (next.isSpecialCode()) {
+                continue;
+            }
+
+            int c = next.getCode();
+            if (c == '\r') {
+                text.append('\n');
+            } else if ((c != '\n') || ! afterReturn) {
+                text.appendCodePoint(c);
+            }
+            afterReturn = (c == '\r');
+        }
+
+        return new InputChar(InputChar.KEY_PASTE, text.toString());
+    }
+
+    /**
+     * Returns the next decoded character, waiting for input if needed
+     *
+     * @param  aTimeout  the timeout in milliseconds, -1 to wait without timeout
+     * @return           the character, or <code>null</code> if the timeout expired or <code>wakeup</code> was called
+     */
+    private InputChar waitForCharacter(int aTimeout) {
+        InputChar result = decodeAvailable();
+
+        while (result == null) {
+            if (_decoder.isPending()) {
+                // wait for the rest of the sequence, but not longer than the escape delay
+                if (! backend().waitForInput(_escapeDelay)) {
+                    result = _decoder.flush();
+                }
+            } else if (! backend().waitForInput(aTimeout)) {
+                return null;
+            }
+
+            if (result == null) {
+                result = decodeAvailable();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Consumes repetitions of the last character read, see {@link Toolkit#skipRepeats}
+     *
+     * @param  aChar  the character returned by the last call of <code>readCharacter</code>
+     * @param  aMax   the maximal number of characters to consume
+     * @return        the number of consumed characters
+     */
+    int skipRepeats(InputChar aChar, int aMax) {
+        _readLock.lock();
+        try {
+            int result = 0;
+            while (result < aMax) {
+                InputChar next = decodeAvailable();
+                if (next == null) {
+                    break;
+                }
+                if (! next.equals(aChar)) {
+                    _lookahead = next;
+                    break;
+                }
+                result++;
+            }
+            return result;
+        } finally {
+            _readLock.unlock();
+        }
+    }
+
+    /**
+     * Tells, whether input is pending, see {@link Toolkit#hasPendingInput}. While another thread is reading a character, the
+     * input belongs to that thread, so the method returns <code>false</code> instead of waiting for the read lock.
+     *
+     * @return    <code>true</code>, if input is pending
+     */
+    boolean hasPendingInput() {
+        if (! _readLock.tryLock()) {
+            return false;
+        }
+        try {
+            return (_lookahead != null) || (_inputCount > 0) || _decoder.isPending() || fillInputRing();
+        } finally {
+            _readLock.unlock();
+        }
+    }
+
+    /**
+     * Decodes the codes already read, without waiting for more input
+     *
+     * @return    the next complete character, or <code>null</code> if the codes read so far don't complete a character
+     */
+    private InputChar decodeAvailable() {
+        if (_lookahead != null) {
+            InputChar result = _lookahead;
+            _lookahead = null;
+            return result;
+        }
+
+        CodePointDecoder codePoints = _codePoints;
+        if (codePoints == null) {
+            codePoints = new CodePointDecoder(_encoding);
+            _codePoints = codePoints;
+        }
+
+        while (true) {
+            int code = codePoints.poll();
+
+            if (code == - 1) {
+                code = nextCode();
+                if (code == - 1) {
+                    return null;
+                }
+                if (code <= 0xff) {
+                    codePoints.feed(code);
+                    continue;
+                }
+                // a key code generated by the backend
+                code += InputChar.SPECIAL_BASE;
+            }
+
+            if (_decoder.isInterruptedBy(code)) {
+                // the sequence typed before the key code is returned first, the key code is read again afterwards
+                InputChar flushed = _decoder.flush();
+                if (flushed != null) {
+                    unreadCode(code - InputChar.SPECIAL_BASE);
+                    return flushed;
+                }
+            }
+
+            InputChar result = _decoder.feed(code);
+            if ((result != null) && (result.getCode() == InputChar.KEY_RESIZE) && ! updateScreenSize()) {
+                // the size hasn't changed, the event is dropped
+                continue;
+            }
+            if (result != null) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Returns the next code from the ring buffer, the buffer is refilled from the backend, if it is empty
+     *
+     * @return    the next code or -1, if no input is available
+     */
+    private int nextCode() {
+        if (_inputCount == 0 && ! fillInputRing()) {
+            return - 1;
+        }
+
+        int result = _inputRing[_inputHead];
+        _inputHead = (_inputHead + 1) % _inputRing.length;
+        _inputCount--;
+        return result;
+    }
+
+    /**
+     * Puts a code taken with <code>nextCode</code> back to the front of the ring buffer
+     *
+     * @param  aCode  the code
+     */
+    private void unreadCode(int aCode) {
+        _inputHead = (_inputHead + _inputRing.length - 1) % _inputRing.length;
+        _inputRing[_inputHead] = aCode;
+        _inputCount++;
+    }
+
+    /**
+     * Reads all pending codes from the backend into the free part of the ring buffer with one call
+     *
+     * @return    <code>true</code>, if at least one code was read
+     */
+    private boolean fillInputRing() {
+        if (_inputCount == 0) {
+            _inputHead = 0;
+        }
+
+        int tail = (_inputHead + _inputCount) % _inputRing.length;
+        int free = Math.min(_inputRing.length - _inputCount, _inputRing.length - tail);
+        if (free == 0) {
+            return false;
+        }
+
+        int read = backend().readInput(_inputRing, tail, free);
+        _inputCount += read;
+        return read > 0;
+    }
+
+    /**
+     * Wakes up a thread blocked in reading a character from this terminal. May be called from any thread.
+     */
+    public void wakeup() {
+        if (_initialized) {
+            _backend.wakeup();
+        }
+    }
+
+    /**
+     * @return    the terminal color numbers of the basic colors
+     */
+    short [] getBasicColors() {
+        ensureInitialized();
+        return _basicColors;
+    }
+
+    /**
+     * @param  aColor  the color
+     * @return         the color pair of the color, defined on demand. RGB colors are mapped to the palette of this terminal.
+     */
+    short getColorPairNo(CharColor aColor) {
+        ensureInitialized();
+        short background = (aColor.getBackgroundRGB() >= 0) ? _quantizer.quantize(aColor.getBackgroundRGB()) : aColor.getBackground();
+        short foreground = (aColor.getForegroundRGB() >= 0) ? _quantizer.quantize(aColor.getForegroundRGB()) : aColor.getForeground();
+        return _colorPairs.getPair(background, foreground);
+    }
+
+    /**
+     * @return    the generation of the color pairs, that changes every time a color pair is redefined. Generations are unique
+     *            among all terminals, so a color caching its native attribute word resolves it again on another terminal.
+     */
+    int getColorPairGeneration() {
+        ColorPairAllocator colorPairs = _colorPairs;
+        return (colorPairs == null) ? 0 : colorPairs.getGeneration();
+    }
+
+    /**
+     * Returns the area of the screen, that holds cells of the color pairs redefined since the last call. Redefining a pair
+     * changes the colors of its cells already on the physical screen, the owner of the screen must repaint the area, so that
+     * the cells get the colors, they were painted with.
+     *
+     * @return    the bounds of the area, <code>null</code>, if no pair on the screen was redefined
+     */
+    public synchronized Rectangle takeRecoloredArea() {
+        if (! _initialized) {
+            return null;
+        }
+
+        short [] pairs = _colorPairs.takeRedefined();
+        if (pairs == null) {
+            return null;
+        }
+
+        long [] attrs = new long [pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            attrs[i] = _backend.getColorPairAttribute(pairs[i]);
+        }
+        return _screen.findColorPairs(attrs, _attributeMask);
+    }
+
+    /**
+     *  Defines a color pair in the backend
+     *
+     * @param  aBackground  the background color
+     * @param  aForeground  the foreground color
+     * @param  aNumber      the color pair number
+     */
+    void defineColorPair(short aBackground, short aForeground, short aNumber) {
+        backend().initColorPair(mapBasicColor(aBackground), mapBasicColor(aForeground), aNumber);
+    }
+
+    /**
+     *  Maps a jcurses color to the color number of the terminal. The basic colors are mapped to the constants of the backend,
+     *  the other colors are palette indices of the terminal. Colors, that the terminal doesn't support, are replaced by the
+     *  nearest color of its palette.
+     *
+     * @param  aColor  the jcurses color
+     * @return         the terminal color number
+     */
+    short mapBasicColor(short aColor) {
+        if (aColor >= _colorCount) {
+            aColor = _quantizer.reduce(aColor);
+        }
+
+        if (aColor < _basicColors.length) {
+            return _basicColors[aColor];
+        }
+
+        return aColor;
+    }
+
+    /**
+     *  Maps a RGB value to the nearest color of the terminal palette
+     *
+     * @param  aRgb  the RGB value in the form 0xRRGGBB
+     * @return       the color, that can be used with <code>CharColor</code>
+     */
+    short quantizeColor(int aRgb) {
+        ensureInitialized();
+        return _quantizer.quantize(aRgb);
+    }
+
+    /**
+     * @param  aAttr  the jcurses attribute
+     * @return        the attribute word of the backend
+     */
+    long mapAttribute(short aAttr) {
+        ensureInitialized();
+        return _attributes[aAttr];
+    }
+
+    /**
+     *  Computes the native attribute word, that is passed to the backend for painting
+     *
+     * @param  aPair  the color pair number
+     * @param  aAttr  the attributes
+     * @return        the native attribute word
+     */
+    long computeNativeAttribute(short aPair, long aAttr) {
+        return backend().getColorPairAttribute(aPair) | aAttr;
+    }
+
+    /**
+     * @return    <code>true</code>, if the backend paints RGB colors directly, without a color pair
+     */
+    boolean hasDirectColors() {
+        ensureInitialized();
+        return _hasDirectColors;
+    }
+
+    /**
+     *  Computes the native attribute word of RGB colors, that are painted directly
+     *
+     * @param  aBackgroundRGB  the background color in the form 0xRRGGBB
+     * @param  aForegroundRGB  the foreground color in the form 0xRRGGBB
+     * @param  aAttr           the attributes
+     * @return                 the native attribute word
+     */
+    long computeDirectColorAttribute(int aBackgroundRGB, int aForegroundRGB, long aAttr) {
+        return backend().getDirectColorAttribute(aBackgroundRGB, aForegroundRGB) | aAttr;
+    }
+
+    /**
+     *  Redefines one of the basic colors
+     *
+     * @param  aNumber  the basic color
+     * @param  aRed     the red part, 0-1000
+     * @param  aGreen   the green part, 0-1000
+     * @param  aBlue    the blue part, 0-1000
+     */
+    void adjustBaseColor(short aNumber, int aRed, int aGreen, int aBlue) {
+        backend().adjustColor(_basicColors[aNumber], (short) aRed, (short) aGreen, (short) aBlue);
+    }
+}
@@ -0,0 +1,206 @@
+package jcurses.system;
+
+/**
+ * This interface is implemented by the terminal backends of jcurses. A backend performs the platform dependent primitive
+ * operations, that {@link Toolkit} builds on: it initializes and restores the terminal, paints the runs of changed cells
+ * computed by the virtual screen, reads raw input and defines colors. All the painting, clipping, input decoding and color
+ * allocation logic stays in <code>Toolkit</code>, so widgets work unchanged with every backend.
+ * <p>
+ * The backend is selected by the system property <code>jcurses.backend</code>, see {@link Toolkit#setBackend}, the default is
+ * {@link NcursesBackend}.
+ * <p>
+ * The attribute words passed to <code>printRun</code> and <code>drawGlyphs</code> are built by <code>Toolkit</code> as the
+ * bitwise or of one of the values returned by <code>fillAttributes</code> and the value returned by
+ * <code>getColorPairAttribute</code> or <code>getDirectColorAttribute</code>, the layout of the word is up to the backend.
+ *
+ */
+public interface TerminalBackend {
+    /**
+     *  Glyph code of a horizontal line
+     */
+    int GLYPH_HLINE = - 1;
+    /**
+     *  Glyph code of a vertical line
+     */
+    int GLYPH_VLINE = - 2;
+    /**
+     *  Glyph code of a checkboard (thick line) cell
+     */
+    int GLYPH_CKBOARD = - 3;
+    /**
+     *  Glyph code of a lower left corner
+     */
+    int GLYPH_LL_CORNER = - 4;
+    /**
+     *  Glyph code of a lower right corner
+     */
+    int GLYPH_LR_CORNER = - 5;
+    /**
+     *  Glyph code of an upper left corner
+     */
+    int GLYPH_UL_CORNER = - 6;
+    /**
+     *  Glyph code of an upper right corner
+     */
+    int GLYPH_UR_CORNER = - 7;
+
+    /**
+     *  The code returned by <code>readInput</code>, when the terminal was resized. It is the curses <code>KEY_RESIZE</code>.
+     */
+    int KEY_RESIZE = 0632;
+
+    /**
+     * Initializes the terminal. Called once before all other methods except <code>fillBasicColors</code> and
+     * <code>fillAttributes</code>.
+     *
+     * @throws  IllegalStateException  if the terminal can't be initialized
+     */
+    void init();
+
+    /**
+     * Restores the terminal to the state before <code>init</code>
+     */
+    void shutdown();
+
+    /**
+     * @return    the current screen width
+     */
+    int getScreenWidth();
+
+    /**
+     * @return    the current screen height
+     */
+    int getScreenHeight();
+
+    /**
+     * @return    <code>true</code>, if the terminal can paint colors
+     */
+    boolean hasColors();
+
+    /**
+     * @return    the number of colors the terminal supports, usually 8, 16 or 256, 16777216 if it has direct colors, 0 if it has
+     *            no colors
+     */
+    int getColorCount();
+
+    /**
+     * @return    the number of color pairs the terminal supports
+     */
+    int getColorPairCount();
+
+    /**
+     * Stores the terminal color numbers of the eight basic jcurses colors, black, red, green, yellow, blue, magenta, cyan and white
+     *
+     * @param  aColors  the array to fill, of length 8
+     */
+    void fillBasicColors(short [] aColors);
+
+    /**
+     * Stores the attribute words of the jcurses attributes normal, reverse and bold
+     *
+     * @param  aAttributes  the array to fill, of length 3
+     */
+    void fillAttributes(long [] aAttributes);
+
+    /**
+     * Defines a color pair
+     *
+     * @param  aBackground  the terminal color number of the background
+     * @param  aForeground  the terminal color number of the foreground
+     * @param  aNumber      the color pair number, starting with 0
+     */
+    void initColorPair(short aBackground, short aForeground, short aNumber);
+
+    /**
+     * Redefines a terminal color
+     *
+     * @param  aNumber  the terminal color number
+     * @param  aRed     the red part, 0-1000
+     * @param  aGreen   the green part, 0-1000
+     * @param  aBlue    the blue part, 0-1000
+     */
+    void adjustColor(short aNumber, short aRed, short aGreen, short aBlue);
+
+    /**
+     * @param  aPair  the color pair number
+     * @return        the attribute word selecting the color pair
+     */
+    long getColorPairAttribute(short aPair);
+
+    /**
+     * @return    <code>true</code>, if the terminal paints RGB colors directly, without a color pair
+     */
+    boolean hasDirectColors();
+
+    /**
+     * Returns the attribute word selecting RGB colors. Called only, if <code>hasDirectColors</code> returns <code>true</code>.
+     *
+     * @param  aBackgroundRGB  the background color in the form 0xRRGGBB
+     * @param  aForegroundRGB  the foreground color in the form 0xRRGGBB
+     * @return                 the attribute word selecting the colors
+     */
+    long getDirectColorAttribute(int aBackgroundRGB, int aForegroundRGB);
+
+    /**
+     * Prints a run of characters with the same attributes in one screen row. The output may be buffered until <code>refresh</code>.
+     *
+     * @param  aCodePoints  the code points of the characters, only the first <code>aLength</code> are valid
+     * @param  aLength      the number of characters to print
+     * @param  aX           the x coordinate of the first character
+     * @param  aY           the y coordinate of the row
+     * @param  aAttr        the attribute word of the run
+     */
+    void printRun(int [] aCodePoints, int aLength, int aX, int aY, long aAttr);
+
+    /**
+     * Draws a run of identical line drawing glyphs in one screen row. The output may be buffered until <code>refresh</code>.
+     *
+     * @param  aGlyph   the glyph code, one of the <code>GLYPH_</code> constants
+     * @param  aX       the x coordinate of the first cell
+     * @param  aY       the y coordinate of the row
+     * @param  aLength  the number of cells
+     * @param  aAttr    the attribute word of the run
+     */
+    void drawGlyphs(int aGlyph, int aX, int aY, int aLength, long aAttr);
+
+    /**
+     * Makes everything printed since the last refresh visible on the physical screen
+     */
+    void refresh();
+
+    /**
+     * Reads the input available without blocking. Every element is either a byte of the input in the terminal encoding or a
+     * key code above 0xff, for example <code>KEY_RESIZE</code>.
+     *
+     * @param  aBuffer  the buffer to store the codes in
+     * @param  aOffset  the index of the first code to store
+     * @param  aLength  the maximal number of codes to read
+     * @return          the number of codes read
+     */
+    int readInput(int [] aBuffer, int aOffset, int aLength);
+
+    /**
+     * Blocks until input is available, the timeout expires or <code>wakeup</code> is called
+     *
+     * @param  aTimeout  the timeout in milliseconds, -1 to wait without timeout
+     * @return           <code>true</code>, if input is available
+     */
+    boolean waitForInput(int aTimeout);
+
+    /**
+     * Wakes up a thread blocked in <code>waitForInput</code>. May be called from any thread.
+     */
+    void wakeup();
+
+    /**
+     * @return    <code>true</code>, if <code>waitForInput</code> blocks in native code. The input thread of such a backend is a
+     *            platform thread. A backend waiting with the locks of <code>java.util.concurrent</code> returns
+     *            <code>false</code>, its input may be read by a virtual thread.
+     */
+    boolean isNativeWait();
+
+    /**
+     * Makes an audio alert, if the terminal supports it
+     */
+    void beep();
+}
@@ -1,9 +1,6 @@
 
 package jcurses.system;
 
-import java.io.UnsupportedEncodingException;
-import java.util.ArrayList;
-import java.util.Hashtable;
 import java.util.List;
 
 import jcurses.util.Rectangle;
@@ -13,6 +10,14 @@ import jcurses.util.TextUtils;
  * This class is the 'work factory' of the jcurses library. It contains methods for primitive input and output operations and is only interface
  * to platform dependent libraries. A developer must not usually call methods of this class. These methods are used in implementing widgets
  * and in jcurses core.
+ * <p>
+ * The platform dependent operations are performed by a {@link TerminalBackend}. The backend is chosen, when the toolkit is
+ * initialized, by <code>setBackend</code> or the system property <code>jcurses.backend</code>, that contains
+ * <code>ncurses</code>, <code>ansi</code>, <code>headless</code> or the name of a class implementing <code>TerminalBackend</code>. The toolkit is initialized by
+ * <code>init</code> or implicitly by the first operation, that needs the terminal.
+ * <p>
+ * All methods operate on the {@link Terminal} bound to the current thread, or on the default terminal, so one JVM can drive
+ * several terminals, each from its own threads. The clip rectangles are kept per thread.
  *
  */
 @SuppressWarnings("rawtypes")
@@ -43,69 +48,32 @@ public class Toolkit {
     public static final short UR_CORNER = 5;
 
     
-    private static long []__attributes = {0 ,0 ,0} ;
-    private static short []__basicColors = {0 ,0 ,0 ,0 ,0 ,0 ,0 ,0} ;
-    private static short [][]__colorpairs = new short [8][8];
-    private static Hashtable __clips = new Hashtable();
-    private static short __maxColorPairNumber = - 1;
-    private static String __encoding;
-    // private static final String JAR_RESOURCE         = "jar:file:";
-    // private static final String FILE_RESOURCE        = "file:";
-    private static final String LIBRARY_NAME = "jcurses";
-
-    static {
-    	List<String> searchPaths = new ArrayList<String>();
-    	final String osName = System.getProperty("os.name").toLowerCase();
-    	String libExtension = null;
-		if (osName.indexOf("linux") >= 0) {
-    		libExtension = ".so";
-		} else if (osName.indexOf("win") >= 0) {
-    		libExtension = ".dll";
-		} else if (osName.indexOf("mac") >= 0) {
-    		libExtension = ".jnilib"; // TODO not sure
-    	}
-    	// $PWD/jcurses.so
-    	searchPaths.add(System.getProperty("user.dir") + "/" + LIBRARY_NAME + libExtension);
-    	// $PWD/libjcurses.so
-    	searchPaths.add(System.getProperty("user.dir") + "/lib" + LIBRARY_NAME + libExtension);
-    	// $PWD/lib/jcurses.so
-    	searchPaths.add(System.getProperty("user.dir") + "/lib/" + LIBRARY_NAME + libExtension);
-    	// $PWD/lib/libjcurses.so
-    	searchPaths.add(System.getProperty("user.dir") + "/lib/lib" + LIBRARY_NAME + libExtension);
-
-    	// $HOME/jcurses.so
-    	searchPaths.add(System.getProperty("user.home") + "/" + LIBRARY_NAME + libExtension);
-    	// $HOME/libjcurses.so
-    	searchPaths.add(System.getProperty("user.home") + "/lib" + LIBRARY_NAME + libExtension);
-    	// $PWD/.local/lib/jcurses.so
-    	searchPaths.add(System.getProperty("user.home") + ".local/lib/" + LIBRARY_NAME + libExtension);
-    	// $PWD/.local/lib/libjcurses.so
-    	searchPaths.add(System.getProperty("user.home") + ".local/lib/lib" + LIBRARY_NAME + libExtension);
-
-    	
-    	boolean foundInPath = false;
-		for (String sp : searchPaths) {
-    		try {
-    			System.load(sp);
-    			foundInPath = true;
-    		} catch (UnsatisfiedLinkError e) {
-    			System.out.println("Not found in " + sp);
-    		}
-    	}
-		if (!foundInPath) {
-			try {
-				System.loadLibrary(LIBRARY_NAME);
-			} catch (UnsatisfiedLinkError e) {
-				System.out.println("Found Library neither in the default search paths, not in the java.system.path. Stopping");
-				System.exit(-1);
-			}
-		}
-        // loadLibrary();
-        fillBasicColors(__basicColors);
-        fillAttributes(__attributes);
-        fillColorPairs();
-        initEncoding();
-        init();
+    private static final ThreadLocal<ClipStack> __clips = new ThreadLocal<ClipStack>() {
+        protected ClipStack initialValue() {
+            return new ClipStack();
+        }
+    };
+
+    /**
+     *  The name of the system property selecting the terminal backend
+     */
+    public static final String BACKEND_PROPERTY = "jcurses.backend";
+
+    /**
+     * The method sets the terminal backend. It must be called before the toolkit is initialized.
+     *
+     * @param  aBackend  the backend
+     * @throws  IllegalStateException  if the toolkit is already initialized
+     */
+    public static void setBackend(TerminalBackend aBackend) {
+        Terminal.getCurrent().setBackend(aBackend);
+    }
+
+    /**
+     * @return    the terminal backend, the toolkit is initialized if needed
+     */
+    public static TerminalBackend getBackend() {
+        return Terminal.getCurrent().getBackend();
     }
 
     /**
@@ -116,16 +84,10 @@ public class Toolkit {
      *
      * @param  clipRect  clip rectangle to be set
      */ 
-    @SuppressWarnings("unchecked")
-	public static void setClipRectangle(Rectangle clipRect) {
-        ArrayList clips = (ArrayList) __clips.get(Thread.currentThread());
-
-        if (clips == null) {
-            clips = new ArrayList();
-            __clips.put(Thread.currentThread(), clips);
-        }
+    public static void setClipRectangle(Rectangle clipRect) {
+        __clips.get().push(clipRect.getX(), clipRect.getY(),
+                 clipRect.getWidth(), clipRect.getHeight());
 
-        clips.add(clipRect);
     }
 
     /**
@@ -135,7 +97,7 @@ public class Toolkit {
      * @param  encoding  DOCUMENT ME!
      */ 
     public static void setEncoding(String encoding) {
-        __encoding = encoding;
+        Terminal.getCurrent().setEncoding(encoding);
     }
 
     /**
@@ -145,29 +107,37 @@ public class Toolkit {
      * @return    the java encoding used by sring input and output operations
      */ 
     public static String getEncoding() {
-        return __encoding;
+        return Terminal.getCurrent().getEncoding();
     }
 
     /**
-     * The method returns the screen height
+     * The method returns the screen height. The size is cached, it is updated when the terminal reports a resize, see
+     * <code>InputChar.KEY_RESIZE</code>.
      *
      *
      * @return    the screen height
      */ 
-    public static synchronized native int getScreenHeight();
+    public static int getScreenHeight() {
+        return Terminal.getCurrent().getScreenHeight();
+    }
 
     /**
-     * The method returns the screen width
+     * The method returns the screen width. The size is cached, it is updated when the terminal reports a resize, see
+     * <code>InputChar.KEY_RESIZE</code>.
      *
      *
      * @return    the screen height
      */ 
-    public static synchronized native int getScreenWidth();
+    public static int getScreenWidth() {
+        return Terminal.getCurrent().getScreenWidth();
+    }
 
     /**
      * The method to make an audio alert. Works only with terminals, that support 'beeps', under windows currenty does nothing.
      */ 
-    public static synchronized native void beep();
+    public static void beep() {
+        Terminal.getCurrent().beep();
+    }
 
     /**
      * The method changes the background and the foreground colors of an given rectangle on the schreen
@@ -177,15 +147,15 @@ public class Toolkit {
      * @param  aColor  new colors
      */ 
     public static void changeColors(Rectangle aRect, CharColor aColor) {
-        Rectangle clipRect = getCurrentClipRectangle();
-
-        if (clipRect != null) {
-            aRect = aRect.intersection(clipRect);
-        }
+        ClipStack mClip = __clips.get();
+        int mLeft = Math.max(aRect.getLeft(), mClip.getLeft());
+        int mTop = Math.max(aRect.getTop(), mClip.getTop());
+        int mRight = Math.min(aRect.getRight(), mClip.getRight());
+        int mBottom = Math.min(aRect.getBottom(), mClip.getBottom());
 
-        if (! aRect.isEmpty()) {
-            changeColors(aRect.getX(), aRect.getY(), aRect.getWidth(),
-                     aRect.getHeight(), aColor.getPairNo(), aColor.getAttribute());
+        if (mLeft <= mRight && mTop <= mBottom) {
+            recolorRegion(mLeft, mTop, mRight - mLeft + 1, mBottom - mTop + 1,
+                     aColor.getNativeAttribute());
 
         }
     }
@@ -197,7 +167,9 @@ public class Toolkit {
      * @param  color  color the color to fill the screen, only background part is used
      */ 
     public static void clearScreen(CharColor color) {
-        clearScreen(color.getPairNo(), color.getAttribute());
+        fillRegion(0, 0, getScreenWidth(), getScreenHeight(), ' ',
+                 color.getNativeAttribute());
+
     }
 
     /**
@@ -230,19 +202,18 @@ public class Toolkit {
              CharColor aColor) {
 
 
-        short mPair = aColor.getPairNo();
-        long mAttr = aColor.getAttribute();
+        long mAttr = aColor.getNativeAttribute();
 
-        drawCornerClip(aX, aY, UL_CORNER, mPair, mAttr);
+        startPainting();
+        drawCornerClip(aX, aY, UL_CORNER, mAttr);
         drawVLineClip(aX, aY + 1, aY + aHeight - 2, aColor);
         drawHLineClip(aX + 1, aY, aX + aWidth - 2, aColor);
-        drawCornerClip(aX + aWidth - 1, aY, UR_CORNER, mPair, mAttr);
+        drawCornerClip(aX + aWidth - 1, aY, UR_CORNER, mAttr);
         drawVLineClip(aX + aWidth - 1, aY + 1, aY + aHeight - 2, aColor);
-        drawCornerClip(aX, aY + aHeight - 1, LL_CORNER, mPair, mAttr);
+        drawCornerClip(aX, aY + aHeight - 1, LL_CORNER, mAttr);
         drawHLineClip(aX + 1, aY + aHeight - 1, aX + aWidth - 1, aColor);
-        drawCornerClip(aX + aWidth - 1, aY + aHeight - 1, LR_CORNER, mPair,
-                 mAttr);
-
+        drawCornerClip(aX + aWidth - 1, aY + aHeight - 1, LR_CORNER, mAttr);
+        endPainting();
 
     }
 
@@ -252,32 +223,33 @@ public class Toolkit {
      * @param  aX     the x coordinate of the top left corner of the clip to be painted
      * @param  aY     the y coordinate of the top left corner of the clip to be painted
      * @param  aPos   Position enum (UL,LL,UR,LR)
-     * @param  mPair  Color pair number
-     * @param  mAttr  Attribute
+     * @param  mAttr  native attribute word
      */ 
-    private static void drawCornerClip(int aX, int aY, int aPos, short mPair,
-             long mAttr) {
-
-        Rectangle mClip = getCurrentClipRectangle();
-        if (mClip == null || (isBetween(aX, mClip.getLeft(),
-                 mClip.getRight()) && isBetween(aY, mClip.getTop(), mClip.getBottom()))) {
+    private static void drawCornerClip(int aX, int aY, int aPos, long mAttr) {
 
-            drawCorner(aX, aY, aPos, mPair, mAttr);
+        if (__clips.get().contains(aX, aY)) {
+            fillRegion(aX, aY, 1, 1, getCornerGlyph(aPos), mAttr);
         }
     }
 
     /**
-     *  The method draws a corner
+     *  Maps a corner position to the glyph code used by the virtual screen
      *
-     * @param  aX     the x coordinate of the top left corner of the clip to be painted
-     * @param  aY     the y coordinate of the top left corner of the clip to be painted
-     * @param  aPos   Position enum (UL,LL,UR,LR)
-     * @param  mPair  Color pair number
-     * @param  mAttr  Attribute
-     */ 
-    private static synchronized native void drawCorner(int aX, int aY,
-             int aPos, short colorPairNumber, long attr);
-
+     * @param  aPos  Position enum (UL,LL,UR,LR)
+     * @return       the glyph code
+     */
+    private static int getCornerGlyph(int aPos) {
+        switch (aPos) {
+            case LL_CORNER:
+                return VirtualScreen.LL_CORNER;
+            case LR_CORNER:
+                return VirtualScreen.LR_CORNER;
+            case UL_CORNER:
+                return VirtualScreen.UL_CORNER;
+            default:
+                return VirtualScreen.UR_CORNER;
+        }
+    }
 
     /**
      * The method draws a horizontal line
@@ -291,18 +263,14 @@ public class Toolkit {
     public static void drawHLineClip(int startX, int startY, int endX,
              CharColor color) {
 
-        Rectangle mClip = getCurrentClipRectangle();
+        ClipStack mClip = __clips.get();
+        startX = Math.max(startX, mClip.getLeft());
+        endX = Math.min(endX, mClip.getRight());
 
-        if (mClip != null) {
-            startX = Math.max(startX, mClip.getLeft());
-            endX = Math.min(endX, mClip.getRight());
-        }
+        if (isBetween(startY, mClip.getTop(), mClip.getBottom()) && startX <= endX) {
 
-        if (mClip == null || (isBetween(startY, mClip.getTop(),
-                 mClip.getBottom()) && startX <= mClip.getRight() && endX >= mClip.getLeft())) {
-
-            drawHorizontalLine(startX, startY, endX, color.getPairNo(),
-                     color.getAttribute());
+            fillRegion(startX, startY, endX - startX + 1, 1, VirtualScreen.HLINE,
+                     color.getNativeAttribute());
 
         }
     }
@@ -319,18 +287,14 @@ public class Toolkit {
     public static void drawHorizontalThickLine(int startX, int startY,
              int endX, CharColor color) {
 
-        Rectangle mClip = getCurrentClipRectangle();
-
-        if (mClip != null) {
-            startX = Math.max(startX, mClip.getLeft());
-            endX = Math.min(endX, mClip.getRight());
-        }
+        ClipStack mClip = __clips.get();
+        startX = Math.max(startX, mClip.getLeft());
+        endX = Math.min(endX, mClip.getRight());
 
-        if (mClip == null || (isBetween(startY, mClip.getTop(),
-                 mClip.getBottom()) && startX <= mClip.getRight() && endX >= mClip.getLeft())) {
+        if (isBetween(startY, mClip.getTop(), mClip.getBottom()) && startX <= endX) {
 
-            drawHorizontalThickLine(startX, startY, endX, color.getPairNo(),
-                     color.getAttribute());
+            fillRegion(startX, startY, endX - startX + 1, 1, VirtualScreen.CKBOARD,
+                     color.getNativeAttribute());
 
         }
     }
@@ -360,7 +324,10 @@ public class Toolkit {
     public static void drawRectangle(int aX, int aY, int aWide, int aHigh,
              CharColor aColor) {
 
-        drawRectangle(aX, aY, aWide, aHigh, getCurrentClipRectangle(), aColor);
+        ClipStack mClip = __clips.get();
+        fillClipped(aX, aY, aWide, aHigh, mClip.getLeft(), mClip.getTop(),
+                 mClip.getRight(), mClip.getBottom(), aColor);
+
     }
 
     /**
@@ -378,20 +345,39 @@ public class Toolkit {
              Rectangle aClip, CharColor aColor) {
 
         if (aClip == null) {
-            drawRectangle(aX, aY, aWide, aHigh, aColor.getPairNo(),
-                     aColor.getAttribute());
+            fillRegion(aX, aY, aWide, aHigh, ' ', aColor.getNativeAttribute());
 
         } else {
-            int mX = Math.max(aX, aClip.getLeft());
-            int mY = Math.max(aY, aClip.getTop());
-            int mWide = Math.min(aWide, aClip.getRight() - mX + 1);
-            int mHigh = Math.min(aHigh, aClip.getBottom() - mY + 1);
+            fillClipped(aX, aY, aWide, aHigh, aClip.getLeft(), aClip.getTop(),
+                     aClip.getRight(), aClip.getBottom(), aColor);
 
-            if (mWide > 0 && mHigh > 0) {
-                drawRectangle(mX, mY, mWide, mHigh, aColor.getPairNo(),
-                         aColor.getAttribute());
+        }
+    }
+
+    /**
+     *  Fills a rectangle constrained within clip bounds with the background part of <code>color</code>
+     *
+     * @param  aX        the x coordinate of the top left corner of the rectangle to be painted
+     * @param  aY        the y coordinate of the top left corner of the rectangle to be painted
+     * @param  aWide     the width of the rectangle to be painted
+     * @param  aHigh     the height of the rectangle to be painted
+     * @param  aLeft     the leftmost column of the clip
+     * @param  aTop      the topmost row of the clip
+     * @param  aRight    the rightmost column of the clip
+     * @param  aBottom   the bottom row of the clip
+     * @param  aColor    color to fill the rectangle, only background part is used
+     */ 
+    private static void fillClipped(int aX, int aY, int aWide, int aHigh,
+             int aLeft, int aTop, int aRight, int aBottom, CharColor aColor) {
+
+        int mX = Math.max(aX, aLeft);
+        int mY = Math.max(aY, aTop);
+        int mWide = Math.min(aX + aWide - 1, aRight) - mX + 1;
+        int mHigh = Math.min(aY + aHigh - 1, aBottom) - mY + 1;
+
+        if (mWide > 0 && mHigh > 0) {
+            fillRegion(mX, mY, mWide, mHigh, ' ', aColor.getNativeAttribute());
 
-            }
         }
     }
 
@@ -407,18 +393,14 @@ public class Toolkit {
     public static void drawVLineClip(int startX, int startY, int endY,
              CharColor color) {
 
-        Rectangle mClip = getCurrentClipRectangle();
+        ClipStack mClip = __clips.get();
+        startY = Math.max(startY, mClip.getTop());
+        endY = Math.min(endY, mClip.getBottom());
 
-        if (mClip != null) {
-            startY = Math.max(startY, mClip.getTop());
-            endY = Math.min(endY, mClip.getBottom());
-        }
+        if (isBetween(startX, mClip.getLeft(), mClip.getRight()) && startY <= endY) {
 
-        if (mClip == null || (isBetween(startX, mClip.getLeft(),
-                 mClip.getRight()) && startY <= mClip.getBottom() && endY >= mClip.getTop())) {
-
-            drawVerticalLine(startX, startY, endY, color.getPairNo(),
-                     color.getAttribute());
+            fillRegion(startX, startY, 1, endY - startY + 1, VirtualScreen.VLINE,
+                     color.getNativeAttribute());
 
         }
     }
@@ -435,27 +417,26 @@ public class Toolkit {
     public static void drawVerticalThickLine(int startX, int startY, int endY,
              CharColor color) {
 
-        Rectangle mClip = getCurrentClipRectangle();
-
-        if (mClip != null) {
-            startY = Math.max(startY, mClip.getTop());
-            endY = Math.min(endY, mClip.getBottom());
-        }
+        ClipStack mClip = __clips.get();
+        startY = Math.max(startY, mClip.getTop());
+        endY = Math.min(endY, mClip.getBottom());
 
-        if (mClip == null || (isBetween(startX, mClip.getLeft(),
-                 mClip.getRight()) && startY <= mClip.getBottom() && endY >= mClip.getTop())) {
+        if (isBetween(startX, mClip.getLeft(), mClip.getRight()) && startY <= endY) {
 
-            drawVerticalThickLine(startX, startY, endY, color.getPairNo(),
-                     color.getAttribute());
+            fillRegion(startX, startY, 1, endY - startY + 1, VirtualScreen.CKBOARD,
+                     color.getNativeAttribute());
 
         }
     }
 
     /**
      * The method ends a new painting action, containing possible many painting operations The call of this method must already follow a call of
-     * <code>startPainting</code>
+     * <code>startPainting</code>. Ending the outermost painting action flushes the virtual screen and refreshes the physical screen exactly
+     * once. Callers should end a painting action in a <code>finally</code> block, so that an exception doesn't leave the screen frozen.
      */ 
-    public static synchronized native void endPainting();
+    public static void endPainting() {
+        Terminal.getCurrent().endPainting();
+    }
 
     /**
      * The method tells whether a terminal is color-capable.
@@ -464,13 +445,18 @@ public class Toolkit {
      * @return    <code>true</code> if the terminal can do color painting, <code>false</code> otherwise.
      */ 
     public static boolean hasColors() {
-        return (hasColorsAsInteger() != 0);
+        return Terminal.getCurrent().hasColors();
     }
 
     /**
-     * The method initializes the jcurses library, must be called only one time before all painting and input operations.
+     * The method initializes the jcurses library and the terminal backend. Calls after the first one do nothing, until the
+     * library is shut down.
+     *
+     * @throws  IllegalStateException  if the backend can't be created or initialized
      */ 
-    public static synchronized native void init();
+    public static void init() {
+        Terminal.getCurrent().init();
+    }
 
     /**
      * The method prints a string on the screen
@@ -502,8 +488,9 @@ public class Toolkit {
     public static void printString(String aText, int aX, int aY, int aWide,
              int aHigh, CharColor aColor) {
 
-        printString(aText, aX, aY, aWide, aHigh, getCurrentClipRectangle(),
-                 aColor);
+        ClipStack mClip = __clips.get();
+        printClipped(aText, aX, aY, aWide, aHigh, mClip.getLeft(), mClip.getTop(),
+                 mClip.getRight(), mClip.getBottom(), aColor);
 
     }
 
@@ -526,29 +513,58 @@ public class Toolkit {
     public static void printString(String aText, int aX, int aY, int aWide,
              int aHigh, Rectangle aClip, CharColor aColor) {
 
-        int mX = (aClip == null) ? aX : Math.max(aX, aClip.getLeft());
-        int mY = (aClip == null) ? aY : Math.max(aY, aClip.getTop());
+        if (aClip == null) {
+            printClipped(aText, aX, aY, aWide, aHigh, ClipStack.UNLIMITED_MIN,
+                     ClipStack.UNLIMITED_MIN, ClipStack.UNLIMITED_MAX,
+                     ClipStack.UNLIMITED_MAX, aColor);
+        } else {
+            printClipped(aText, aX, aY, aWide, aHigh, aClip.getLeft(),
+                     aClip.getTop(), aClip.getRight(), aClip.getBottom(), aColor);
+        }
+    }
+
+    /**
+     *  Prints a string constrained within clip bounds. If the string doesn't fit within the rectangle bounds, it
+     *  wiil be line-broken.
+     *
+     * @param  aText    string to be printed
+     * @param  aX       the x coordinate of the string start point
+     * @param  aY       the y coordinate of the string start point
+     * @param  aWide    the width of bounds rectangle
+     * @param  aHigh    the width of bounds rectangle
+     * @param  aLeft    the leftmost column of the clip
+     * @param  aTop     the topmost row of the clip
+     * @param  aRight   the rightmost column of the clip
+     * @param  aBottom  the bottom row of the clip
+     * @param  aColor   color attributes of the string
+     */ 
+    private static void printClipped(String aText, int aX, int aY, int aWide,
+             int aHigh, int aLeft, int aTop, int aRight, int aBottom, CharColor aColor) {
+
+        int mX = Math.max(aX, aLeft);
+        int mY = Math.max(aY, aTop);
+
+        int mWide = Math.min(aWide, aRight - mX + 1);
+        int mHigh = Math.min(aHigh, aBottom - mY + 1);
+
+        if (mWide <= 0 || mHigh <= 0) {
+            return;
+        }
 
 		List mLines = TextUtils.breakLines(aText, aWide);
         int mFirstLine = mY - aY;
         // clip this many lines at the top
- 
-        int mWide = (aClip == null) ? aWide : Math.min(aWide,
-                 aClip.getRight() - mX + 1);
-
-        int mHigh = (aClip == null) ? aHigh : Math.min(aHigh,
-                 aClip.getBottom() - mY + 1);
 
         mHigh = Math.min(mHigh, mLines.size() - mFirstLine);
         // adjust height of box to max number of lines
  
         if (mWide > 0 && mHigh > 0) {
             int mOffset = mX - aX;
-            // clip this many leftmost characters per line
+            // clip this many leftmost columns per line
             for (int mIdx = 0; mIdx < mHigh; mIdx++) {
                 String mLine = (String) mLines.get(mIdx + mFirstLine);
-                if (mLine.length() > mOffset) {
-                    printStringNoClip(mLine.substring(mOffset), mX, mY + mIdx,
+                if (TextUtils.getDisplayWidth(mLine) > mOffset) {
+                    printStringNoClip(TextUtils.skipColumns(mLine, mOffset), mX, mY + mIdx,
                              mWide, 1, aColor);
 
                 }
@@ -566,71 +582,110 @@ public class Toolkit {
      * @param  color  color attributes of the string
      */ 
     public static void printString(String text, int x, int y, CharColor color) {
-        printString(text, x, y, text.length(), 1, color);
+        printString(text, x, y, TextUtils.getDisplayWidth(text), 1, color);
     }
 
     /**
-     * Target for character read synchronizing
+     * The method sets the time to wait for the rest of an escape sequence. If no code follows an escape within this time, the
+     * escape key is returned by <code>readCharacter</code>. Short delays make the escape key responsive, but may split sequences
+     * sent over slow connections.
+     *
+     * @param  aMillis  the delay in milliseconds
      */ 
-    private static Integer readSync = new Integer(0);
+    public static void setEscapeDelay(int aMillis) {
+        Terminal.getCurrent().setEscapeDelay(aMillis);
+    }
 
     /**
-     * The method reads the next code (ascii or control ) from an input stream an wraps it into an instance of {@link jcurses.system.InputChar}
+     * @return    the time in milliseconds to wait for the rest of an escape sequence
+     */ 
+    public static int getEscapeDelay() {
+        return Terminal.getCurrent().getEscapeDelay();
+    }
+
+    /**
+     * The method reads the next code (ascii or control ) from an input stream an wraps it into an instance of {@link jcurses.system.InputChar}.
+     * The method blocks without consuming cpu time until input is available or another thread calls <code>wakeup</code>.
+     * Escape sequences sent by cursor, editing and function keys are decoded, unknown sequences are skipped. A text pasted into
+     * the terminal is returned as one character of the type <code>KEY_PASTE</code>, see {@link InputChar#getText}.
      *
      *
-     * @return    the next read code
+     * @return    the next read code, or <code>null</code> if the method was woken up before a code was read
      */ 
     public static InputChar readCharacter() {
-        synchronized (readSync) {
-            int mChar = readByte();
-
-            // handle escape sequences
-            if (mChar == 0x1b) {
-                mChar = readByte();
-                if (mChar == - 1) {
-                    mChar = 0x1b;
-                } else {
-                    mChar += 1000;
-                }
-            }
-
-            if (mChar == - 1) {
-                return null;
-            }
+        return Terminal.getCurrent().readCharacter();
+    }
 
-            return new InputChar(mChar);
-        }
+    /**
+     * The method consumes the characters, that are already read from the terminal and immediately follow the last character
+     * returned by <code>readCharacter</code>, as long as they are equal to the given one. It never blocks. It is used to collapse
+     * a run of repeated keys, for example while a cursor key is held down, into one event.
+     *
+     * @param  aChar  the character returned by the last call of <code>readCharacter</code>
+     * @param  aMax   the maximal number of characters to consume
+     * @return        the number of consumed characters
+     */ 
+    public static int skipRepeats(InputChar aChar, int aMax) {
+        return Terminal.getCurrent().skipRepeats(aChar, aMax);
+    }
 
+    /**
+     * The method tells, whether input was typed, that isn't read yet. It never blocks. If it returns <code>true</code>, the next
+     * call of <code>readCharacter</code> returns without waiting for the user, or at most for the escape delay.
+     *
+     * @return    <code>true</code>, if input is pending
+     */ 
+    public static boolean hasPendingInput() {
+        return Terminal.getCurrent().hasPendingInput();
     }
 
     /**
      * The method shuts down the jcurses library and recovers the terminal to the state before jcurses application start.
      */ 
-    public static synchronized native void shutdown();
+    public static void shutdown() {
+        Terminal.getCurrent().shutdown();
+    }
 
     /**
      * The method starts a new painting action, containing possible many painting operations After a call of this method endPainting must be already called, to
-     * refersh the screen.
+     * refersh the screen. Until then all output is collected in the virtual screen only. Painting actions can be nested, only the
+     * outermost one refreshes the screen.
      */ 
-    public static synchronized native void startPainting();
+    public static void startPainting() {
+        Terminal.getCurrent().startPainting();
+    }
 
     /**
-     * Removes the previously set clip rectangle.
+     * The method suspends all running painting actions and refreshes the screen. It is used, if a painting action can't be
+     * finished before waiting for new input, for example if a modal window is shown while handling an input event.
+     *
+     * @return    the depth of the suspended painting actions, to be passed to <code>resumePainting</code>
      */ 
-    public static void unsetClipRectangle() {
-        ArrayList clips = (ArrayList) __clips.get(Thread.currentThread());
+    public static int suspendPainting() {
+        return Terminal.getCurrent().suspendPainting();
+    }
 
-        if (clips == null) {
-            return;
-        }
+    /**
+     * The method resumes the painting actions suspended by <code>suspendPainting</code>
+     *
+     * @param  aDepth  the value returned by <code>suspendPainting</code>
+     */ 
+    public static void resumePainting(int aDepth) {
+        Terminal.getCurrent().resumePainting(aDepth);
+    }
 
-        if (clips.size() > 0) {
-            clips.remove(clips.size() - 1);
-        }
+    /**
+     * @return    the number of physical screen refreshes since the library was initialized
+     */ 
+    public static long getRefreshCount() {
+        return Terminal.getCurrent().getRefreshCount();
+    }
 
-        if (clips.size() == 0) {
-            __clips.remove(Thread.currentThread());
-        }
+    /**
+     * Removes the previously set clip rectangle.
+     */ 
+    public static void unsetClipRectangle() {
+        __clips.get().pop();
     }
 
     /**
@@ -639,17 +694,9 @@ public class Toolkit {
      * @return    The basicColors value
      */ 
     static short []getBasicColors() {
-        return __basicColors;
+        return Terminal.getCurrent().getBasicColors();
     }
 
-    /**
-     *  Gets the specialKeyCode attribute of the Toolkit class
-     *
-     * @param  code  Description of the Parameter
-     * @return       The specialKeyCode value
-     */ 
-    static synchronized native int getSpecialKeyCode(int code);
-
     /**
      *  Gets the colorPairNo attribute of the Toolkit class
      *
@@ -657,75 +704,57 @@ public class Toolkit {
      * @return         The colorPairNo value
      */ 
     static short getColorPairNo(CharColor aColor) {
-        short number = __colorpairs[aColor.getBackground()][aColor.getForeground()];
-        if (number == - 1) {
-            number = ++__maxColorPairNumber;
-            __colorpairs[aColor.getBackground()][aColor.getForeground()] = number;
-            initColorPair(mapBasicColor(aColor.getBackground()),
-                     mapBasicColor(aColor.getForeground()), number);
-
-            //System.err.println("NEW COLOR: [" + aColor.toString() + "] = [" + number + "] {" + mapBasicColor(aColor.getBackground()) + "} {" +
-            // mapBasicColor(aColor.getForeground()) + "}");
-        }
+        return Terminal.getCurrent().getColorPairNo(aColor);
+    }
 
-        //System.err.println("USE COLOR: [" + aColor.toString() + "] = [" + number + "]");
- 
-        return number;
+    /**
+     *  Gets the generation of the color pairs, that changes every time a color pair is redefined. Cached color pair numbers
+     *  are only valid as long as the generation doesn't change.
+     *
+     * @return    the generation of the color pairs
+     */ 
+    static int getColorPairGeneration() {
+        return Terminal.getCurrent().getColorPairGeneration();
     }
 
     /**
-     *  Description of the Method
+     *  Maps a jcurses color to the color number of the terminal. The basic colors are mapped to the curses constants, the other
+     *  colors are palette indices of the terminal. Colors, that the terminal doesn't support, are folded into the basic colors.
      *
-     * @param  aColor  Description of the Parameter
-     * @return         Description of the Return Value
+     * @param  aColor  the jcurses color
+     * @return         the terminal color number
      */ 
     static short mapBasicColor(short aColor) {
-        return __basicColors[aColor];
+        return Terminal.getCurrent().mapBasicColor(aColor);
     }
 
     /**
-     *  Description of the Method
+     *  Maps a RGB value to the nearest color of the terminal palette. The result is cached for every distinct value.
      *
-     * @param  aAttr  Description of the Parameter
-     * @return        Description of the Return Value
+     * @param  aRgb  the RGB value in the form 0xRRGGBB
+     * @return       the color, that can be used with <code>CharColor</code>
      */ 
-    static long mapAttribute(short aAttr) {
-        return __attributes[aAttr];
+    static short quantizeColor(int aRgb) {
+        return Terminal.getCurrent().quantizeColor(aRgb);
     }
 
     /**
-     *  Gets the currentClipRectangle attribute of the Toolkit class
+     * The method returns the number of colors, the terminal supports, usually 8, 16 or 256.
      *
-     * @return    The currentClipRectangle value
+     * @return    the number of colors
      */ 
-    private static Rectangle getCurrentClipRectangle() {
-        ArrayList clips = (ArrayList) __clips.get(Thread.currentThread());
-
-        if ((clips == null) || (clips.size() == 0)) {
-            return null;
-        }
-
-        Rectangle result = (Rectangle) clips.get(0);
-
-        for (int i = 1; i < clips.size(); i++) {
-            Rectangle temp = (Rectangle) clips.get(i);
-            result = result.intersection(temp);
-
-            if (result.isEmpty()) {
-                return result;
-            }
-        }
-
-        return result;
+    public static int getColorCount() {
+        return Terminal.getCurrent().getColorCount();
     }
 
     /**
-     *  Gets the windows attribute of the Toolkit class
+     *  Description of the Method
      *
-     * @return    The windows value
+     * @param  aAttr  Description of the Parameter
+     * @return        Description of the Return Value
      */ 
-    private static boolean isWindows() {
-        return (java.io.File.separatorChar == '\\');
+    static long mapAttribute(short aAttr) {
+        return Terminal.getCurrent().mapAttribute(aAttr);
     }
 
     /**
@@ -746,129 +775,37 @@ public class Toolkit {
     }
 
     /**
-     *  Description of the Method
-     *
-     * @param  x                Description of the Parameter
-     * @param  y                Description of the Parameter
-     * @param  width            Description of the Parameter
-     * @param  height           Description of the Parameter
-     * @param  colorPairNumber  Description of the Parameter
-     * @param  attr             Description of the Parameter
-     */ 
-    private static synchronized native void changeColors(int x, int y,
-             int width, int height, short colorPairNumber, long attr);
-
-
-    /**
-     *  Description of the Method
-     *
-     * @param  colorPairNumber  Description of the Parameter
-     * @param  attributes       Description of the Parameter
-     */ 
-    private static synchronized native void clearScreen(short colorPairNumber,
-             long attributes);
-
-
-    //private static native int computeChtype(short number);
- 
-    /**
-     *  Description of the Method
-     *
-     * @param  startX           Description of the Parameter
-     * @param  startY           Description of the Parameter
-     * @param  endY             Description of the Parameter
-     * @param  colorPairNumber  Description of the Parameter
-     * @param  attr             Description of the Parameter
-     */ 
-    private static synchronized native void drawHorizontalLine(int startX,
-             int startY, int endY, short colorPairNumber, long attr);
-
-
-    /**
-     *  Description of the Method
-     *
-     * @param  startX           Description of the Parameter
-     * @param  startY           Description of the Parameter
-     * @param  endX             Description of the Parameter
-     * @param  colorPairNumber  Description of the Parameter
-     * @param  attr             Description of the Parameter
-     */ 
-    private static synchronized native void drawHorizontalThickLine(int startX,
-             int startY, int endX, short colorPairNumber, long attr);
-
-
-    /**
-     *  Description of the Method
-     *
-     * @param  x                Description of the Parameter
-     * @param  y                Description of the Parameter
-     * @param  width            Description of the Parameter
-     * @param  height           Description of the Parameter
-     * @param  colorPairNumber  Description of the Parameter
-     * @param  attribute        Description of the Parameter
-     */ 
-    private static synchronized native void drawRectangle(int x, int y,
-             int width, int height, short colorPairNumber, long attribute);
-
-
-    /**
-     *  Description of the Method
-     *
-     * @param  startX           Description of the Parameter
-     * @param  startY           Description of the Parameter
-     * @param  endX             Description of the Parameter
-     * @param  colorPairNumber  Description of the Parameter
-     * @param  attr             Description of the Parameter
-     */ 
-    private static synchronized native void drawVerticalLine(int startX,
-             int startY, int endX, short colorPairNumber, long attr);
-
-
-    /**
-     *  Description of the Method
-     *
-     * @param  startX           Description of the Parameter
-     * @param  startY           Description of the Parameter
-     * @param  endY             Description of the Parameter
-     * @param  colorPairNumber  Description of the Parameter
-     * @param  attr             Description of the Parameter
-     */ 
-    private static synchronized native void drawVerticalThickLine(int startX,
-             int startY, int endY, short colorPairNumber, long attr);
-
-
-    /**
-     *  Description of the Method
+     *  Computes the native attribute word, that is passed to the native library for painting
      *
-     * @param  attributes  Description of the Parameter
+     * @param  aPair  the color pair number
+     * @param  aAttr  the attributes
+     * @return        the native attribute word
      */ 
-    private static synchronized native void fillAttributes(long [] attributes);
+    static long computeNativeAttribute(short aPair, long aAttr) {
+        return Terminal.getCurrent().computeNativeAttribute(aPair, aAttr);
+    }
 
     /**
-     *  Description of the Method
+     *  Returns, whether the terminal paints RGB colors directly, without mapping them to its palette
      *
-     * @param  basicColors  Description of the Parameter
-     */ 
-    private static synchronized native void fillBasicColors(short [] basicColors);
-
-    /**
-     *  Description of the Method
+     * @return    <code>true</code>, if the terminal has direct colors
      */ 
-    private static void fillColorPairs() {
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                __colorpairs[i][j] = - 1;
-            }
-        }
+    static boolean hasDirectColors() {
+        return Terminal.getCurrent().hasDirectColors();
     }
 
     /**
-     *  Description of the Method
+     *  Computes the native attribute word of RGB colors, that are painted directly
      *
-     * @return    Description of the Return Value
+     * @param  aBackgroundRGB  the background color in the form 0xRRGGBB
+     * @param  aForegroundRGB  the foreground color in the form 0xRRGGBB
+     * @param  aAttr           the attributes
+     * @return                 the native attribute word
      */ 
-    private static synchronized native int hasColorsAsInteger();
-
+    static long computeDirectColorAttribute(int aBackgroundRGB, int aForegroundRGB, long aAttr) {
+        return Terminal.getCurrent().computeDirectColorAttribute(aBackgroundRGB, aForegroundRGB, aAttr);
+    }
+ 
     /**
      *  Description of the Method
      *
@@ -880,41 +817,8 @@ public class Toolkit {
     public static void adjustBaseColor(short aNumber, int aRed, int aGreen,
              int aBlue) {
 
-        adjustColor(__basicColors[aNumber], (short) aRed, (short) aGreen,
-                 (short) aBlue);
-
-    }
-
-    /**
-     *  Description of the Method
-     *
-     * @param  aNumber  Description of the Parameter
-     * @param  aRed     Description of the Parameter
-     * @param  aGreen   Description of the Parameter
-     * @param  aBlue    Description of the Parameter
-     */ 
-    private static synchronized native void adjustColor(short aNumber,
-             short aRed, short aGreen, short aBlue);
-
-
-    /**
-     *  Description of the Method
-     *
-     * @param  background  Description of the Parameter
-     * @param  foreground  Description of the Parameter
-     * @param  number      Description of the Parameter
-     */ 
-    private static synchronized native void initColorPair(short background,
-             short foreground, short number);
-
+        Terminal.getCurrent().adjustBaseColor(aNumber, aRed, aGreen, aBlue);
 
-    /**
-     *  Description of the Method
-     */ 
-    private static void initEncoding() {
-        if (isWindows()) {
-            setEncoding("CP850");
-        }
     }
 
     //  private static void loadLibrary()
@@ -977,21 +881,6 @@ public class Toolkit {
      */ 
     //  }
 
-    /**
-     *  Description of the Method
-     *
-     * @param  chars            Description of the Parameter
-     * @param  x                Description of the Parameter
-     * @param  y                Description of the Parameter
-     * @param  width            Description of the Parameter
-     * @param  height           Description of the Parameter
-     * @param  colorPairNumber  Description of the Parameter
-     * @param  attr             Description of the Parameter
-     */ 
-    private static synchronized native void printString(byte [] chars, int x,
-             int y, int width, int height, short colorPairNumber, long attr);
-
-
     /**
      *  Description of the Method
      *
@@ -1005,34 +894,64 @@ public class Toolkit {
     private static void printStringNoClip(String aText, int aX, int aY,
              int aWidth, int aHeight, CharColor aColor) {
 
-        printString(encodeChars(aText), aX, aY, aWidth, aHeight,
-                 aColor.getPairNo(), aColor.getAttribute());
+        printRegion(aText, aX, aY, aWidth, aHeight, aColor.getNativeAttribute());
 
     }
 
     /**
-     *  Description of the Method
+     *  Fills a region of the virtual screen and flushes it, if no painting action is running
      *
-     * @param  aText  Description of the Parameter
-     * @return        Description of the Return Value
+     * @param  aX      the x coordinate of the top left corner
+     * @param  aY      the y coordinate of the top left corner
+     * @param  aWidth  the width of the region
+     * @param  aHeight the height of the region
+     * @param  aChar   character or glyph code to fill with
+     * @param  aAttr   native attribute word
      */ 
-    private static byte []encodeChars(String aText) {
-        try {
-            if (__encoding != null) {
-                return aText.getBytes(__encoding);
-            }
-        } catch (UnsupportedEncodingException e) {
-            __encoding = null;
-        }
-        return aText.getBytes();
+    private static void fillRegion(int aX, int aY, int aWidth,
+             int aHeight, int aChar, long aAttr) {
+
+        Terminal.getCurrent().fillRegion(aX, aY, aWidth, aHeight, aChar, aAttr);
     }
 
     /**
-     *  Description of the Method
+     *  Changes the colors of a region of the virtual screen and flushes it, if no painting action is running
+     *
+     * @param  aX      the x coordinate of the top left corner
+     * @param  aY      the y coordinate of the top left corner
+     * @param  aWidth  the width of the region
+     * @param  aHeight the height of the region
+     * @param  aAttr   native attribute word
+     */ 
+    private static void recolorRegion(int aX, int aY, int aWidth,
+             int aHeight, long aAttr) {
+
+        Terminal.getCurrent().recolorRegion(aX, aY, aWidth, aHeight, aAttr);
+    }
+
+    /**
+     *  Prints a string into the virtual screen and flushes it, if no painting action is running
      *
-     * @return    Description of the Return Value
+     * @param  aText    string to be printed
+     * @param  aX       the x coordinate of the string start point
+     * @param  aY       the y coordinate of the string start point
+     * @param  aWidth   the width of bounds rectangle
+     * @param  aHeight  the height of bounds rectangle
+     * @param  aAttr    native attribute word
      */ 
-    private static native int readByte();
+    private static void printRegion(String aText, int aX, int aY,
+             int aWidth, int aHeight, long aAttr) {
+
+        Terminal.getCurrent().printRegion(aText, aX, aY, aWidth, aHeight, aAttr);
+    }
+
+    /**
+     * The method wakes up a thread blocked in <code>readCharacter</code>, which then returns <code>null</code>. If no thread is
+     * blocked, the next call of <code>readCharacter</code> returns immediately. May be called from any thread.
+     */ 
+    public static void wakeup() {
+        Terminal.getCurrent().wakeup();
+    }
 
     /**
      *  Gets the screen attribute of the Toolkit class
@@ -0,0 +1,450 @@
+package jcurses.system;
+
+import java.util.Arrays;
+
+import jcurses.util.Rectangle;
+import jcurses.util.TextUtils;
+
+/**
+ * This class is a jcurses-internal class, that holds a virtual copy of the terminal screen. All output operations of
+ * {@link jcurses.system.Toolkit} are written into this copy, and only the cells, that differ from the content of the physical
+ * screen, are pushed to the {@link TerminalBackend} when the screen is flushed.
+ * <p>
+ * Every cell consists of a character and the native attribute word, that contains both the color pair and the
+ * attributes (see {@link CharColor#getNativeAttribute}). Characters are stored as unicode code points, line drawing characters as
+ * negative glyph codes. A wide character occupies two cells, the second one holds <code>WIDE_TAIL</code>.
+ *
+ */
+class VirtualScreen {
+    /**
+     *  Glyph code of a horizontal line
+     */
+    static final int HLINE = TerminalBackend.GLYPH_HLINE;
+    /**
+     *  Glyph code of a vertical line
+     */
+    static final int VLINE = TerminalBackend.GLYPH_VLINE;
+    /**
+     *  Glyph code of a checkboard (thick line) cell
+     */
+    static final int CKBOARD = TerminalBackend.GLYPH_CKBOARD;
+    /**
+     *  Glyph code of a lower left corner
+     */
+    static final int LL_CORNER = TerminalBackend.GLYPH_LL_CORNER;
+    /**
+     *  Glyph code of a lower right corner
+     */
+    static final int LR_CORNER = TerminalBackend.GLYPH_LR_CORNER;
+    /**
+     *  Glyph code of an upper left corner
+     */
+    static final int UL_CORNER = TerminalBackend.GLYPH_UL_CORNER;
+    /**
+     *  Glyph code of an upper right corner
+     */
+    static final int UR_CORNER = TerminalBackend.GLYPH_UR_CORNER;
+    /**
+     *  Content of the right cell of a wide character
+     */
+    static final int WIDE_TAIL = - 8;
+    /**
+     *  Content of a cell, that was never painted
+     */
+    static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private int _width = 0;
+    private int _height = 0;
+    private int [] _chars = null;
+    private long [] _attrs = null;
+    private int [] _screenChars = null;
+    private long [] _screenAttrs = null;
+    private int [] _dirtyFrom = null;
+    private int [] _dirtyTo = null;
+    private int [] _run = null;
+    private boolean _dirty = false;
+
+    /**
+     * The constructor
+     *
+     * @param  aWidth   the screen width
+     * @param  aHeight  the screen height
+     */
+    VirtualScreen(int aWidth, int aHeight) {
+        resize(aWidth, aHeight);
+    }
+
+    /**
+     * Changes the size of the screen. The whole content is discarded.
+     *
+     * @param  aWidth   new screen width
+     * @param  aHeight  new screen height
+     */
+    void resize(int aWidth, int aHeight) {
+        _width = Math.max(aWidth, 0);
+        _height = Math.max(aHeight, 0);
+        int size = _width * _height;
+        _chars = new int[size];
+        _attrs = new long[size];
+        _screenChars = new int[size];
+        _screenAttrs = new long[size];
+        _dirtyFrom = new int[_height];
+        _dirtyTo = new int[_height];
+        _run = new int[_width];
+        Arrays.fill(_chars, UNKNOWN);
+        Arrays.fill(_screenChars, UNKNOWN);
+        for (int y = 0; y < _height; y++) {
+            clean(y);
+        }
+        _dirty = false;
+    }
+
+    /**
+     * @return    the screen width
+     */
+    int getWidth() {
+        return _width;
+    }
+
+    /**
+     * @return    the screen height
+     */
+    int getHeight() {
+        return _height;
+    }
+
+    /**
+     * @return    <code>true</code>, if anything was painted since the last flush
+     */
+    boolean isDirty() {
+        return _dirty;
+    }
+
+    /**
+     * Fills a rectangle with a character
+     *
+     * @param  aX      the x coordinate of the top left corner
+     * @param  aY      the y coordinate of the top left corner
+     * @param  aWidth  the width of the rectangle
+     * @param  aHeight the height of the rectangle
+     * @param  aChar   the character or glyph code to fill with
+     * @param  aAttr   the native attribute word
+     */
+    void fill(int aX, int aY, int aWidth, int aHeight, int aChar, long aAttr) {
+        int x1 = Math.max(aX, 0);
+        int y1 = Math.max(aY, 0);
+        int x2 = Math.min(aX + aWidth, _width) - 1;
+        int y2 = Math.min(aY + aHeight, _height) - 1;
+
+        if (x1 > x2) {
+            return;
+        }
+
+        for (int y = y1; y <= y2; y++) {
+            int idx = y * _width + x1;
+            breakWide(idx);
+            breakWide(y * _width + x2);
+            for (int x = x1; x <= x2; x++, idx++) {
+                _chars[idx] = aChar;
+                _attrs[idx] = aAttr;
+            }
+            markDirty(y, x1, x2);
+        }
+    }
+
+    /**
+     * Changes the attributes of a rectangle, leaving the characters as they are
+     *
+     * @param  aX      the x coordinate of the top left corner
+     * @param  aY      the y coordinate of the top left corner
+     * @param  aWidth  the width of the rectangle
+     * @param  aHeight the height of the rectangle
+     * @param  aAttr   the native attribute word
+     */
+    void recolor(int aX, int aY, int aWidth, int aHeight, long aAttr) {
+        int x1 = Math.max(aX, 0);
+        int y1 = Math.max(aY, 0);
+        int x2 = Math.min(aX + aWidth, _width) - 1;
+        int y2 = Math.min(aY + aHeight, _height) - 1;
+
+        if (x1 > x2) {
+            return;
+        }
+
+        for (int y = y1; y <= y2; y++) {
+            // both halves of a wide character get the same attributes
+            int from = ((x1 > 0) && (_chars[y * _width + x1] == WIDE_TAIL)) ? x1 - 1 : x1;
+            int to = ((x2 + 1 < _width) && (_chars[y * _width + x2 + 1] == WIDE_TAIL)) ? x2 + 1 : x2;
+            int idx = y * _width + from;
+            for (int x = from; x <= to; x++, idx++) {
+                _attrs[idx] = aAttr;
+            }
+            markDirty(y, from, to);
+        }
+    }
+
+    /**
+     * Prints a string into a rectangle. The string is broken at the rectangle width and at line feeds, carriage returns are
+     * ignored and tabs are printed as blanks. Wide characters occupy two columns, a wide character, that doesn't fit into the
+     * rest of a line, is moved to the next line. Combining characters are skipped.
+     *
+     * @param  aText    the string to print
+     * @param  aX       the x coordinate of the top left corner
+     * @param  aY       the y coordinate of the top left corner
+     * @param  aWidth   the width of the rectangle
+     * @param  aHeight  the height of the rectangle
+     * @param  aAttr    the native attribute word
+     */
+    void print(String aText, int aX, int aY, int aWidth, int aHeight, long aAttr) {
+        int xpos = aX;
+        int ypos = aY;
+        int right = aX + aWidth;
+        int length = aText.length();
+
+        for (int i = 0; i < length; ) {
+            int c = aText.codePointAt(i);
+            i += Character.charCount(c);
+
+            if (c == '\r') {
+                continue;
+            }
+
+            if (c == '\n') {
+                xpos = aX;
+                ypos++;
+                if (ypos == aY + aHeight) {
+                    break;
+                }
+                continue;
+            }
+
+            if (c == '\t') {
+                c = ' ';
+            }
+
+            int width = TextUtils.getCharWidth(c);
+            if (width == 0) {
+                continue;
+            }
+            if (width > aWidth) {
+                c = ' ';
+                width = 1;
+            }
+
+            if (xpos + width > right) {
+                if (xpos < right) {
+                    put(xpos, ypos, ' ', 1, aAttr);
+                }
+                xpos = aX;
+                ypos++;
+                if (ypos == aY + aHeight) {
+                    break;
+                }
+            }
+
+            put(xpos, ypos, c, width, aAttr);
+            xpos += width;
+        }
+    }
+
+    /**
+     * Stores a character into the cells at a position. A wide character, that is cut by the screen border, is replaced by
+     * blanks.
+     */
+    private void put(int aX, int aY, int aChar, int aWidth, long aAttr) {
+        if ((aY < 0) || (aY >= _height)) {
+            return;
+        }
+
+        if ((aWidth == 2) && ((aX < 0) || (aX + 1 >= _width))) {
+            put(aX, aY, ' ', 1, aAttr);
+            put(aX + 1, aY, ' ', 1, aAttr);
+            return;
+        }
+
+        if ((aX < 0) || (aX >= _width)) {
+            return;
+        }
+
+        int idx = aY * _width + aX;
+        breakWide(idx);
+        _chars[idx] = aChar;
+        _attrs[idx] = aAttr;
+
+        if (aWidth == 2) {
+            breakWide(idx + 1);
+            _chars[idx + 1] = WIDE_TAIL;
+            _attrs[idx + 1] = aAttr;
+        }
+
+        markDirty(aY, aX, aX + aWidth - 1);
+    }
+
+    /**
+     * Replaces the other half of a wide character by a blank, before one half is overwritten
+     *
+     * @param  aIdx  the index of the cell to be overwritten
+     */
+    private void breakWide(int aIdx) {
+        int x = aIdx % _width;
+        int y = aIdx / _width;
+
+        if (_chars[aIdx] == WIDE_TAIL) {
+            if (x > 0) {
+                _chars[aIdx - 1] = ' ';
+                markDirty(y, x - 1, x - 1);
+            }
+        } else if ((x + 1 < _width) && (_chars[aIdx + 1] == WIDE_TAIL)) {
+            _chars[aIdx + 1] = ' ';
+            markDirty(y, x + 1, x + 1);
+        }
+    }
+
+    /**
+     * Forgets the content of the physical screen, so that the next flush pushes every painted cell again.
+     */
+    void invalidate() {
+        Arrays.fill(_screenChars, UNKNOWN);
+        for (int y = 0; y < _height; y++) {
+            markDirty(y, 0, _width - 1);
+        }
+    }
+
+    /**
+     * Finds the cells painted or shown with one of some color pairs
+     *
+     * @param  aPairs  the attribute words of the color pairs
+     * @param  aMask   the bits of an attribute word, that don't belong to the color pair
+     * @return         the bounds of the cells, <code>null</code>, if no cell has one of the pairs
+     */
+    Rectangle findColorPairs(long [] aPairs, long aMask) {
+        int x1 = _width;
+        int y1 = _height;
+        int x2 = - 1;
+        int y2 = - 1;
+
+        for (int y = 0, idx = 0; y < _height; y++) {
+            for (int x = 0; x < _width; x++, idx++) {
+                if (hasColorPair(_attrs[idx] & ~ aMask, aPairs) || hasColorPair(_screenAttrs[idx] & ~ aMask, aPairs)) {
+                    x1 = Math.min(x1, x);
+                    y1 = Math.min(y1, y);
+                    x2 = Math.max(x2, x);
+                    y2 = Math.max(y2, y);
+                }
+            }
+        }
+
+        return (x2 < 0) ? null : new Rectangle(x1, y1, x2 - x1 + 1, y2 - y1 + 1);
+    }
+
+    private static boolean hasColorPair(long aPair, long [] aPairs) {
+        for (int i = 0; i < aPairs.length; i++) {
+            if (aPairs[i] == aPair) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the runs of cells, that differ from the physical screen, and writes them to the backend. Afterwards the
+     * physical screen is assumed to be equal to the virtual one.
+     *
+     * @param  aOutput  the backend receiving the changed runs
+     * @return          the number of cells written
+     */
+    int flush(TerminalBackend aOutput) {
+        int written = 0;
+
+        for (int y = 0; y < _height; y++) {
+            if (_dirtyTo[y] < _dirtyFrom[y]) {
+                continue;
+            }
+
+            int x = _dirtyFrom[y];
+            int end = _dirtyTo[y];
+            int row = y * _width;
+
+            while (x <= end) {
+                int idx = row + x;
+                int ch = _chars[idx];
+                long attr = _attrs[idx];
+
+                if (!isChanged(idx)) {
+                    x++;
+                    continue;
+                }
+
+                if (ch == WIDE_TAIL) {
+                    // the left half is unchanged, the terminal shows the right half already
+                    commit(idx);
+                    x++;
+                    continue;
+                }
+
+                int start = x;
+                int length = 0;
+                int cells = 0;
+
+                if (ch >= 0) {
+                    while ((x <= end) && isText(_chars[row + x]) && (_attrs[row + x] == attr) && isChanged(row + x)) {
+                        if (_chars[row + x] != WIDE_TAIL) {
+                            _run[length++] = _chars[row + x];
+                        }
+                        commit(row + x);
+                        cells++;
+                        x++;
+                    }
+                    aOutput.printRun(_run, length, start, y, attr);
+                    length = cells;
+                } else {
+                    while ((x <= end) && (_chars[row + x] == ch) && (_attrs[row + x] == attr) && isChanged(row + x)) {
+                        length++;
+                        commit(row + x);
+                        x++;
+                    }
+                    aOutput.drawGlyphs(ch, start, y, length, attr);
+                }
+
+                written += length;
+            }
+
+            clean(y);
+        }
+
+        _dirty = false;
+        return written;
+    }
+
+    private static boolean isText(int aChar) {
+        return (aChar >= 0) || (aChar == WIDE_TAIL);
+    }
+
+    private boolean isChanged(int aIdx) {
+        int ch = _chars[aIdx];
+        return (ch != UNKNOWN) && ((ch != _screenChars[aIdx]) || (_attrs[aIdx] != _screenAttrs[aIdx]));
+    }
+
+    private void commit(int aIdx) {
+        _screenChars[aIdx] = _chars[aIdx];
+        _screenAttrs[aIdx] = _attrs[aIdx];
+    }
+
+    private void markDirty(int aY, int aFrom, int aTo) {
+        if (aFrom > aTo) {
+            return;
+        }
+        if (aFrom < _dirtyFrom[aY]) {
+            _dirtyFrom[aY] = aFrom;
+        }
+        if (aTo > _dirtyTo[aY]) {
+            _dirtyTo[aY] = aTo;
+        }
+        _dirty = true;
+    }
+
+    private void clean(int aY) {
+        _dirtyFrom[aY] = _width;
+        _dirtyTo[aY] = - 1;
+    }
+}
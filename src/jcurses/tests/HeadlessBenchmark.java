@@ -0,0 +1,85 @@
+package jcurses.tests;
+
+import jcurses.system.HeadlessBackend;
+import jcurses.system.Toolkit;
+import jcurses.widgets.GridLayoutManager;
+import jcurses.widgets.List;
+import jcurses.widgets.TextArea;
+import jcurses.widgets.WidgetsConstants;
+import jcurses.widgets.Window;
+
+/**
+ * Runs a window with a list and a text area on the headless backend, feeds it with scripted input and prints the time and the
+ * counters of the backend for every step and the final screen. No terminal is needed.
+ * <p>
+ * Arguments: the number of list items (default 5000) and the number of repetitions of every input (default 500).
+ */
+public class HeadlessBenchmark extends Window implements WidgetsConstants
+{
+  private static final String KEY_DOWN  = "\033[B";
+  private static final String KEY_NPAGE = "\033[6~";
+  private static final String KEY_UP    = "\033[A";
+
+  private List                _list     = new List();
+  private TextArea            _textArea = new TextArea();
+
+  public HeadlessBenchmark(int items)
+  {
+    super(76, 22, true, "Headless benchmark");
+
+    for (int i = 0; i < items; i++)
+      _list.add("item " + i);
+
+    GridLayoutManager manager = new GridLayoutManager(2, 1);
+    getRootPanel().setLayoutManager(manager);
+    manager.addWidget(_list, 0, 0, 1, 1, ALIGNMENT_CENTER, ALIGNMENT_CENTER);
+    manager.addWidget(_textArea, 1, 0, 1, 1, ALIGNMENT_CENTER, ALIGNMENT_CENTER);
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    int items = ( args.length > 0 ) ? Integer.parseInt(args[0]) : 5000;
+    int repeats = ( args.length > 1 ) ? Integer.parseInt(args[1]) : 500;
+
+    HeadlessBackend backend = new HeadlessBackend(80, 24, 8);
+    Toolkit.setBackend(backend);
+
+    HeadlessBenchmark window = new HeadlessBenchmark(items);
+    long start = System.nanoTime();
+    window.show();
+    backend.awaitIdle(10000);
+    report(backend, "show", 1, start);
+
+    run(backend, "cursor down", KEY_DOWN, repeats);
+    run(backend, "cursor up", KEY_UP, repeats);
+    run(backend, "page down", KEY_NPAGE, repeats / 10);
+    run(backend, "focus text area", "\tx", 1);
+    run(backend, "typing", "The quick brown fox jumps over the lazy dog. ", repeats / 50);
+
+    String screen = backend.toString();
+    window.close();
+
+    System.out.print(screen);
+  }
+
+  private static void run(HeadlessBackend backend, String name, String input, int repeats)
+  {
+    long start = System.nanoTime();
+
+    for (int i = 0; i < repeats; i++)
+    {
+      backend.queueInput(input);
+      backend.awaitIdle(10000);
+    }
+
+    report(backend, name, repeats, start);
+  }
+
+  private static void report(HeadlessBackend backend, String name, int repeats, long start)
+  {
+    long micros = ( System.nanoTime() - start ) / 1000;
+    System.err.println(name + ": " + repeats + " steps, " + micros + " us, " + backend.getCellsWritten() + " cells, "
+        + backend.getRefreshCount() + " refreshes, " + backend.getCallCount() + " calls");
+    backend.resetCounters();
+  }
+}
@@ -0,0 +1,39 @@
+package jcurses.tests;
+
+import java.net.InetAddress;
+
+import jcurses.event.WindowListener;
+import jcurses.net.TelnetApplication;
+import jcurses.net.TelnetServer;
+import jcurses.net.TelnetSession;
+import jcurses.widgets.Window;
+
+/**
+ * Serves the test window to telnet clients, every connection gets its own session. The server listens on the loopback address
+ * only, connect with <code>telnet localhost 2323</code>.
+ * <p>
+ * Arguments: the port (default 2323).
+ */
+public class TelnetDemo implements TelnetApplication
+{
+  public void sessionStarted(TelnetSession aSession)
+  {
+    Window test = new Test(28, 20);
+
+    test.addListener((WindowListener) test);
+
+    test.show();
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    int port = ( args.length > 0 ) ? Integer.parseInt(args[0]) : 2323;
+
+    TelnetServer server = new TelnetServer(InetAddress.getByName("localhost"), port, new TelnetDemo());
+    server.start();
+
+    System.out.println("listening on port " + server.getPort() + ", press return to stop");
+    System.in.read();
+    server.stop();
+  }
+}
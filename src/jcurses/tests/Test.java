@@ -76,7 +76,9 @@ public class Test extends Window implements ItemListener, ActionListener, ValueC
 
     _list.addListener(this);
 
-    _list.getSelectedColors().setColorAttribute(CharColor.BOLD);
+    CharColor selectedColors = _list.getSelectedColors();
+    _list.setSelectedColors(CharColor.valueOf(selectedColors.getBackground(), selectedColors.getForeground(),
+        selectedColors.getBlackWhiteAttribute(), CharColor.BOLD));
 
     GridLayoutManager manager1 = new GridLayoutManager(1, 1);
 
@@ -26,7 +26,7 @@ public class BaseTheme implements Theme
       mColor = (CharColor)themeKeys.get(Theme.COLOR_DEFAULT);
     
     if ( mColor == null )
-      mColor = new CharColor(CharColor.BLACK, CharColor.WHITE);
+      mColor = CharColor.valueOf(CharColor.BLACK, CharColor.WHITE);
     
     return mColor;
   }
@@ -35,6 +35,31 @@ public class BaseTheme implements Theme
   {
     themeKeys.put(aKey, aColor);
   }
+
+  /**
+   * Sets a color given as RGB values. The values are mapped to the nearest colors the terminal supports.
+   * 
+   * @param aKey the theme key
+   * @param aBackgroundRGB the background color in the form 0xRRGGBB
+   * @param aForegroundRGB the foreground color in the form 0xRRGGBB
+   * @param aAttribute the attribute used in both color and black-white mode
+   */
+  public void setColor(String aKey, int aBackgroundRGB, int aForegroundRGB, short aAttribute)
+  {
+    setColor(aKey, CharColor.valueOfRGB(aBackgroundRGB, aForegroundRGB, aAttribute, aAttribute));
+  }
+
+  /**
+   * Sets a color given as RGB values with the attribute <code>NORMAL</code>.
+   * 
+   * @param aKey the theme key
+   * @param aBackgroundRGB the background color in the form 0xRRGGBB
+   * @param aForegroundRGB the foreground color in the form 0xRRGGBB
+   */
+  public void setColor(String aKey, int aBackgroundRGB, int aForegroundRGB)
+  {
+    setColor(aKey, aBackgroundRGB, aForegroundRGB, CharColor.NORMAL);
+  }
   
 
 }
\ No newline at end of file
@@ -13,13 +13,13 @@ public class DefaultThemeImpl extends BaseTheme
   {
     //Toolkit.adjustBaseColor(CharColor.YELLOW, 1000, 1000, 0);
 
-    setColor(Theme.COLOR_DEFAULT, new CharColor(CharColor.BLACK, CharColor.BLUE));
+    setColor(Theme.COLOR_DEFAULT, CharColor.valueOf(CharColor.BLACK, CharColor.BLUE));
 
-    setColor(Theme.COLOR_WINDOW_BORDER, new CharColor(CharColor.BLACK, CharColor.CYAN));
-    setColor(Theme.COLOR_WINDOW_BACKGROUND, new CharColor(CharColor.BLACK, CharColor.WHITE));
-    setColor(Theme.COLOR_WINDOW_TITLE, new CharColor(CharColor.WHITE, CharColor.BLUE, CharColor.BOLD));
-    setColor(Theme.COLOR_WINDOW_TEXT, new CharColor(CharColor.BLACK, CharColor.WHITE));
-    setColor(Theme.COLOR_WINDOW_SHADOW, new CharColor(CharColor.BLACK, CharColor.BLACK));
+    setColor(Theme.COLOR_WINDOW_BORDER, CharColor.valueOf(CharColor.BLACK, CharColor.CYAN));
+    setColor(Theme.COLOR_WINDOW_BACKGROUND, CharColor.valueOf(CharColor.BLACK, CharColor.WHITE));
+    setColor(Theme.COLOR_WINDOW_TITLE, CharColor.valueOf(CharColor.WHITE, CharColor.BLUE, CharColor.BOLD, CharColor.NORMAL));
+    setColor(Theme.COLOR_WINDOW_TEXT, CharColor.valueOf(CharColor.BLACK, CharColor.WHITE));
+    setColor(Theme.COLOR_WINDOW_SHADOW, CharColor.valueOf(CharColor.BLACK, CharColor.BLACK));
 
     //setColor(Theme.COLOR_DIALOG_BORDER, new CharColor(CharColor.WHITE, CharColor.BLACK));
     //setColor(Theme.COLOR_DIALOG_BACKGROUND, new CharColor(CharColor.WHITE, CharColor.BLACK));
@@ -27,13 +27,13 @@ public class DefaultThemeImpl extends BaseTheme
     //setColor(Theme.COLOR_DIALOG_TEXT, new CharColor(CharColor.WHITE, CharColor.BLACK));
     //setColor(Theme.COLOR_DIALOG_SHADOW, new CharColor(CharColor.BLACK, CharColor.BLACK));
 
-    setColor(Theme.COLOR_WIDGET_BORDER, new CharColor(CharColor.BLACK, CharColor.CYAN));
-    setColor(Theme.COLOR_WIDGET_BACKGROUND, new CharColor(CharColor.BLACK, CharColor.WHITE));
-    setColor(Theme.COLOR_WIDGET_TITLE, new CharColor(CharColor.WHITE, CharColor.BLACK, CharColor.BOLD));
-    setColor(Theme.COLOR_WIDGET_TEXT, new CharColor(CharColor.BLACK, CharColor.WHITE));
-    setColor(Theme.COLOR_WIDGET_ACTION, new CharColor(CharColor.BLUE, CharColor.WHITE));
-    setColor(Theme.COLOR_WIDGET_SELECTED, new CharColor(CharColor.CYAN, CharColor.BLACK, CharColor.REVERSE));
-    setColor(Theme.COLOR_WIDGET_SHORTCUT, new CharColor(CharColor.WHITE, CharColor.RED));
-    setColor(Theme.COLOR_WIDGET_SCROLLBAR, new CharColor(CharColor.BLACK, CharColor.WHITE, CharColor.REVERSE));
+    setColor(Theme.COLOR_WIDGET_BORDER, CharColor.valueOf(CharColor.BLACK, CharColor.CYAN));
+    setColor(Theme.COLOR_WIDGET_BACKGROUND, CharColor.valueOf(CharColor.BLACK, CharColor.WHITE));
+    setColor(Theme.COLOR_WIDGET_TITLE, CharColor.valueOf(CharColor.WHITE, CharColor.BLACK, CharColor.BOLD, CharColor.NORMAL));
+    setColor(Theme.COLOR_WIDGET_TEXT, CharColor.valueOf(CharColor.BLACK, CharColor.WHITE));
+    setColor(Theme.COLOR_WIDGET_ACTION, CharColor.valueOf(CharColor.BLUE, CharColor.WHITE));
+    setColor(Theme.COLOR_WIDGET_SELECTED, CharColor.valueOf(CharColor.CYAN, CharColor.BLACK, CharColor.REVERSE, CharColor.NORMAL));
+    setColor(Theme.COLOR_WIDGET_SHORTCUT, CharColor.valueOf(CharColor.WHITE, CharColor.RED));
+    setColor(Theme.COLOR_WIDGET_SCROLLBAR, CharColor.valueOf(CharColor.BLACK, CharColor.WHITE, CharColor.REVERSE, CharColor.NORMAL));
   }
 }
\ No newline at end of file
@@ -0,0 +1,202 @@
+package jcurses.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class represents a region of the screen as a union of disjoint rectangles. It is used to track damaged areas, that must
+ * be repainted, and to cut away areas covered by other windows.
+ */
+public class DamageRegion
+{
+  private List<Rectangle> _rects = new ArrayList<Rectangle>();
+
+  /**
+   * The constructor, creates an empty region
+   */
+  public DamageRegion()
+  {
+  }
+
+  /**
+   * The constructor, creates a region consisting of one rectangle
+   *
+   * @param aRect the rectangle
+   */
+  public DamageRegion(Rectangle aRect)
+  {
+    add(aRect);
+  }
+
+  /**
+   * Adds a rectangle to the region. Only the parts of the rectangle, that are not yet contained in the region, are stored, so the
+   * rectangles of the region remain disjoint.
+   *
+   * @param aRect the rectangle to add
+   */
+  public void add(Rectangle aRect)
+  {
+    if ( aRect.isEmpty() )
+      return;
+
+    List<Rectangle> mPieces = new ArrayList<Rectangle>();
+    mPieces.add((Rectangle)aRect.clone());
+
+    for ( int i = 0; i < _rects.size() && ! mPieces.isEmpty(); i++ )
+    {
+      Rectangle mExisting = _rects.get(i);
+      List<Rectangle> mRest = new ArrayList<Rectangle>();
+      for ( int j = 0; j < mPieces.size(); j++ )
+        subtract(mPieces.get(j), mExisting, mRest);
+      mPieces = mRest;
+    }
+
+    _rects.addAll(mPieces);
+  }
+
+  /**
+   * Adds all rectangles of an other region to this region
+   *
+   * @param aRegion the region to add
+   */
+  public void add(DamageRegion aRegion)
+  {
+    for ( int i = 0; i < aRegion._rects.size(); i++ )
+      add(aRegion._rects.get(i));
+  }
+
+  /**
+   * Removes a rectangle from the region
+   *
+   * @param aRect the rectangle to remove
+   */
+  public void subtract(Rectangle aRect)
+  {
+    if ( aRect.isEmpty() || _rects.isEmpty() )
+      return;
+
+    List<Rectangle> mRest = new ArrayList<Rectangle>(_rects.size());
+    for ( int i = 0; i < _rects.size(); i++ )
+      subtract(_rects.get(i), aRect, mRest);
+    _rects = mRest;
+  }
+
+  /**
+   * Returns the part of the region, that lies within a rectangle
+   *
+   * @param aRect the rectangle
+   *
+   * @return the intersection as a new region
+   */
+  public DamageRegion intersection(Rectangle aRect)
+  {
+    DamageRegion mResult = new DamageRegion();
+    for ( int i = 0; i < _rects.size(); i++ )
+    {
+      Rectangle mPart = _rects.get(i).intersection(aRect);
+      if ( ! mPart.isEmpty() )
+        mResult._rects.add(mPart);
+    }
+    return mResult;
+  }
+
+  /**
+   * @param aRect the rectangle
+   *
+   * @return <code>true</code> if the region and the rectangle have at least one common cell
+   */
+  public boolean intersects(Rectangle aRect)
+  {
+    for ( int i = 0; i < _rects.size(); i++ )
+      if ( ! _rects.get(i).intersection(aRect).isEmpty() )
+        return true;
+    return false;
+  }
+
+  /**
+   * @return <code>true</code> if the region doesn't contain any cell
+   */
+  public boolean isEmpty()
+  {
+    return _rects.isEmpty();
+  }
+
+  /**
+   * Removes all rectangles from the region
+   */
+  public void clear()
+  {
+    _rects.clear();
+  }
+
+  /**
+   * @return the disjoint rectangles, the region consists of. The list must not be modified.
+   */
+  public List<Rectangle> getRectangles()
+  {
+    return _rects;
+  }
+
+  /**
+   * @return the smallest rectangle containing the whole region, or <code>null</code> if the region is empty
+   */
+  public Rectangle getBounds()
+  {
+    if ( _rects.isEmpty() )
+      return null;
+
+    int mLeft = Integer.MAX_VALUE;
+    int mTop = Integer.MAX_VALUE;
+    int mRight = Integer.MIN_VALUE;
+    int mBottom = Integer.MIN_VALUE;
+
+    for ( int i = 0; i < _rects.size(); i++ )
+    {
+      Rectangle mRect = _rects.get(i);
+      mLeft = Math.min(mLeft, mRect.getLeft());
+      mTop = Math.min(mTop, mRect.getTop());
+      mRight = Math.max(mRight, mRect.getRight());
+      mBottom = Math.max(mBottom, mRect.getBottom());
+    }
+
+    return new Rectangle(mLeft, mTop, mRight - mLeft + 1, mBottom - mTop + 1);
+  }
+
+  public String toString()
+  {
+    return "DamageRegion" + _rects;
+  }
+
+  /**
+   * Cuts a rectangle out of an other one and adds the up to four remaining pieces to a list
+   *
+   * @param aRect the rectangle to cut
+   * @param aCut the rectangle to cut out
+   * @param aResult the list, the remaining pieces are added to
+   */
+  private static void subtract(Rectangle aRect, Rectangle aCut, List<Rectangle> aResult)
+  {
+    int mTop = Math.max(aRect.getTop(), aCut.getTop());
+    int mBottom = Math.min(aRect.getBottom(), aCut.getBottom());
+    int mLeft = Math.max(aRect.getLeft(), aCut.getLeft());
+    int mRight = Math.min(aRect.getRight(), aCut.getRight());
+
+    if ( mTop > mBottom || mLeft > mRight )
+    {
+      aResult.add(aRect);
+      return;
+    }
+
+    // the full-width stripes above and below the cut
+    if ( aRect.getTop() < mTop )
+      aResult.add(new Rectangle(aRect.getLeft(), aRect.getTop(), aRect.getWidth(), mTop - aRect.getTop()));
+    if ( aRect.getBottom() > mBottom )
+      aResult.add(new Rectangle(aRect.getLeft(), mBottom + 1, aRect.getWidth(), aRect.getBottom() - mBottom));
+
+    // the pieces left and right of the cut
+    if ( aRect.getLeft() < mLeft )
+      aResult.add(new Rectangle(aRect.getLeft(), mTop, mLeft - aRect.getLeft(), mBottom - mTop + 1));
+    if ( aRect.getRight() > mRight )
+      aResult.add(new Rectangle(mRight + 1, mTop, aRect.getRight() - mRight, mBottom - mTop + 1));
+  }
+}
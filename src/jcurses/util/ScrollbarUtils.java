@@ -14,7 +14,7 @@ public class ScrollbarUtils
   public static final int        HORIZONTAL = 0;
   public static final int        VERTICAL   = 1;
 
-  private static final CharColor __color    = new CharColor(CharColor.BLACK, CharColor.WHITE, CharColor.REVERSE);
+  private static final CharColor __color    = CharColor.valueOf(CharColor.BLACK, CharColor.WHITE, CharColor.REVERSE, CharColor.NORMAL);
 
   /**
    * The method to paint a scrollbar.
@@ -16,14 +16,151 @@ import java.util.List;
  */
 public class TextUtils {
 	/**
-	 *  Wrap String into Array of String per a wrap length
+	 * Ranges of code points, that are displayed in two columns: the wide and fullwidth characters of the
+	 * East Asian Width property and the emoji presented as pictures. Pairs of first and last code point.
+	 */
+	private static final int[] __wideRanges = {
+		0x1100, 0x115f, 0x231a, 0x231b, 0x2329, 0x232a, 0x23e9, 0x23ec, 0x23f0, 0x23f0, 0x23f3, 0x23f3,
+		0x25fd, 0x25fe, 0x2614, 0x2615, 0x2648, 0x2653, 0x267f, 0x267f, 0x2693, 0x2693, 0x26a1, 0x26a1,
+		0x26aa, 0x26ab, 0x26bd, 0x26be, 0x26c4, 0x26c5, 0x26ce, 0x26ce, 0x26d4, 0x26d4, 0x26ea, 0x26ea,
+		0x26f2, 0x26f3, 0x26f5, 0x26f5, 0x26fa, 0x26fa, 0x26fd, 0x26fd, 0x2705, 0x2705, 0x270a, 0x270b,
+		0x2728, 0x2728, 0x274c, 0x274c, 0x274e, 0x274e, 0x2753, 0x2755, 0x2757, 0x2757, 0x2795, 0x2797,
+		0x27b0, 0x27b0, 0x27bf, 0x27bf, 0x2b1b, 0x2b1c, 0x2b50, 0x2b50, 0x2b55, 0x2b55, 0x2e80, 0x303e,
+		0x3041, 0x33ff, 0x3400, 0x4dbf, 0x4e00, 0x9fff, 0xa000, 0xa4cf, 0xa960, 0xa97f, 0xac00, 0xd7a3,
+		0xf900, 0xfaff, 0xfe10, 0xfe19, 0xfe30, 0xfe6f, 0xff00, 0xff60, 0xffe0, 0xffe6,
+		0x16fe0, 0x16fe4, 0x17000, 0x18aff, 0x1b000, 0x1b2ff, 0x1f004, 0x1f004, 0x1f0cf, 0x1f0cf,
+		0x1f18e, 0x1f18e, 0x1f191, 0x1f19a, 0x1f200, 0x1f202, 0x1f210, 0x1f23b, 0x1f240, 0x1f248,
+		0x1f250, 0x1f251, 0x1f260, 0x1f265, 0x1f300, 0x1f64f, 0x1f680, 0x1f6ff, 0x1f7e0, 0x1f7eb,
+		0x1f900, 0x1f9ff, 0x1fa70, 0x1faff, 0x20000, 0x2fffd, 0x30000, 0x3fffd
+	};
+
+	/**
+	 * The display widths of the characters of the basic multilingual plane, looked up by the character
+	 */
+	private static final byte[] __bmpWidths = new byte[0x10000];
+
+	static {
+		for (int c = 0; c < __bmpWidths.length; c++) {
+			__bmpWidths[c] = (byte) (isZeroWidth(c) ? 0 : 1);
+		}
+
+		for (int idx = 0; idx < __wideRanges.length; idx += 2) {
+			int last = Math.min(__wideRanges[idx + 1], 0xffff);
+			for (int c = __wideRanges[idx]; c <= last; c++) {
+				__bmpWidths[c] = 2;
+			}
+		}
+	}
+
+	/**
+	 *  Returns the number of terminal columns, a character occupies. Combining marks and format characters
+	 * occupy no column, wide east asian characters and emoji two columns, all other characters one column.
+	 *
+	 * @param  aCodePoint  the unicode code point of the character
+	 * @return             the display width, 0, 1 or 2
+	 */
+	public static int getCharWidth(int aCodePoint) {
+		if (aCodePoint < __bmpWidths.length) {
+			return (aCodePoint < 0) ? 1 : __bmpWidths[aCodePoint];
+		}
+
+		if (isZeroWidth(aCodePoint)) {
+			return 0;
+		}
+
+		// binary search over the pairs of first and last code point
+		int low = 0;
+		int high = __wideRanges.length / 2 - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (aCodePoint < __wideRanges[mid * 2]) {
+				high = mid - 1;
+			} else if (aCodePoint > __wideRanges[mid * 2 + 1]) {
+				low = mid + 1;
+			} else {
+				return 2;
+			}
+		}
+
+		return 1;
+	}
+
+	/**
+	 *  Returns the number of terminal columns, a string occupies, if it is printed in one line
+	 *
+	 * @param  aText  the string
+	 * @return        the display width
+	 */
+	public static int getDisplayWidth(String aText) {
+		int result = 0;
+		int length = aText.length();
+
+		for (int idx = 0; idx < length; ) {
+			int c = aText.codePointAt(idx);
+			idx += Character.charCount(c);
+			result += getCharWidth(c);
+		}
+
+		return result;
+	}
+
+	/**
+	 *  Returns the index of the first character of a string, that starts at or after a column, if the string is
+	 * printed in one line
+	 *
+	 * @param  aText     the string
+	 * @param  aColumns  the column
+	 * @return           the index of the character, or the length of the string, if the string is shorter
+	 */
+	public static int getIndexOfColumn(String aText, int aColumns) {
+		int column = 0;
+		int length = aText.length();
+		int idx = 0;
+
+		while ((idx < length) && (column < aColumns)) {
+			int c = aText.codePointAt(idx);
+			idx += Character.charCount(c);
+			column += getCharWidth(c);
+		}
+
+		return idx;
+	}
+
+	/**
+	 *  Cuts a number of columns from the start of a string. If a wide character is cut in half, the remaining half
+	 * is replaced by a blank.
+	 *
+	 * @param  aText     the string
+	 * @param  aColumns  the number of columns to cut
+	 * @return           the rest of the string
+	 */
+	public static String skipColumns(String aText, int aColumns) {
+		int idx = getIndexOfColumn(aText, aColumns);
+		String result = aText.substring(idx);
+
+		if (getDisplayWidth(aText.substring(0, idx)) > aColumns) {
+			result = " " + result;
+		}
+
+		return result;
+	}
+
+	private static boolean isZeroWidth(int aCodePoint) {
+		int type = Character.getType(aCodePoint);
+		return (type == Character.NON_SPACING_MARK) || (type == Character.ENCLOSING_MARK)
+				|| ((type == Character.FORMAT) && (aCodePoint != 0xad)) || ((aCodePoint >= 0x1160) && (aCodePoint <= 0x11ff));
+	}
+
+	/**
+	 *  Wrap String into Array of String per a wrap length. The length is measured in display columns, lines are broken at
+	 * whitespace, a word longer than a line is broken at the last character fitting into the line.
 	 *
 	 * @param  aMsg  Original text
-	 * @param  aLen  wrap length
+	 * @param  aLen  wrap length in columns
 	 * @return       Array of String representing lines each <= length
 	 */
 	public static String[] wrapLines(String aMsg, int aLen) {
-		List mLines = new LinkedList();
+		List<String> mLines = new LinkedList<String>();
 
 		if (aMsg == null) {
 			return new String[0];
@@ -32,39 +169,36 @@ public class TextUtils {
 		String lines[] = aMsg.split("\n");
 
 		for (int idx = 0; idx < lines.length; idx++) {
-			int curLen = lines[idx].length();
-			int pos = 0;
+			String rest = lines[idx];
 
-			while (curLen > aLen) {
+			while (getDisplayWidth(rest) > aLen) {
 				// find wrap point..
-				int brk = pos + aLen;
+				int end = getIndexOfColumn(rest, aLen);
+				if (getDisplayWidth(rest.substring(0, end)) > aLen) {
+					// the last character is wide and doesn't fit
+					end -= Character.charCount(rest.codePointBefore(end));
+				}
 
-				while ((brk > pos) && !Character.isWhitespace(lines[idx].charAt(brk))) {
+				int brk = end;
+				while ((brk > 0) && !Character.isWhitespace(rest.charAt(brk))) {
 					brk--;
 				}
 
-				// handle cases where there is no breaking point
-				if (brk <= pos) {
-					brk = pos + aLen + 1;
+				if (brk > 0) {
+					mLines.add(rest.substring(0, brk));
+					rest = rest.substring(brk + 1);
+				} else {
+					// handle cases where there is no breaking point, a line gets at least one character
+					end = Math.max(end, Character.charCount(rest.codePointAt(0)));
+					mLines.add(rest.substring(0, end));
+					rest = rest.substring(end);
 				}
-
-				mLines.add(lines[idx].substring(pos, brk));
-				curLen = curLen - (brk - pos);
-				pos = brk + 1;
 			}
 
-			//if(curLen > 0)
-			mLines.add(lines[idx].substring(pos));
+			mLines.add(rest);
 		}
 
-		Object tmp[] = mLines.toArray();
-		String result[] = new String[tmp.length];
-
-		for (int idx = 0; idx < tmp.length; idx++) {
-			result[idx] = (String) tmp[idx];
-		}
-
-		return result;
+		return mLines.toArray(new String[mLines.size()]);
 	}
 
 	/**
@@ -101,9 +235,14 @@ public class TextUtils {
 			if (c == '\n') {
 				String line = buffer.toString();
 
-				if (line.length() > maxWidth) {
-					list.add(line.substring(0, maxWidth));
-					list.add(line.substring(maxWidth, line.length()));
+				if (getDisplayWidth(line) > maxWidth) {
+					int brk = getIndexOfColumn(line, maxWidth);
+					if (getDisplayWidth(line.substring(0, brk)) > maxWidth) {
+						// the last character is wide and doesn't fit
+						brk -= Character.charCount(line.codePointBefore(brk));
+					}
+					list.add(line.substring(0, brk));
+					list.add(line.substring(brk, line.length()));
 				} else {
 					list.add(line);
 				}
@@ -127,11 +266,11 @@ public class TextUtils {
 	 *  Center a String in a field, padding with blank.
 	 *
 	 * @param  aStr  the string
-	 * @param  aLen  length of field
+	 * @param  aLen  length of field in columns
 	 * @return       the centered string in field of blank
 	 */
 	public static String center(String aStr, int aLen) {
-		double mDiff = (aLen - aStr.length()) / 2.0;
+		double mDiff = (aLen - getDisplayWidth(aStr)) / 2.0;
 		return replicate(' ', (int) Math.floor(mDiff)) + aStr + replicate(' ', (int) Math.ceil(mDiff));
 	}
 
@@ -139,11 +278,11 @@ public class TextUtils {
 	 *  Right-justify a String in a field, padding left with blank.
 	 *
 	 * @param  aStr  the string
-	 * @param  aLen  length of field
+	 * @param  aLen  length of field in columns
 	 * @return       the right-justified string
 	 */
 	public static String leftPad(String aStr, int aLen) {
-		return replicate(' ', aLen - aStr.length()) + aStr;
+		return replicate(' ', aLen - getDisplayWidth(aStr)) + aStr;
 	}
 
 	/**
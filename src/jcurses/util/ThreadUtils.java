@@ -0,0 +1,67 @@
+package jcurses.util;
+
+import java.lang.reflect.Method;
+
+/**
+ * A class for creating the threads of jcurses sessions. Where the JVM supports virtual threads, a session thread, that waits in
+ * Java, is a virtual thread, so that thousands of idle sessions don't cost thousands of platform threads. On older JVMs, or if the
+ * system property <code>jcurses.virtualThreads</code> is <code>false</code>, platform threads are created.
+ * <p>
+ * Virtual threads are looked up by reflection, so jcurses still runs on JVMs without them.
+ */
+public class ThreadUtils {
+	/**
+	 *  The name of the system property, that disables virtual threads, if it is <code>false</code>
+	 */
+	public static final String VIRTUAL_THREADS_PROPERTY = "jcurses.virtualThreads";
+
+	private static Object __virtualBuilder = null;
+	private static Method __nameMethod = null;
+	private static Method __unstartedMethod = null;
+
+	static {
+		if (!"false".equals(System.getProperty(VIRTUAL_THREADS_PROPERTY))) {
+			try {
+				Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+				__nameMethod = builderClass.getMethod("name", String.class);
+				__unstartedMethod = builderClass.getMethod("unstarted", Runnable.class);
+				__virtualBuilder = Thread.class.getMethod("ofVirtual").invoke(null);
+			} catch (Exception e) {
+				// no virtual threads, or only as a preview feature, that isn't enabled
+				__virtualBuilder = null;
+			}
+		}
+	}
+
+	/**
+	 * @return <code>true</code>, if virtual threads are supported and not disabled
+	 */
+	public static boolean hasVirtualThreads() {
+		return (__virtualBuilder != null);
+	}
+
+	/**
+	 * Creates a thread, that isn't started yet.
+	 *
+	 * @param aTarget the runnable executed by the thread
+	 * @param aName the name of the thread
+	 * @param aVirtual <code>true</code>, if a virtual thread is to be created, if they are supported. The runnable must wait with
+	 * the locks of <code>java.util.concurrent</code> then, instead of in native code, so that waiting doesn't block the carrier
+	 * thread. A virtual thread is a daemon thread and doesn't keep the JVM alive.
+	 * @return the thread
+	 */
+	public static Thread newThread(Runnable aTarget, String aName, boolean aVirtual) {
+		if (aVirtual && (__virtualBuilder != null)) {
+			try {
+				synchronized (__virtualBuilder) {
+					// the builder isn't thread safe
+					__nameMethod.invoke(__virtualBuilder, aName);
+					return (Thread) __unstartedMethod.invoke(__virtualBuilder, aTarget);
+				}
+			} catch (Exception e) {
+				// fall back to a platform thread
+			}
+		}
+		return new Thread(aTarget, aName);
+	}
+}
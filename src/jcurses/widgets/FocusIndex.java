@@ -0,0 +1,399 @@
+package jcurses.widgets;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+import jcurses.util.Rectangle;
+
+/**
+ * This class is a jcurses-internal class, that finds the focusable widget, to that the focus moves, if a cursor key is typed.
+ * <p>
+ * The rules are the ones of the former linear search: moving left or right, the nearest widget, that lies completely on this
+ * side of the current one, is chosen, comparing first the vertical and then the horizontal distance of the top left corners.
+ * Moving up or down, the horizontal distance is compared first. If two widgets are equally near, the one coming first in the
+ * focus order is chosen.
+ * <p>
+ * The widgets are grouped into rows with the same top coordinate and into columns with the same left coordinate. Within a row
+ * or column, the widgets are sorted, and trees over the rows and columns tell, whether a row or column contains a widget on
+ * the searched side at all. So a search takes logarithmic time. The index is a snapshot of the layout and built again, if the
+ * layout changes.
+ */
+class FocusIndex
+{
+  private int[]     _left   = null;
+  private int[]     _top    = null;
+  private int[]     _right  = null;
+  private int[]     _bottom = null;
+
+  private Axis      _rows   = null;
+  private Axis      _columns = null;
+
+  /**
+   * The constructor
+   *
+   * @param aWidgets the focusable widgets in focus order
+   */
+  FocusIndex(Vector<Widget> aWidgets)
+  {
+    int count = aWidgets.size();
+    _left = new int[count];
+    _top = new int[count];
+    _right = new int[count];
+    _bottom = new int[count];
+
+    for ( int i = 0; i < count; i++ )
+    {
+      Rectangle rect = aWidgets.elementAt(i).getRectangle();
+      _left[i] = rect.getLeft();
+      _top[i] = rect.getTop();
+      // an empty widget counts as one cell, so it doesn't lie beside itself
+      _right[i] = Math.max(rect.getRight(), _left[i]);
+      _bottom[i] = Math.max(rect.getBottom(), _top[i]);
+    }
+
+    _rows = new Axis(_top, _left, _right);
+    _columns = new Axis(_left, _top, _bottom);
+  }
+
+  /**
+   * Finds the widget, to that the focus moves
+   *
+   * @param aIndex the index of the current widget in focus order
+   * @param aDirection one of the directions <code>Window.DIR_LEFT</code>, <code>DIR_RIGHT</code>, <code>DIR_UP</code> and
+   *          <code>DIR_DOWN</code>
+   *
+   * @return the index of the found widget, or -1 if there is no widget in the direction
+   */
+  int find(int aIndex, int aDirection)
+  {
+    switch ( aDirection )
+    {
+      case Window.DIR_LEFT:
+        return _rows.findBefore(_top[aIndex], _left[aIndex]);
+      case Window.DIR_RIGHT:
+        return _rows.findAfter(_top[aIndex], _left[aIndex], _right[aIndex]);
+      case Window.DIR_UP:
+        return _columns.findBefore(_left[aIndex], _top[aIndex]);
+      case Window.DIR_DOWN:
+        return _columns.findAfter(_left[aIndex], _top[aIndex], _bottom[aIndex]);
+      default:
+        return - 1;
+    }
+  }
+
+  /**
+   * The widgets grouped into lines along one axis. Every widget has a line coordinate, the primary distance is measured by, and
+   * an interval across the line, from start to end, that decides on which side of the current widget it lies. The secondary
+   * distance is measured between the starts.
+   */
+  private static class Axis
+  {
+    private int[]   _start       = null;
+    private int[]   _end         = null;
+
+    /** The sorted distinct line coordinates */
+    private int[]   _lines       = null;
+    /** The widgets of every line sorted by end */
+    private int[][] _byEnd       = null;
+    /** For every prefix of <code>_byEnd</code> the widget with the greatest start */
+    private int[][] _bestBefore  = null;
+    /** The widgets of every line sorted by start */
+    private int[][] _byStart     = null;
+    /** Tree over the lines containing the least end of each line */
+    private int[]   _minEnd      = null;
+    /** Tree over the lines containing the greatest start of each line */
+    private int[]   _maxStart    = null;
+    private int     _size        = 1;
+
+    Axis(int[] aLine, int[] aStart, int[] aEnd)
+    {
+      _start = aStart;
+      _end = aEnd;
+
+      int count = aLine.length;
+      int[] order = sort(aLine, null, 0, count);
+      int lineCount = 0;
+      for ( int i = 0; i < count; i++ )
+        if ( i == 0 || aLine[order[i]] != aLine[order[i - 1]] )
+          lineCount++;
+
+      _lines = new int[lineCount];
+      _byEnd = new int[lineCount][];
+      _bestBefore = new int[lineCount][];
+      _byStart = new int[lineCount][];
+
+      while ( _size < lineCount )
+        _size *= 2;
+      _minEnd = new int[2 * _size];
+      _maxStart = new int[2 * _size];
+      Arrays.fill(_minEnd, Integer.MAX_VALUE);
+      Arrays.fill(_maxStart, Integer.MIN_VALUE);
+
+      int first = 0;
+      for ( int l = 0; l < lineCount; l++ )
+      {
+        int last = first;
+        while ( last < count && aLine[order[last]] == aLine[order[first]] )
+          last++;
+
+        _lines[l] = aLine[order[first]];
+        buildLine(l, order, first, last);
+        first = last;
+      }
+
+      for ( int i = _size - 1; i > 0; i-- )
+      {
+        _minEnd[i] = Math.min(_minEnd[2 * i], _minEnd[2 * i + 1]);
+        _maxStart[i] = Math.max(_maxStart[2 * i], _maxStart[2 * i + 1]);
+      }
+    }
+
+    /**
+     * Finds the nearest widget, that ends before a start coordinate
+     */
+    int findBefore(int aLine, int aStart)
+    {
+      int lower = upperBound(aLine) - 1;
+      int upper = lower + 1;
+
+      lower = lastBelow(lower, aStart);
+      upper = firstBelow(upper, aStart);
+
+      int lowerResult = ( lower >= 0 ) ? bestBefore(lower, aStart) : - 1;
+      int upperResult = ( upper >= 0 ) ? bestBefore(upper, aStart) : - 1;
+
+      return choose(aLine, aStart, lower, lowerResult, upper, upperResult);
+    }
+
+    /**
+     * Finds the nearest widget, that starts after an end coordinate
+     */
+    int findAfter(int aLine, int aStart, int aEnd)
+    {
+      int lower = upperBound(aLine) - 1;
+      int upper = lower + 1;
+
+      lower = lastAbove(lower, aEnd);
+      upper = firstAbove(upper, aEnd);
+
+      int lowerResult = ( lower >= 0 ) ? bestAfter(lower, aEnd) : - 1;
+      int upperResult = ( upper >= 0 ) ? bestAfter(upper, aEnd) : - 1;
+
+      return choose(aLine, aStart, lower, lowerResult, upper, upperResult);
+    }
+
+    /**
+     * Chooses between the best widgets of the nearest line on either side
+     */
+    private int choose(int aLine, int aStart, int aLower, int aLowerResult, int aUpper, int aUpperResult)
+    {
+      if ( aLowerResult < 0 )
+        return aUpperResult;
+      if ( aUpperResult < 0 )
+        return aLowerResult;
+
+      int lowerDistance = aLine - _lines[aLower];
+      int upperDistance = _lines[aUpper] - aLine;
+      if ( lowerDistance != upperDistance )
+        return ( lowerDistance < upperDistance ) ? aLowerResult : aUpperResult;
+
+      int lowerSecondary = Math.abs(_start[aLowerResult] - aStart);
+      int upperSecondary = Math.abs(_start[aUpperResult] - aStart);
+      if ( lowerSecondary != upperSecondary )
+        return ( lowerSecondary < upperSecondary ) ? aLowerResult : aUpperResult;
+
+      return Math.min(aLowerResult, aUpperResult);
+    }
+
+    private void buildLine(int aLine, int[] aOrder, int aFirst, int aLast)
+    {
+      int size = aLast - aFirst;
+      int[] start = _start;
+      int[] end = _end;
+
+      _byEnd[aLine] = sort(end, aOrder, aFirst, aLast);
+      _bestBefore[aLine] = new int[size];
+      for ( int i = 0; i < size; i++ )
+      {
+        int widget = _byEnd[aLine][i];
+
+        int best = ( i > 0 ) ? _bestBefore[aLine][i - 1] : widget;
+        if ( start[widget] > start[best] || ( start[widget] == start[best] && widget < best ) )
+          best = widget;
+        _bestBefore[aLine][i] = best;
+      }
+
+      _byStart[aLine] = sort(start, aOrder, aFirst, aLast);
+
+      _minEnd[_size + aLine] = end[_byEnd[aLine][0]];
+      _maxStart[_size + aLine] = start[_byStart[aLine][size - 1]];
+    }
+
+    /**
+     * Sorts widgets by a coordinate, widgets with the same coordinate by their index
+     *
+     * @param aKey the coordinate of every widget
+     * @param aWidgets the widgets to sort, <code>null</code> for all widgets
+     * @param aFirst the first position in <code>aWidgets</code>
+     * @param aLast the position after the last one in <code>aWidgets</code>
+     *
+     * @return the sorted widgets
+     */
+    private static int[] sort(int[] aKey, int[] aWidgets, int aFirst, int aLast)
+    {
+      long[] keys = new long[aLast - aFirst];
+      for ( int i = 0; i < keys.length; i++ )
+      {
+        int widget = ( aWidgets != null ) ? aWidgets[aFirst + i] : aFirst + i;
+        keys[i] = ( (long)aKey[widget] << 32 ) | widget;
+      }
+
+      Arrays.sort(keys);
+
+      int[] result = new int[keys.length];
+      for ( int i = 0; i < keys.length; i++ )
+        result[i] = (int)keys[i];
+      return result;
+    }
+
+    /**
+     * @return the widget of a line, that ends before a coordinate and has the greatest start, or -1
+     */
+    private int bestBefore(int aLine, int aStart)
+    {
+      int[] widgets = _byEnd[aLine];
+      int low = 0;
+      int high = widgets.length;
+
+      while ( low < high )
+      {
+        int middle = ( low + high ) >>> 1;
+        if ( _end[widgets[middle]] < aStart )
+          low = middle + 1;
+        else
+          high = middle;
+      }
+
+      return ( low > 0 ) ? _bestBefore[aLine][low - 1] : - 1;
+    }
+
+    /**
+     * @return the widget of a line, that starts after a coordinate and has the least start, or -1
+     */
+    private int bestAfter(int aLine, int aEnd)
+    {
+      int[] widgets = _byStart[aLine];
+      int low = 0;
+      int high = widgets.length;
+
+      while ( low < high )
+      {
+        int middle = ( low + high ) >>> 1;
+        if ( _start[widgets[middle]] <= aEnd )
+          low = middle + 1;
+        else
+          high = middle;
+      }
+
+      return ( low < widgets.length ) ? widgets[low] : - 1;
+    }
+
+    /**
+     * @return the number of lines with a coordinate not greater than the given one
+     */
+    private int upperBound(int aLine)
+    {
+      int low = 0;
+      int high = _lines.length;
+
+      while ( low < high )
+      {
+        int middle = ( low + high ) >>> 1;
+        if ( _lines[middle] <= aLine )
+          low = middle + 1;
+        else
+          high = middle;
+      }
+
+      return low;
+    }
+
+    /**
+     * @return the last line up to <code>aFrom</code>, that has a widget ending before <code>aStart</code>, or -1
+     */
+    private int lastBelow(int aFrom, int aStart)
+    {
+      return search(aFrom, - 1, _minEnd, aStart, true);
+    }
+
+    /**
+     * @return the first line from <code>aFrom</code> on, that has a widget ending before <code>aStart</code>, or -1
+     */
+    private int firstBelow(int aFrom, int aStart)
+    {
+      return search(aFrom, 1, _minEnd, aStart, true);
+    }
+
+    /**
+     * @return the last line up to <code>aFrom</code>, that has a widget starting after <code>aEnd</code>, or -1
+     */
+    private int lastAbove(int aFrom, int aEnd)
+    {
+      return search(aFrom, - 1, _maxStart, aEnd, false);
+    }
+
+    /**
+     * @return the first line from <code>aFrom</code> on, that has a widget starting after <code>aEnd</code>, or -1
+     */
+    private int firstAbove(int aFrom, int aEnd)
+    {
+      return search(aFrom, 1, _maxStart, aEnd, false);
+    }
+
+    /**
+     * Searches the tree for the nearest line from a position on in a direction, whose value is less than ( or greater than, if
+     * <code>aLess</code> is false ) a limit. Walks up from the position, until a subtree on the searched side contains a
+     * matching line, and then down into this subtree.
+     */
+    private int search(int aFrom, int aStep, int[] aTree, int aLimit, boolean aLess)
+    {
+      if ( aFrom < 0 || aFrom >= _lines.length )
+        return - 1;
+
+      int node = _size + aFrom;
+      if ( matches(aTree[node], aLimit, aLess) )
+        return aFrom;
+
+      // walk up, until the sibling on the searched side matches
+      while ( node > 1 )
+      {
+        boolean isLeft = ( node & 1 ) == 0;
+        int sibling = node ^ 1;
+
+        if ( ( aStep > 0 ) == isLeft && matches(aTree[sibling], aLimit, aLess) )
+        {
+          node = sibling;
+          break;
+        }
+        node >>= 1;
+      }
+
+      if ( node <= 1 )
+        return - 1;
+
+      // walk down to the nearest matching leaf
+      while ( node < _size )
+      {
+        int near = ( aStep > 0 ) ? 2 * node : 2 * node + 1;
+        node = matches(aTree[near], aLimit, aLess) ? near : near ^ 1;
+      }
+
+      return node - _size;
+    }
+
+    private static boolean matches(int aValue, int aLimit, boolean aLess)
+    {
+      return aLess ? aValue < aLimit : aValue > aLimit;
+    }
+  }
+}
@@ -43,6 +43,7 @@ public class Label extends Widget {
 		if (_label == null) {
 			_label = "";
 		}
+		invalidate();
 	}
 
 	/**
@@ -65,7 +66,7 @@ public class Label extends Widget {
 
 		int mWide = 0;
 		for (int mIdx = 0; mIdx < mLines.length; mIdx++) {
-			mWide = Math.max(mWide, mLines[mIdx].length());
+			mWide = Math.max(mWide, TextUtils.getDisplayWidth(mLines[mIdx]));
 		}
 
 		return new Rectangle(mWide, mLines.length);
@@ -8,6 +8,7 @@ import jcurses.event.ItemListener;
 import jcurses.event.ItemListenerManager;
 import jcurses.system.CharColor;
 import jcurses.system.InputChar;
+import jcurses.system.MouseInput;
 import jcurses.system.Toolkit;
 import jcurses.themes.Theme;
 import jcurses.util.Paging;
@@ -401,7 +402,7 @@ public class List extends Widget implements IScrollable
     _selected.add(pos, new Boolean(false));
     reset();
     if ( isVisible(pos) )
-      refresh();
+      invalidate();
   }
 
   /**
@@ -432,7 +433,7 @@ public class List extends Widget implements IScrollable
     _items.clear();
     _selected.clear();
     reset();
-    refresh();
+    invalidate();
   }
 
   /**
@@ -471,8 +472,7 @@ public class List extends Widget implements IScrollable
     _items.remove(pos);
     _selected.remove(pos);
     reset();
-    if ( isVisible() )
-      refresh();
+    invalidate();
   }
 
   /**
@@ -488,8 +488,7 @@ public class List extends Widget implements IScrollable
     {
       _items.remove(index);
       _selected.remove(index);
-      if ( isVisible() )
-        refresh();
+      invalidate();
     }
   }
 
@@ -668,6 +667,87 @@ public class List extends Widget implements IScrollable
     return false;
   }
 
+  /**
+   * A click tracks the clicked item, the wheel scrolls the items without moving the track.
+   */
+  protected boolean handleMouse(MouseInput mouse)
+  {
+    if ( _items.size() == 0 )
+      return false;
+
+    if ( mouse.isWheel() )
+    {
+      int step = ( mouse.getType() == MouseInput.WHEEL_UP ) ? - WHEEL_STEP : WHEEL_STEP;
+      int startIndex = Math.max(0, Math.min(_startIndex + step, _items.size() - getVisibleSize()));
+
+      if ( startIndex == _startIndex )
+        return false;
+
+      _startIndex = startIndex;
+      paintAfterInput();
+      return true;
+    }
+
+    if ( ( mouse.getType() == MouseInput.PRESSED ) && ( mouse.getButton() == MouseInput.BUTTON_LEFT ) )
+    {
+      int index = _startIndex + mouse.getY() - ( getRectangle().getY() + 1 );
+
+      if ( ( index < _startIndex ) || ( index >= _startIndex + getVisibleSize() ) || ( index >= _items.size() ) || ! isSelectable(index) )
+        return false;
+
+      int backupStartIndex = _startIndex;
+      int backupTrackedIndex = _trackedIndex;
+
+      // without page alignment, the view stays where it is
+      if ( findNextSelectableItem(index, 1, true, 1) )
+        redraw(( backupStartIndex == _startIndex ), _trackedIndex, backupTrackedIndex);
+
+      return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * Moves the track by all repetitions of a navigation key at once and redraws the list only once.
+   */
+  protected int handleRepeatedInput(InputChar ch, int count)
+  {
+    int code = ch.getCode();
+
+    if ( ( _items.size() == 0 )
+        || ! ( ( code == InputChar.KEY_UP ) || ( code == InputChar.KEY_DOWN ) || ( code == InputChar.KEY_NPAGE ) || ( code == InputChar.KEY_PPAGE ) ) )
+      return super.handleRepeatedInput(ch, count);
+
+    int backupStartIndex = _startIndex;
+    int backupTrackedIndex = _trackedIndex;
+    boolean moved = false;
+
+    for ( int i = 0; i < count; i++ )
+    {
+      boolean step;
+
+      if ( code == InputChar.KEY_UP )
+        step = decrementTrack();
+      else if ( code == InputChar.KEY_DOWN )
+        step = incrementTrack();
+      else if ( code == InputChar.KEY_NPAGE )
+        step = incrementPage();
+      else
+        step = decrementPage();
+
+      if ( ! step )
+        break;
+
+      moved = true;
+    }
+
+    if ( moved )
+      redraw(( backupStartIndex == _startIndex ), _trackedIndex, backupTrackedIndex);
+
+    return count;
+  }
+
   protected void unfocus()
   {
     redrawSelectedItems();
@@ -1000,7 +1080,10 @@ public class List extends Widget implements IScrollable
     {
       //System.err.println("Repaint");
       //paint();
-      drawItems();
+      if ( WindowManager.isTypingAhead() )
+        invalidate();
+      else
+        drawItems();
     }
   }
 
@@ -0,0 +1,831 @@
+/* -*- tab-width: 8; indent-tabs-mode: t; c-basic-offset: 8 -*- */
+
+package jcurses.widgets;
+
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jcurses.event.WindowManagerBlockingCondition;
+import jcurses.system.InputChar;
+import jcurses.system.Terminal;
+import jcurses.system.TerminalBackend;
+import jcurses.system.Toolkit;
+import jcurses.themes.DefaultThemeImpl;
+import jcurses.themes.Theme;
+import jcurses.util.DamageRegion;
+import jcurses.util.Rectangle;
+import jcurses.util.ThreadUtils;
+
+/**
+ * A screen is one session of jcurses: a {@link Terminal} together with the stack of the windows shown on it, the input thread
+ * dispatching its input and its theme. An application using one terminal never needs this class, its windows are shown on the
+ * default screen.
+ * <p>
+ * Windows are shown on the screen bound to the thread, that creates them, see <code>setCurrent</code>. The input thread of a screen
+ * is bound to it, so windows created while handling input, for example dialogs, are shown on the same screen. A server, that
+ * drives many terminals in one JVM, creates a screen for every session and creates the first window of the session in a thread bound
+ * to the screen:
+ *
+ * <pre>
+ * Screen screen = new Screen(backend);
+ * Screen.setCurrent(screen);
+ * new MainWindow().show();
+ * </pre>
+ * <p>
+ * The input thread of such a screen is a virtual thread, if the JVM supports them and the backend doesn't wait for input in native
+ * code, see {@link jcurses.util.ThreadUtils}. So an idle session doesn't cost a platform thread. A virtual thread doesn't keep the
+ * JVM alive, the server owning the screens does. The input thread of the default screen is always a platform thread, that keeps
+ * the application running, while windows are shown.
+ */
+public class Screen
+{
+  private static final InheritableThreadLocal<Screen> __current = new InheritableThreadLocal<Screen>();
+  private static Screen                               __default = null;
+  private static final int                            MAX_REPEAT = 256;
+  private static final int                            MAX_BATCH  = 1024;
+
+  private final Terminal                              _terminal;
+  private Vector<Window>                              _windowsStack     = null;
+  private Window                                      _topVisibleWindow = null;
+  private WindowManagerInputThread                    _inthread         = new WindowManagerInputThread(this);
+  private Theme                                       _theme            = new DefaultThemeImpl();
+  private DamageRegion                                _damage           = new DamageRegion();
+  private final Object                                _damageLock       = new Object();
+  private final ReentrantLock                         _lock             = new ReentrantLock();
+  private volatile int                                _maxFrameRate     = 30;
+  private volatile long                               _lastFrame        = 0;
+  private Vector<Runnable>                            _tasks            = new Vector<Runnable>();
+  private volatile boolean                            _typingAhead      = false;
+
+  /**
+   * The constructor
+   *
+   * @param aBackend the backend of the terminal of the screen
+   */
+  public Screen(TerminalBackend aBackend)
+  {
+    this(new Terminal(aBackend));
+  }
+
+  /**
+   * The constructor
+   *
+   * @param aTerminal the terminal of the screen
+   */
+  public Screen(Terminal aTerminal)
+  {
+    _terminal = aTerminal;
+  }
+
+  /**
+   * @return the screen used by threads, that aren't bound to a screen. It is created on the first call and uses the default
+   *         terminal.
+   */
+  public static synchronized Screen getDefault()
+  {
+    if ( __default == null )
+      __default = new Screen(Terminal.getDefault());
+    return __default;
+  }
+
+  /**
+   * @return the screen bound to the current thread, or the default screen, if the thread isn't bound
+   */
+  public static Screen getCurrent()
+  {
+    Screen mResult = __current.get();
+    return ( mResult != null ) ? mResult : getDefault();
+  }
+
+  /**
+   * Binds a screen and its terminal to the current thread. The binding is inherited by the threads started by the current thread
+   * afterwards.
+   *
+   * @param aScreen the screen, <code>null</code> to use the default screen
+   * @return the screen bound before, or <code>null</code>, if the thread wasn't bound, to be restored later
+   */
+  public static Screen setCurrent(Screen aScreen)
+  {
+    Screen mResult = __current.get();
+    __current.set(aScreen);
+    Terminal.setCurrent(( aScreen != null ) ? aScreen._terminal : null);
+    return mResult;
+  }
+
+  /**
+   * Binds this screen to the current thread, if another screen is bound
+   *
+   * @return the screen bound before, to be passed to <code>leave</code>
+   */
+  private Screen enter()
+  {
+    Screen mPrevious = __current.get();
+    if ( mPrevious != this )
+      setCurrent(this);
+    return mPrevious;
+  }
+
+  /**
+   * Restores the binding changed by <code>enter</code>
+   *
+   * @param aPrevious the value returned by <code>enter</code>
+   */
+  private void leave(Screen aPrevious)
+  {
+    if ( aPrevious != this )
+      setCurrent(aPrevious);
+  }
+
+  /**
+   * @return the terminal of the screen
+   */
+  public Terminal getTerminal()
+  {
+    return _terminal;
+  }
+
+  /**
+   * @return the number of windows on the screen
+   */
+  public int getWindowCount()
+  {
+    _lock.lock();
+    try
+    {
+      return ( _windowsStack == null ) ? 0 : _windowsStack.size();
+    }
+    finally
+    {
+      _lock.unlock();
+    }
+  }
+
+  public boolean isInputThread()
+  {
+    return _inthread.isCurrentThread();
+  }
+
+  public void blockInputThread(WindowManagerBlockingCondition cond)
+  {
+    _inthread.block(cond);
+  }
+
+  /**
+   * Closes all windows of the screen. The terminal is shut down, when the last window is closed.
+   */
+  public void closeAll()
+  {
+    _lock.lock();
+    try
+    {
+      if ( _windowsStack == null )
+        return;
+
+      Screen mPrevious = enter();
+      try
+      {
+        while ( _windowsStack != null && ! _windowsStack.isEmpty() )
+          removeWindow(_windowsStack.get(_windowsStack.size() - 1));
+      }
+      finally
+      {
+        leave(mPrevious);
+      }
+    }
+    finally
+    {
+      _lock.unlock();
+    }
+  }
+
+  private void init()
+  {
+    _lock.lock();
+    try
+    {
+      _windowsStack = new Vector<Window>();
+      _terminal.init();
+      Toolkit.clearScreen(_theme.getColor(Theme.COLOR_DEFAULT));
+      startInputThread();
+    }
+    finally
+    {
+      _lock.unlock();
+    }
+  }
+
+  protected void establishTopWindow()
+  {
+    int mIdx;
+    for ( mIdx = _windowsStack.size() - 1; mIdx >= 0; mIdx-- )
+      if ( _windowsStack.elementAt(mIdx).isVisible() )
+        break;
+
+    Window mWindow = ( mIdx == - 1 ) ? null : _windowsStack.elementAt(mIdx);
+
+    if ( mWindow != _topVisibleWindow )
+    {
+      if ( _topVisibleWindow != null )
+        _topVisibleWindow.deactivate();
+      _topVisibleWindow = mWindow;
+      if ( _topVisibleWindow != null )
+        _topVisibleWindow.activate();
+    }
+  }
+
+  protected void createWindow(Window aWindow)
+  {
+    Screen mPrevious = enter();
+    try
+    {
+      if ( _windowsStack == null )
+        init();
+
+      if ( ! _windowsStack.contains(aWindow) )
+        _windowsStack.add(aWindow);
+    }
+    finally
+    {
+      leave(mPrevious);
+    }
+  }
+
+  /**
+   * Dispatches an input event, that was typed several times in a row, to the top window. All repetitions are handled in one
+   * painting action, so that the physical screen is refreshed only once.
+   *
+   * @param input the input event
+   * @param count the number of repetitions
+   */
+  protected void handleInput(InputChar input, int count)
+  {
+    _lock.lock();
+    try
+    {
+      if ( _topVisibleWindow != null )
+      {
+        Toolkit.startPainting();
+        try
+        {
+          _topVisibleWindow.handleInput(input, count);
+        }
+        catch (Throwable e)
+        {
+          e.printStackTrace();
+        }
+        finally
+        {
+          Toolkit.endPainting();
+        }
+      }
+    }
+    finally
+    {
+      _lock.unlock();
+    }
+  }
+
+  /**
+   * Lays out the windows again after the terminal was resized and repaints the whole screen once. Only windows, whose layout
+   * depends on the screen size, are packed again.
+   */
+  private void handleResize()
+  {
+    _lock.lock();
+    try
+    {
+      synchronized ( _damageLock )
+      {
+        _damage.clear();
+      }
+
+      Toolkit.startPainting();
+      try
+      {
+        for ( int i = 0; i < _windowsStack.size(); i++ )
+          _windowsStack.elementAt(i).screenResized();
+
+        repaintWindows((Rectangle)null);
+      }
+      catch (Throwable e)
+      {
+        e.printStackTrace();
+      }
+      finally
+      {
+        Toolkit.endPainting();
+      }
+    }
+    finally
+    {
+      _lock.unlock();
+    }
+  }
+
+  protected void doWindowVisibilityChange(Window aWindow)
+  {
+    Screen mPrevious = enter();
+    try
+    {
+      checkWindow(aWindow);
+      establishTopWindow();
+      repaintWindows(aWindow.getRectangle());
+    }
+    finally
+    {
+      leave(mPrevious);
+    }
+  }
+
+  protected void removeWindow(Window aWindow)
+  {
+    Screen mPrevious = enter();
+    try
+    {
+      checkWindow(aWindow);
+      _windowsStack.remove(aWindow);
+      aWindow.closed();
+      if ( _windowsStack.isEmpty() )
+        shutdown();
+    }
+    finally
+    {
+      leave(mPrevious);
+    }
+  }
+
+  private void checkWindow(Window aWindow)
+  {
+    if ( _windowsStack == null || ! _windowsStack.contains(aWindow) )
+      throw new IllegalArgumentException("Window [" + aWindow
+          + "] not found - Can not use a window before call to createWindow() or after call to removeWindow()");
+  }
+
+  protected void moveToTop(Window aWindow)
+  {
+    Screen mPrevious = enter();
+    try
+    {
+      checkWindow(aWindow);
+
+      _windowsStack.remove(aWindow);
+      _windowsStack.add(aWindow);
+
+      if ( aWindow.isVisible() )
+      {
+        establishTopWindow();
+        repaintWindows(aWindow.getRectangle());
+      }
+    }
+    finally
+    {
+      leave(mPrevious);
+    }
+  }
+
+  /**
+   * Executes a runnable synchronized with the input thread of the screen, with the screen bound to the current thread. All painting
+   * of the runnable is collected in one painting action.
+   *
+   * @param r a <code>Runnable</code> containing the code to be executed in a thread-safe manner.
+   */
+  public void invokeAndWait(Runnable r)
+  {
+    _lock.lock();
+    try
+    {
+      Screen mPrevious = enter();
+      Toolkit.startPainting();
+      try
+      {
+        r.run();
+      }
+      finally
+      {
+        Toolkit.endPainting();
+        leave(mPrevious);
+      }
+    }
+    finally
+    {
+      _lock.unlock();
+    }
+    invalidateRecolored();
+  }
+
+  /**
+   * Marks the area of the screen as damaged, whose color pairs were redefined by the terminal to paint other colors. The cells
+   * of a redefined pair show the new colors, until their widgets are repainted.
+   */
+  private void invalidateRecolored()
+  {
+    Rectangle mArea = _terminal.takeRecoloredArea();
+    if ( mArea != null )
+      invalidate(mArea);
+  }
+
+  /**
+   * Queues a runnable to be executed by the input thread of the screen and wakes the input thread up.
+   *
+   * @param r the runnable
+   */
+  public void invokeLater(Runnable r)
+  {
+    _tasks.add(r);
+    _terminal.wakeup();
+  }
+
+  // called with the lock of the screen held
+  private void deactivateInputThread()
+  {
+    _inthread.deactivate();
+  }
+
+  /**
+   * Repaints the windows within a rectangle. Windows are visited from the top of the stack downwards, the area covered by each
+   * window is cut from the damaged region, so that every window is painted only where it is actually visible and windows hidden
+   * completely behind others are not painted at all.
+   *
+   * @param aClip the rectangle to repaint, <code>null</code> for the whole screen
+   */
+  private void repaintWindows(Rectangle aClip)
+  {
+    repaintWindows(new DamageRegion(( aClip != null ) ? aClip : Toolkit.getScreen()));
+  }
+
+  /**
+   * Repaints the windows within a region.
+   *
+   * @param aDamage the region to repaint, the region is consumed by the method
+   */
+  private void repaintWindows(DamageRegion aDamage)
+  {
+    DamageRegion mDamage = aDamage;
+    DamageRegion[] mVisibleParts = new DamageRegion[_windowsStack.size()];
+
+    for ( int i = _windowsStack.size() - 1; i >= 0 && ! mDamage.isEmpty(); i-- )
+    {
+      Window mWindow = _windowsStack.elementAt(i);
+      if ( mWindow.isVisible() )
+      {
+        mVisibleParts[i] = mDamage.intersection(mWindow.getClipRectangle());
+        mDamage.subtract(mWindow.getRectangle());
+      }
+    }
+
+    Toolkit.startPainting();
+    try
+    {
+      List<Rectangle> mBackground = mDamage.getRectangles();
+      for ( int i = 0; i < mBackground.size(); i++ )
+        Toolkit.drawRectangle(mBackground.get(i), _theme.getColor(Theme.COLOR_DEFAULT));
+
+      for ( int i = 0; i < mVisibleParts.length; i++ )
+      {
+        if ( mVisibleParts[i] == null )
+          continue;
+
+        Window mWindow = _windowsStack.elementAt(i);
+        List<Rectangle> mParts = mVisibleParts[i].getRectangles();
+        for ( int j = 0; j < mParts.size(); j++ )
+        {
+          Toolkit.setClipRectangle(mParts.get(j));
+          try
+          {
+            mWindow.paint();
+          }
+          finally
+          {
+            Toolkit.unsetClipRectangle();
+          }
+        }
+      }
+    }
+    finally
+    {
+      Toolkit.endPainting();
+    }
+  }
+
+  /**
+   * Marks a rectangle of the screen as damaged. The rectangle will be repainted with the next frame.
+   *
+   * @param aRect the damaged rectangle
+   */
+  void invalidate(Rectangle aRect)
+  {
+    synchronized ( _damageLock )
+    {
+      _damage.add(aRect);
+    }
+
+    if ( ! isInputThread() )
+      _terminal.wakeup();
+  }
+
+  /**
+   * Waits for the next input event and dispatches it together with all events, that were typed ahead meanwhile. All events of a
+   * batch are handled in one painting action, so the screen is refreshed once after the batch instead of once per key, and a
+   * slow terminal can't make the input queue grow. Repetitions of a navigation key are collapsed into one event.
+   */
+  void readAndHandleInput()
+  {
+    InputChar inputChar = Toolkit.readCharacter();
+
+    if ( inputChar == null )
+      return;
+
+    _typingAhead = Toolkit.hasPendingInput();
+    Toolkit.startPainting();
+    try
+    {
+      int mEvents = 0;
+      while ( inputChar != null )
+      {
+        int count = 1;
+        if ( isRepeatable(inputChar) )
+          count += Toolkit.skipRepeats(inputChar, MAX_REPEAT - 1);
+
+        if ( inputChar.getCode() == InputChar.KEY_RESIZE )
+          handleResize();
+        else
+          handleInput(inputChar, count);
+        mEvents++;
+
+        inputChar = ( mEvents < MAX_BATCH && Toolkit.hasPendingInput() ) ? Toolkit.readCharacter() : null;
+      }
+    }
+    finally
+    {
+      _typingAhead = false;
+      Toolkit.endPainting();
+    }
+  }
+
+  /**
+   * @return true, if a batch of more than one typed ahead input event is being dispatched. Widgets invalidate themselves instead
+   *         of painting in this case, so they are painted only once after the batch.
+   */
+  boolean isTypingAhead()
+  {
+    return _typingAhead;
+  }
+
+  private static boolean isRepeatable(InputChar aChar)
+  {
+    int mCode = aChar.getCode();
+    return ( mCode == InputChar.KEY_UP ) || ( mCode == InputChar.KEY_DOWN ) || ( mCode == InputChar.KEY_LEFT )
+        || ( mCode == InputChar.KEY_RIGHT ) || ( mCode == InputChar.KEY_NPAGE ) || ( mCode == InputChar.KEY_PPAGE );
+  }
+
+  /**
+   * Executes the runnables queued by <code>invokeLater</code>. Called by the input thread.
+   */
+  void runQueuedTasks()
+  {
+    while ( ! _tasks.isEmpty() )
+    {
+      Runnable mTask = _tasks.remove(0);
+      try
+      {
+        invokeAndWait(mTask);
+      }
+      catch (Throwable e)
+      {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * Repaints all rectangles invalidated since the last frame. If the last frame was painted less than a frame period ago, the
+   * method waits until the period is over, so that the screen is repainted at most with the maximum frame rate.
+   */
+  void paintInvalidated()
+  {
+    invalidateRecolored();
+    synchronized ( _damageLock )
+    {
+      if ( _damage.isEmpty() )
+        return;
+    }
+
+    int mRate = _maxFrameRate;
+    if ( mRate > 0 )
+    {
+      long mWait = _lastFrame + ( 1000 / mRate ) - System.currentTimeMillis();
+      if ( mWait > 0 )
+      {
+        try
+        {
+          Thread.sleep(mWait);
+        }
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    _lock.lock();
+    try
+    {
+      DamageRegion mDamage;
+      synchronized ( _damageLock )
+      {
+        mDamage = _damage;
+        _damage = new DamageRegion();
+      }
+
+      if ( _windowsStack != null && ! mDamage.isEmpty() )
+        repaintWindows(mDamage);
+
+      _lastFrame = System.currentTimeMillis();
+    }
+    finally
+    {
+      _lock.unlock();
+    }
+  }
+
+  /**
+   * Sets the maximum number of frames per second, with which invalidated widgets are repainted
+   *
+   * @param aFramesPerSecond the maximum frame rate, 0 or less for no limit
+   */
+  public void setMaxFrameRate(int aFramesPerSecond)
+  {
+    _maxFrameRate = aFramesPerSecond;
+  }
+
+  /**
+   * @return the maximum frame rate, 0 or less for no limit
+   */
+  public int getMaxFrameRate()
+  {
+    return _maxFrameRate;
+  }
+
+  private void shutdown()
+  {
+    _lock.lock();
+    try
+    {
+      deactivateInputThread();
+      stopInputThread();
+      _windowsStack = null;
+      _topVisibleWindow = null;
+      Toolkit.clearScreen(_theme.getColor(Theme.COLOR_DEFAULT));
+      _terminal.shutdown();
+    }
+    finally
+    {
+      _lock.unlock();
+    }
+  }
+
+  // called with the lock of the screen held
+  private void startInputThread()
+  {
+    _inthread.start();
+  }
+
+  /**
+   * @return true, if the input thread of the screen may be a virtual thread: the screen isn't the default screen and its backend
+   *         doesn't wait for input in native code
+   */
+  boolean isVirtualInputThread()
+  {
+    return ! isDefault(this) && ! _terminal.getBackend().isNativeWait();
+  }
+
+  private static synchronized boolean isDefault(Screen aScreen)
+  {
+    return ( aScreen == __default );
+  }
+
+  // called with the lock of the screen held
+  private void stopInputThread()
+  {
+    _inthread.end();
+    _inthread = new WindowManagerInputThread(this);
+  }
+
+  public Theme getTheme()
+  {
+    return _theme;
+  }
+
+  public void setTheme(Theme aTheme)
+  {
+    _theme = aTheme;
+  }
+}
+
+class WindowManagerInputThread implements Runnable // extends Thread
+{
+  private final Screen _screen;
+  private Thread       thd;
+  private boolean      _read = true;
+  private boolean      _run  = true;
+
+  WindowManagerInputThread(Screen aScreen)
+  {
+    _screen = aScreen;
+  }
+
+  public void run()
+  {
+    Screen.setCurrent(_screen);
+
+    while ( waitForReading() )
+    {
+      _screen.readAndHandleInput();
+      _screen.runQueuedTasks();
+      _screen.paintInvalidated();
+    }
+  }
+
+  /**
+   * Blocks while the thread is running but deactivated
+   *
+   * @return true if input is to be read, false if the thread is to end
+   */
+  private synchronized boolean waitForReading()
+  {
+    while ( _run && ! _read )
+    {
+      try
+      {
+        wait();
+      }
+      catch (InterruptedException e)
+      {
+        return false;
+      }
+    }
+
+    return _run;
+  }
+
+  public synchronized void start()
+  {
+    if ( thd == null )
+    {
+      thd = ThreadUtils.newThread(this, "jcurses-input", _screen.isVirtualInputThread());
+      thd.start();
+    }
+  }
+
+  protected boolean isCurrentThread()
+  {
+    return ( Thread.currentThread() == thd );
+  }
+
+  protected synchronized boolean isReading()
+  {
+    return _read;
+  }
+
+  protected synchronized boolean isRunning()
+  {
+    return _run;
+  }
+
+  protected void block(WindowManagerBlockingCondition cond)
+  {
+    int mDepth = Toolkit.suspendPainting();
+
+    try
+    {
+      while ( cond.evaluate() && isRunning() )
+      {
+        if ( isReading() )
+          _screen.readAndHandleInput();
+
+        _screen.runQueuedTasks();
+        _screen.paintInvalidated();
+      }
+    }
+    finally
+    {
+      Toolkit.resumePainting(mDepth);
+    }
+  }
+
+  protected synchronized void deactivate()
+  {
+    _read = false;
+    notifyAll();
+    _screen.getTerminal().wakeup();
+  }
+
+  protected synchronized void end()
+  {
+    _run = false;
+    thd = null;
+    notifyAll();
+    _screen.getTerminal().wakeup();
+  }
+}
@@ -7,6 +7,7 @@ import jcurses.event.ValueChangedListenerManager;
 
 import jcurses.system.CharColor;
 import jcurses.system.InputChar;
+import jcurses.system.MouseInput;
 import jcurses.system.Toolkit;
 
 import jcurses.util.Paging;
@@ -419,9 +420,26 @@ public class TextComponent extends Widget
 
       return true;
     }
+    else if ( ch.getCode() == InputChar.KEY_PASTE )
+    {
+      if ( ! isEditable() )
+        return true;
+
+      String text = filterPastedText(ch.getText());
+      insertTextAtCursorLocation(text);
+
+      int lastBreak = text.lastIndexOf('\n');
+      if ( lastBreak == - 1 )
+        setCursorLocation(_cursPosX + text.length(), _cursPosY);
+      else
+        setCursorLocation(text.length() - lastBreak - 1, _cursPosY + countLineBreaks(text));
+
+      paintAfterInput();
+      return true;
+    }
     else if ( ! ch.isSpecialCode() )
     {
-      char c = ch.getCharacter();
+      int c = ch.getCode();
       insertCharAtCursorLocation(c);
 
       if ( c == '\n' )
@@ -431,7 +449,7 @@ public class TextComponent extends Widget
       }
       else
       {
-        setCursorLocation(_cursPosX + 1, _cursPosY);
+        setCursorLocation(_cursPosX + Character.charCount(c), _cursPosY);
         redrawLine(_cursPosY);
       }
 
@@ -441,6 +459,56 @@ public class TextComponent extends Widget
     return false;
   }
 
+  /**
+   * A click moves the cursor to the clicked character, the wheel scrolls the text without moving the cursor.
+   */
+  protected boolean handleMouse(MouseInput mouse)
+  {
+    Rectangle rect = getTextRectangle();
+
+    if ( mouse.isWheel() )
+    {
+      int step = ( mouse.getType() == MouseInput.WHEEL_UP ) ? - WHEEL_STEP : WHEEL_STEP;
+      int firstLine = Math.max(0, Math.min(_firstLine + step, getTextHeight() - rect.getHeight()));
+
+      if ( firstLine == _firstLine )
+        return false;
+
+      _firstLine = firstLine;
+      paintAfterInput();
+      return true;
+    }
+
+    if ( ( mouse.getType() == MouseInput.PRESSED ) && ( mouse.getButton() == MouseInput.BUTTON_LEFT )
+        && rect.contains(mouse.getX(), mouse.getY(), 1, 1) )
+    {
+      int bCursorPosX = _cursPosX;
+      int bCursorPosY = _cursPosY;
+      int bFirstChar = _firstChar;
+      int bFirstLine = _firstLine;
+      char bChar = getCharacterAtCursorPosition();
+
+      setCursorLocation(_firstChar + mouse.getX() - rect.getX(), _firstLine + mouse.getY() - rect.getY());
+      redrawAfterCursorMove(bCursorPosX, bCursorPosY, bFirstChar, bFirstLine, bChar);
+      return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * This method is called before a pasted text is inserted. It can be overrided in derived classes to remove characters, that
+   * can't be inserted, for example line breaks in a single line component. Here the same text is returned.
+   * 
+   * @param text the pasted text, line breaks are <code>'\n'</code>
+   * 
+   * @return the text to insert
+   */
+  protected String filterPastedText(String text)
+  {
+    return text;
+  }
+
   /**
    * This method refreshes text-dependent additional after a text change such as scrollbars. As default it makes nothing, can be overriden in inherited classes (
    * for example text area)
@@ -655,6 +723,11 @@ public class TextComponent extends Widget
   {
     int x1 = x - _firstChar;
     int y1 = y - _firstLine;
+
+    // the cursor may be scrolled out of the view by the mouse wheel
+    if ( ! getTextRectangle().contains(getTextRectangle().getX() + x1, getTextRectangle().getY() + y1, 1, 1) )
+      return;
+
     String toPrint = ( c == 0 ) ? " " : replaceTextLineForPrinting("" + c);
     Toolkit.printString(toPrint, getTextRectangle().getX() + x1, getTextRectangle().getY() + y1, colors);
   }
@@ -697,20 +770,44 @@ public class TextComponent extends Widget
     drawText(0);
   }
 
-  private void insertCharAtCursorLocation(char c)
+  /**
+   * Inserts a whole text at once, the line index is rebuilt and the event is dispatched only once
+   */
+  private void insertTextAtCursorLocation(String text)
+  {
+    if ( text.length() == 0 )
+      return;
+
+    int pos = ( (Integer)_lines.get(_cursPosY) ).intValue() + _cursPosX;
+    _text.insert(pos, text);
+    updateText();
+  }
+
+  private static int countLineBreaks(String text)
+  {
+    int result = 0;
+
+    for ( int i = 0; i < text.length(); i++ )
+      if ( text.charAt(i) == '\n' )
+        result++;
+
+    return result;
+  }
+
+  private void insertCharAtCursorLocation(int c)
   {
     if ( ! isEditable() )
       return;
 
     int pos = ( (Integer)_lines.get(_cursPosY) ).intValue() + _cursPosX;
-    _text.insert(pos, c);
+    _text.insert(pos, Character.toChars(c));
     updateText();
   }
 
   private void redrawAfterCursorMove(int bCursorPosX, int bCursorPosY, int bFirstChar, int bFirstLine, char bChar)
   {
     if ( isTextChanged(bFirstChar, bFirstLine) )
-      paint();
+      paintAfterInput();
     else if ( isCursorChanged(bCursorPosX, bCursorPosY) )
     {
       redrawOldChar(bCursorPosX, bCursorPosY, bChar);
@@ -721,7 +818,7 @@ public class TextComponent extends Widget
   private void redrawAfterTextChange(int bCursorPosX, int bCursorPosY, int bFirstChar, int bFirstLine)
   {
     if ( isTextChanged(bFirstChar, bFirstLine) )
-      paint();
+      paintAfterInput();
     else if ( isCursorChanged(bCursorPosX, bCursorPosY) )
     {
       int y = Math.min(_cursPosY, bCursorPosY);
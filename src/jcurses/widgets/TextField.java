@@ -122,6 +122,14 @@ public class TextField extends TextComponent
     return false;
   }
 
+  /**
+   * Line breaks can't be inserted into a text field, they are replaced by blanks
+   */
+  protected String filterPastedText(String text)
+  {
+    return text.replace('\n', ' ');
+  }
+
   private String getDelimiterString()
   {
     if ( _delimiter == null )
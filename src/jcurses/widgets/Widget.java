@@ -8,6 +8,7 @@ import java.util.Vector;
 
 import jcurses.system.CharColor;
 import jcurses.system.InputChar;
+import jcurses.system.MouseInput;
 import jcurses.themes.Theme;
 import jcurses.themes.WindowThemeOverride;
 import jcurses.util.Rectangle;
@@ -23,6 +24,11 @@ import jcurses.util.Rectangle;
  */
 public abstract class Widget
 {
+  /**
+   * The number of lines scrolled by one step of the mouse wheel
+   */
+  static final int  WHEEL_STEP = 3;
+
   WidgetContainer   _parent  = null;
   Window            _window  = null;
   private Theme     _theme   = new WindowThemeOverride();
@@ -160,7 +166,11 @@ public abstract class Widget
    */
   public void setVisible(boolean visible)
   {
+    boolean changed = ( _visible != visible );
     _visible = visible;
+
+    if ( changed && ( getWindow() != null ) )
+      getWindow().invalidateWidgetGrid();
   }
 
   /**
@@ -413,6 +423,39 @@ public abstract class Widget
     return false;
   }
 
+  /**
+   * The method is called by the framework to let the widget handle an input char, that was typed several times in a row, for
+   * example while a cursor key is held down. The default implementation calls <code>handleInput</code> for every repetition.
+   * Derived classes can override the method to handle all repetitions at once and paint only the final state.
+   * 
+   * @param inputChar the input char
+   * @param count the number of repetitions
+   * 
+   * @return the number of handled repetitions, the remaining ones are handled by the window
+   */
+  protected int handleRepeatedInput(InputChar inputChar, int count)
+  {
+    for ( int i = 0; i < count; i++ )
+      if ( ! handleInput(inputChar) )
+        return i;
+
+    return count;
+  }
+
+  /**
+   * The method is called by the framework to let the widget handle a mouse event at a position within the widget. A press of a
+   * button has already moved the focus to the widget, if it is focusable. Wheel events don't move the focus. Events, that the
+   * widget doesn't handle, are passed to its container.
+   * 
+   * @param mouse the mouse event, the position is given in screen coordinates
+   * 
+   * @return true, if the widget has handled the event, false in other case
+   */
+  protected boolean handleMouse(MouseInput mouse)
+  {
+    return false;
+  }
+
   /**
    * The method is called by the framework to paint the widget
    */
@@ -434,6 +477,39 @@ public abstract class Widget
       doRepaint();
   }
 
+  /**
+   * Paints the whole widget after its content has changed in response to input. While typed ahead input is dispatched, the
+   * widget is invalidated instead, so it is painted only once after all pending input is handled.
+   */
+  protected void paintAfterInput()
+  {
+    if ( WindowManager.isTypingAhead() )
+      invalidate();
+    else
+      paint();
+  }
+
+  /**
+   * Marks the whole widget as damaged. The widget isn't painted immediately, all invalidations are collected and painted
+   * together with the next frame.
+   */
+  public void invalidate()
+  {
+    invalidate(getRectangle());
+  }
+
+  /**
+   * Marks a rectangle as damaged. The rectangle isn't painted immediately, all invalidations are collected and painted
+   * together with the next frame. Does nothing, if the widget isn't visible.
+   * 
+   * @param aRect the damaged rectangle in screen coordinates
+   */
+  public void invalidate(Rectangle aRect)
+  {
+    if ( isVisible() )
+      WindowManager.invalidate(getWindow(), aRect);
+  }
+
   /**
    * The method is called by <code>setFocus</code> to tell widget that it has lost focus. This method should be overridden by subclasses to react losing
    * focus, for example to repaint widget losing focus.
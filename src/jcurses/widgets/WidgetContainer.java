@@ -82,9 +82,9 @@ public abstract class WidgetContainer extends Widget
    * 
    * @return input widgets within container
    */
-  protected Vector getListOfFocusables()
+  protected Vector<Widget> getListOfFocusables()
   {
-    Vector result = new Vector();
+    Vector<Widget> result = new Vector<Widget>();
 
     for ( int i = 0; i < _widgets.size(); i++ )
     {
@@ -99,6 +99,31 @@ public abstract class WidgetContainer extends Widget
     return result;
   }
 
+  /**
+   * The method returns a list of all visible widgets within the container in painting order, every container precedes its
+   * children.
+   * 
+   * @return visible widgets within container
+   */
+  protected Vector<Widget> getListOfVisibleWidgets()
+  {
+    Vector<Widget> result = new Vector<Widget>();
+
+    for ( int i = 0; i < _widgets.size(); i++ )
+    {
+      Widget widget = (Widget)_widgets.elementAt(i);
+
+      if ( ! widget.getVisible() )
+        continue;
+
+      result.add(widget);
+      if ( widget instanceof WidgetContainer )
+        result.addAll(( (WidgetContainer)widget ).getListOfVisibleWidgets());
+    }
+
+    return result;
+  }
+
   /**
    * The method returns a list of widgets, that can handle shortcuts, within the container.
    * 
@@ -0,0 +1,124 @@
+package jcurses.widgets;
+
+import java.util.Vector;
+
+import jcurses.util.Rectangle;
+
+/**
+ * This class is a jcurses-internal class, that finds the widget at a screen position. The area of a window is divided into a
+ * uniform grid of cells, every cell lists the widgets overlapping it, so a lookup inspects only the few widgets of one cell,
+ * independent of the number of widgets in the window.
+ * <p>
+ * The grid is a snapshot of the layout, it is built by the window after packing and thrown away, if the layout changes.
+ */
+class WidgetGrid
+{
+  private static final int CELL_WIDTH  = 8;
+  private static final int CELL_HEIGHT = 4;
+
+  private Widget[]         _widgets    = null;
+  private int[]            _bounds     = null;
+  private int[][]          _cells      = null;
+  private int              _left       = 0;
+  private int              _top        = 0;
+  private int              _columns    = 0;
+  private int              _rows       = 0;
+
+  /**
+   * The constructor
+   *
+   * @param aArea the screen area covered by the grid
+   * @param aWidgets the widgets in painting order, the widgets painted later cover the ones painted before
+   */
+  WidgetGrid(Rectangle aArea, Vector<Widget> aWidgets)
+  {
+    _left = aArea.getX();
+    _top = aArea.getY();
+    _columns = Math.max(( aArea.getWidth() + CELL_WIDTH - 1 ) / CELL_WIDTH, 1);
+    _rows = Math.max(( aArea.getHeight() + CELL_HEIGHT - 1 ) / CELL_HEIGHT, 1);
+
+    int count = aWidgets.size();
+    _widgets = new Widget[count];
+    _bounds = new int[count * 4];
+
+    int[] sizes = new int[_columns * _rows];
+
+    for ( int i = 0; i < count; i++ )
+    {
+      Widget widget = aWidgets.elementAt(i);
+      Rectangle rect = widget.getRectangle().intersection(aArea);
+
+      _widgets[i] = widget;
+      _bounds[i * 4] = rect.getX();
+      _bounds[i * 4 + 1] = rect.getY();
+      _bounds[i * 4 + 2] = rect.getX() + rect.getWidth() - 1;
+      _bounds[i * 4 + 3] = rect.getY() + rect.getHeight() - 1;
+
+      if ( ! rect.isEmpty() )
+        forCells(i, sizes, null);
+    }
+
+    _cells = new int[sizes.length][];
+    for ( int i = 0; i < sizes.length; i++ )
+    {
+      _cells[i] = new int[sizes[i]];
+      sizes[i] = 0;
+    }
+
+    for ( int i = 0; i < count; i++ )
+      if ( _bounds[i * 4] <= _bounds[i * 4 + 2] && _bounds[i * 4 + 1] <= _bounds[i * 4 + 3] )
+        forCells(i, sizes, _cells);
+  }
+
+  /**
+   * Returns the topmost widget at a screen position, that is the widget painted last among all widgets containing the position
+   *
+   * @param aX the screen column
+   * @param aY the screen row
+   *
+   * @return the widget, or <code>null</code> if no widget lies at the position
+   */
+  Widget getWidgetAt(int aX, int aY)
+  {
+    if ( aX < _left || aY < _top )
+      return null;
+
+    int column = ( aX - _left ) / CELL_WIDTH;
+    int row = ( aY - _top ) / CELL_HEIGHT;
+
+    if ( column >= _columns || row >= _rows )
+      return null;
+
+    int[] cell = _cells[row * _columns + column];
+
+    for ( int i = cell.length - 1; i >= 0; i-- )
+    {
+      int base = cell[i] * 4;
+      if ( aX >= _bounds[base] && aX <= _bounds[base + 2] && aY >= _bounds[base + 1] && aY <= _bounds[base + 3] )
+        return _widgets[cell[i]];
+    }
+
+    return null;
+  }
+
+  /**
+   * Counts a widget for every cell it overlaps, or enters it into these cells
+   */
+  private void forCells(int aIndex, int[] aSizes, int[][] aCells)
+  {
+    int base = aIndex * 4;
+    int firstColumn = ( _bounds[base] - _left ) / CELL_WIDTH;
+    int lastColumn = ( _bounds[base + 2] - _left ) / CELL_WIDTH;
+    int firstRow = ( _bounds[base + 1] - _top ) / CELL_HEIGHT;
+    int lastRow = ( _bounds[base + 3] - _top ) / CELL_HEIGHT;
+
+    for ( int row = firstRow; row <= lastRow; row++ )
+      for ( int column = firstColumn; column <= lastColumn; column++ )
+      {
+        int cell = row * _columns + column;
+        if ( aCells != null )
+          aCells[cell][aSizes[cell]] = aIndex;
+        aSizes[cell]++;
+      }
+  }
+}
@@ -21,4 +21,15 @@ public class WidgetUtilities
   {
     WindowManager.invokeAndWait(r);
   }
+
+  /**
+   * Method to be used by external threads wishing to perform calls to jcurses widgets without waiting for them. The runnable is executed
+   * asynchronously by the jcurses input thread.
+   * 
+   * @param r a <code>Runnable</code> containing the code to be executed by the input thread.
+   */
+  public static void invokeLater(Runnable r)
+  {
+    WindowManager.invokeLater(r);
+  }
 }
\ No newline at end of file
@@ -3,7 +3,6 @@ package jcurses.widgets;
 
 import java.util.Comparator;
 import java.util.Hashtable;
-import java.util.Iterator;
 import java.util.Vector;
 
 import jcurses.event.WindowEvent;
@@ -11,6 +10,7 @@ import jcurses.event.WindowListener;
 import jcurses.event.WindowListenerManager;
 import jcurses.system.CharColor;
 import jcurses.system.InputChar;
+import jcurses.system.MouseInput;
 import jcurses.system.Toolkit;
 import jcurses.themes.Theme;
 import jcurses.themes.WindowThemeOverride;
@@ -63,7 +63,14 @@ public class Window {
 	private Panel _root = null;
 	private Rectangle _rect = null;
 	private String _title = null;
-	private Vector _focusableChildren = null;
+	private Vector<Widget> _focusableChildren = null;
+	private WidgetGrid _widgetGrid = null;
+	private FocusIndex _focusIndex = null;
+	private boolean _centered = false;
+	private int _requestedWidth = 0;
+	private int _requestedHeight = 0;
+	private Widget _mouseTarget = null;
+	private final Screen _screen = Screen.getCurrent();
 
 	//Listener-Zeugs
 	private WindowListenerManager _listenerManager = new WindowListenerManager();
@@ -87,6 +94,8 @@ public class Window {
 		_title = title;
 		_rect = new Rectangle(width, height);
 		_rect.setLocation(x, y);
+		_requestedWidth = width;
+		_requestedHeight = height;
 
 		int x1 = border ? (x + 1) : x;
 		int y1 = border ? (y + 1) : y;
@@ -100,6 +109,15 @@ public class Window {
 		WindowManager.createWindow(this);
 	}
 
+	/**
+	 *  Gets the screen, on which the window is shown. It is the screen bound to the thread, that has created the window.
+	 *
+	 * @return    the screen of the window
+	 */
+	public Screen getScreen() {
+		return _screen;
+	}
+
 	/**
 	 *  Gets the theme attribute of the Window class
 	 *
@@ -118,6 +136,25 @@ public class Window {
 		WindowManager.setTheme(aTheme);
 	}
 
+	/**
+	 *  Sets the maximum number of frames per second, with which invalidated widgets are repainted. Invalidations arriving
+	 *  faster are coalesced into one repaint.
+	 *
+	 * @param  aFramesPerSecond  the maximum frame rate, 0 or less for no limit
+	 */
+	public static void setMaxFrameRate(int aFramesPerSecond) {
+		WindowManager.setMaxFrameRate(aFramesPerSecond);
+	}
+
+	/**
+	 *  Gets the maximum number of frames per second, with which invalidated widgets are repainted
+	 *
+	 * @return    the maximum frame rate, 0 or less for no limit
+	 */
+	public static int getMaxFrameRate() {
+		return WindowManager.getMaxFrameRate();
+	}
+
 	/**
 	 * The constructor. A window created with this constructor is centered on the screen.
 	 *
@@ -128,6 +165,7 @@ public class Window {
 	 */
 	public Window(int width, int height, boolean border, String title) {
 		this((Toolkit.getScreenWidth() - width) / 2, (Toolkit.getScreenHeight() - height) / 2, width, height, border, title);
+		_centered = true;
 	}
 
 	/**
@@ -349,6 +387,8 @@ public class Window {
 		cutIfNeeded();
 		configureRootPanel();
 		_root.pack();
+		_widgetGrid = null;
+		_mouseTarget = null;
 		loadFocusableChilds();
 		loadShortcuts();
 	}
@@ -431,13 +471,13 @@ public class Window {
 	protected void changeFocus(int aWidgetIndex) {
 		if (aWidgetIndex != _currentIndex) {
 			if (isFocusableIndex(_currentIndex)) {
-				((Widget) _focusableChildren.get(_currentIndex)).setFocus(false);
+				_focusableChildren.get(_currentIndex).setFocus(false);
 			}
 
 			_currentIndex = aWidgetIndex;
 
 			if (isFocusableIndex(aWidgetIndex)) {
-				((Widget) _focusableChildren.get(aWidgetIndex)).setFocus(true);
+				_focusableChildren.get(aWidgetIndex).setFocus(true);
 			}
 		}
 	}
@@ -468,7 +508,8 @@ public class Window {
 
 	/**
 	 *  Changes the focus between widgets and propagates the change notification
-	 *  based on a sense of direction in the relation of all widgets.
+	 *  based on a sense of direction in the relation of all widgets. The widget is looked up
+	 *  in an index of the focusable widgets, that is built once after the window is packed.
 	 *  Internal only, should not be called by application code. 
 	 *
 	 * @param  aDirection  One of the directions DIR_LEFT DIR_RIGHT DIR_UP DIR_DOWN 
@@ -478,69 +519,38 @@ public class Window {
 			return;
 		}
 
-		Widget mCurrent = getCurrentWidget();
+		int mCurrent = isFocusableIndex(_currentIndex) ? _currentIndex : 0;
 
-		if (mCurrent == null) {
-			mCurrent = (Widget) _focusableChildren.get(0);
+		if (_focusIndex == null) {
+			_focusIndex = new FocusIndex(_focusableChildren);
 		}
 
-		Widget mResult = mCurrent;
-
-		for (Iterator mIt = _focusableChildren.iterator(); mIt.hasNext(); ) {
-			Widget mCandidate = (Widget) mIt.next();
-
-			if (mCandidate == mCurrent) {
-				continue;
-			}
-
-			Rectangle mCurRect = mCurrent.getRectangle();
-			Rectangle mCandRect = mCandidate.getRectangle();
-			Rectangle mResRect = mResult.getRectangle();
+		int mResult = _focusIndex.find(mCurrent, aDirection);
 
-			int vDelta = mCurRect.verticalDistanceFrom(mCandRect) - mCurRect.verticalDistanceFrom(mResRect);
-			int hDelta = mCurRect.horizontalDistanceFrom(mCandRect) - mCurRect.horizontalDistanceFrom(mResRect);
-
-			switch (aDirection) {
-							case DIR_LEFT:
-
-								if (mCandRect.isLeftOf(mCurRect)) {
-									if ((mResult == mCurrent) || (vDelta < 0) || ((vDelta == 0) && (hDelta < 0))) {
-										mResult = mCandidate;
-									}
-								}
-
-								break;
-							case DIR_RIGHT:
-
-								if (mCandRect.isRightOf(mCurRect)) {
-									if ((mResult == mCurrent) || (vDelta < 0) || ((vDelta == 0) && (hDelta < 0))) {
-										mResult = mCandidate;
-									}
-								}
-
-								break;
-							case DIR_UP:
+		changeFocus((mResult >= 0) ? mResult : mCurrent);
+	}
 
-								if (mCandRect.isAbove(mCurRect)) {
-									if ((mResult == mCurrent) || (hDelta < 0) || ((hDelta == 0) && (vDelta < 0))) {
-										mResult = mCandidate;
-									}
-								}
+	/**
+	 * The method is called by the library, after the terminal was resized. A window, that was created centered or had to be
+	 * cut to fit on the screen, is laid out again, other windows keep their layout. The screen is repainted as a whole
+	 * afterwards. Derived classes can override the method to adapt their layout to the new screen size.
+	 */
+	protected void screenResized() {
+		int x = _rect.getX();
+		int y = _rect.getY();
 
-								break;
-							case DIR_DOWN:
+		if (_centered) {
+			x = Math.max((Toolkit.getScreenWidth() - _requestedWidth) / 2, 0);
+			y = Math.max((Toolkit.getScreenHeight() - _requestedHeight) / 2, 0);
+		}
 
-								if (mCandRect.isBelow(mCurRect)) {
-									if ((mResult == mCurrent) || (hDelta < 0) || ((hDelta == 0) && (vDelta < 0))) {
-										mResult = mCandidate;
-									}
-								}
+		int width = Math.min(_requestedWidth, Toolkit.getScreenWidth() - x - (_hasShadow ? 1 : 0));
+		int height = Math.min(_requestedHeight, Toolkit.getScreenHeight() - y - (_hasShadow ? 1 : 0));
 
-								break;
-			}
+		if ((x != _rect.getX()) || (y != _rect.getY()) || (width != _rect.getWidth()) || (height != _rect.getHeight())) {
+			_rect.setLocation(x, y);
+			pack();
 		}
-
-		changeFocus(mResult);
 	}
 
 	/**
@@ -564,6 +574,11 @@ public class Window {
 	 * @param  inp the object instance representing the input char
 	 */
 	protected void handleInput(InputChar inp) {
+		if (inp instanceof MouseInput) {
+			handleMouse((MouseInput) inp);
+			return;
+		}
+
 		Widget cur = getCurrentWidget();
 
 		//System.err.println("Window.handleInput( 0x"+Integer.toHexString(inp.getCode())+" )");
@@ -589,6 +604,90 @@ public class Window {
 		}
 	}
 
+	/**
+	 * The method is called by the library to handle an input character, that was typed several times in a row. The current widget
+	 * gets the chance to handle all repetitions at once, the remaining ones are handled one by one.
+	 *
+	 * @param  inp the object instance representing the input char
+	 * @param  count the number of repetitions
+	 */
+	protected void handleInput(InputChar inp, int count) {
+		Widget cur = getCurrentWidget();
+		int handled = 0;
+
+		if ((cur != null) && (count > 1)) {
+			handled = cur.handleRepeatedInput(inp, count);
+		}
+
+		for (int i = handled; i < count; i++) {
+			handleInput(inp);
+		}
+	}
+
+	/**
+	 * The method is called by the library to handle a mouse event, if the window has the focus. The event is passed to the
+	 * widget at the mouse position and, if not handled, to its containers. A pressed button moves the focus to the widget, the
+	 * following drag and release events go to the same widget, even if the mouse has left it.
+	 *
+	 * @param  aMouse the mouse event
+	 */
+	protected void handleMouse(MouseInput aMouse) {
+		int type = aMouse.getType();
+		Widget target = null;
+
+		if (((type == MouseInput.DRAGGED) || (type == MouseInput.RELEASED)) && (_mouseTarget != null)) {
+			target = _mouseTarget;
+		} else {
+			target = getWidgetAt(aMouse.getX(), aMouse.getY());
+		}
+
+		// the area of a widget hidden while it is dragged belongs to its container
+		while ((target != null) && !target.isVisible()) {
+			target = target.getParent();
+		}
+
+		if (type == MouseInput.PRESSED) {
+			_mouseTarget = target;
+			int index = (target != null) ? _focusableChildren.indexOf(target) : -1;
+			if (index >= 0) {
+				changeFocus(index);
+			}
+		} else if (type == MouseInput.RELEASED) {
+			_mouseTarget = null;
+		}
+
+		for (Widget widget = target; widget != null; widget = widget.getParent()) {
+			if (widget.handleMouse(aMouse)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the widget at a screen position. The lookup uses a grid of the widget rectangles, that is built after the window
+	 * is packed, so it doesn't depend on the number of widgets.
+	 *
+	 * @param  aX  the screen column
+	 * @param  aY  the screen row
+	 * @return     the topmost visible widget at the position, or <code>null</code> if there is no widget
+	 */
+	protected Widget getWidgetAt(int aX, int aY) {
+		if (_widgetGrid == null) {
+			Vector<Widget> widgets = _root.getListOfVisibleWidgets();
+			widgets.add(0, _root);
+			_widgetGrid = new WidgetGrid(_rect, widgets);
+		}
+
+		return _widgetGrid.getWidgetAt(aX, aY);
+	}
+
+	/**
+	 * Discards the grid of the widget rectangles, after a widget was shown or hidden. It is built again on the next mouse event.
+	 */
+	void invalidateWidgetGrid() {
+		_widgetGrid = null;
+	}
+
 	/**
 	 * The method is called by <code>handleInput</code>, if no widget has handled the input. Derived classes can override the method to define additional
 	 * shortcuts.
@@ -626,6 +725,10 @@ public class Window {
 	protected void resize(int width, int height) {
 		_rect.setWidth(width);
 		_rect.setHeight(height);
+		_requestedWidth = width;
+		_requestedHeight = height;
+		_widgetGrid = null;
+		_focusIndex = null;
 	}
 
 	/**
@@ -635,7 +738,7 @@ public class Window {
 	 */
 	private Widget getCurrentWidget() {
 		if (isFocusableIndex(_currentIndex)) {
-			return ((Widget) _focusableChildren.elementAt(_currentIndex));
+			return _focusableChildren.elementAt(_currentIndex);
 		}
 
 		return null;
@@ -729,18 +832,14 @@ public class Window {
 	}
 
 	/**
-	 *  Clip a rectangle
+	 *  Clip a rectangle. The window gets the size, that was requested, as far as it fits on the screen.
 	 */
 	private void cutIfNeeded() {
 		int maxWidth = Toolkit.getScreenWidth() - _rect.getX() - (_hasShadow ? 1 : 0);
-		if (_rect.getWidth() > maxWidth) {
-			_rect.setWidth(maxWidth);
-		}
+		_rect.setWidth(Math.min(_requestedWidth, maxWidth));
 
 		int maxHeight = Toolkit.getScreenHeight() - _rect.getY() - (_hasShadow ? 1 : 0);
-		if (_rect.getHeight() > maxHeight) {
-			_rect.setHeight(maxHeight);
-		}
+		_rect.setHeight(Math.min(_requestedHeight, maxHeight));
 	}
 
 	/**
@@ -759,6 +858,7 @@ public class Window {
 	 */
 	private void loadFocusableChilds() {
 		_focusableChildren = _root.getListOfFocusables();
+		_focusIndex = null;
 		if (!isFocusableIndex(_currentIndex)) {
 			changeFocus();
 		}
@@ -1,34 +1,142 @@
-#include "include/jcurses_system_Toolkit.h"
+#include "include/jcurses_system_NcursesBackend.h"
+#ifdef JCURSES_WIDE
+/* configure links ncursesw, request its wide character functions */
+#define NCURSES_WIDECHAR 1
+#endif
 #include <curses.h>
+#include <locale.h>
+#include <wchar.h>
 #include <stdio.h>
 #include <string.h>
+#include <errno.h>
+#include <fcntl.h>
+#include <poll.h>
+#include <signal.h>
+#include <stdint.h>
+#include <stdlib.h>
+#include <sys/ioctl.h>
+#include <termios.h>
+#include <unistd.h>
 
 //define JCURSES_ATTRIBUTES(number,att) (has_colors())?(att|COLOR_PAIR(number+1)):((number==0)?A_NORMAL:((number==1)?A_REVERSE:A_BOLD))
 #define JCURSES_ATTRIBUTES(number,att) (att|COLOR_PAIR(number+1))
+/* COLOR_PAIR keeps 8 bits of the pair number in the chtype, higher pairs would alias lower ones */
+#define JCURSES_MAX_PAIRS 256
+
+#ifndef KEY_RESIZE
+#define KEY_RESIZE 0632
+#endif
 
 FILE * logStream = NULL;
 
 void initLog()
 {
+    if( logStream != NULL )
+        return;
+
     logStream = fopen("njcurses.log","a");
+    if( logStream == NULL )
+        return;
     fprintf(logStream, "native logging initialized!\n");
     fflush(logStream);
 }
 
 static int buffer = 1;
-static int paintingAction = 0;
 
-void endPainting()
+/*
+ * One terminal driven by jcurses. The handle passed from jcurses.system.NcursesBackend is a pointer to this struct. curses
+ * keeps the state of the terminal in the SCREEN created by newterm, the functions working on a session make it current with
+ * set_term, they are serialized by the java side.
+ */
+typedef struct
 {
-  if(paintingAction <= 0)
-    doupdate();
+    SCREEN * screen;
+    FILE * in;
+    FILE * out;
+    /* the session has opened the device and must close the files */
+    int ownFiles;
+    /* the session runs on the terminal of the process and gets the SIGWINCH handling */
+    int isDefault;
+    int wakeupPipe[2];
+} jcurses_session;
+
+static jcurses_session * currentSession = NULL;
+
+static void selectSession(jcurses_session * aSession)
+{
+    if( currentSession != aSession )
+    {
+        set_term(aSession->screen);
+        currentSession = aSession;
+    }
+}
+
+static jcurses_session * toSession(jlong aHandle)
+{
+    jcurses_session * session = (jcurses_session *) (intptr_t) aHandle;
+
+    selectSession(session);
+    return session;
+}
+
+void initWakeupPipe(jcurses_session * aSession)
+{
+    if( pipe(aSession->wakeupPipe) == 0 )
+    {
+        fcntl(aSession->wakeupPipe[0], F_SETFL, O_NONBLOCK);
+        fcntl(aSession->wakeupPipe[1], F_SETFL, O_NONBLOCK);
+    }
+    else
+    {
+        aSession->wakeupPipe[0] = -1;
+        aSession->wakeupPipe[1] = -1;
+    }
+}
+
+/* set by the SIGWINCH handler, the terminal size of the default session is updated by the next readInput */
+static volatile sig_atomic_t resizePending = 0;
+/* the wakeup pipe of the default session, written by the SIGWINCH handler */
+static volatile int winchPipe = -1;
+
+static void handleWinch(int aSignal)
+{
+    char c = 0;
+    int fd = winchPipe;
+
+    resizePending = 1;
+    /* the signal may hit any thread of the vm, the pipe wakes up the thread waiting for input */
+    if( fd != -1 )
+    {
+        if( write(fd, &c, 1) < 0 )
+            return;
+    }
+}
+
+void initWinchHandler(jcurses_session * aSession)
+{
+    struct sigaction action;
+
+    winchPipe = aSession->wakeupPipe[1];
+    memset(&action, 0, sizeof(action));
+    action.sa_handler = handleWinch;
+    sigemptyset(&action.sa_mask);
+    action.sa_flags = SA_RESTART;
+    sigaction(SIGWINCH, &action, NULL);
+}
+
+static void throwIllegalState(JNIEnv * env, const char * aMessage)
+{
+    jclass exceptionClass = (*env)->FindClass(env, "java/lang/IllegalStateException");
+
+    if( exceptionClass != NULL )
+        (*env)->ThrowNew(env, exceptionClass, aMessage);
 }
 
-void fill_region(int aX, int aY, int aWide, int aHigh, jshort aNumber, jlong aAttr, chtype aCh)
+void fill_region(int aX, int aY, int aWide, int aHigh, jlong aAttr, chtype aCh)
 {
     if( aHigh > 0 && aWide > 0 && aX >= 0 && aY >= 0 )
     {
-        attrset(JCURSES_ATTRIBUTES(aNumber,aAttr));
+        attrset(aAttr);
 
         int mY, mX;
         for(mY = aY; mY < (aY + aHigh); mY++)
@@ -47,7 +155,6 @@ void fill_region(int aX, int aY, int aWide, int aHigh, jshort aNumber, jlong aAt
         }
 
     }
-    endPainting();
 }
 
 /*
@@ -86,30 +193,50 @@ jint computeChtype(jshort number)
     return JCURSES_ATTRIBUTES(number,A_NORMAL); 
 }
 
-JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_adjustColor (JNIEnv *aEnv, jclass aClass, jshort aColorNo, jshort aRed, jshort aGreen, jshort aBlue)
+JNIEXPORT void JNICALL Java_jcurses_system_NcursesBackend_adjustColor (JNIEnv *aEnv, jclass aClass, jlong aSession, jshort aColorNo, jshort aRed, jshort aGreen, jshort aBlue)
 {
+    toSession(aSession);
     init_color(aColorNo, aRed, aGreen, aBlue);
 }
 
 
-JNIEXPORT jint JNICALL Java_jcurses_system_Toolkit_getScreenWidth (JNIEnv * env, jclass class)
+JNIEXPORT jint JNICALL Java_jcurses_system_NcursesBackend_getScreenWidth (JNIEnv * env, jclass aClass, jlong aSession)
 {
+    toSession(aSession);
     return COLS;
 }
 
 
-JNIEXPORT jint JNICALL Java_jcurses_system_Toolkit_getScreenHeight (JNIEnv * env, jclass class)
+JNIEXPORT jint JNICALL Java_jcurses_system_NcursesBackend_getScreenHeight (JNIEnv * env, jclass aClass, jlong aSession)
 {
+    toSession(aSession);
     return LINES;
 }
 
 
-JNIEXPORT jint JNICALL Java_jcurses_system_Toolkit_hasColorsAsInteger (JNIEnv * env, jclass class)
+JNIEXPORT jint JNICALL Java_jcurses_system_NcursesBackend_getColorCount (JNIEnv * env, jclass aClass, jlong aSession)
 {
+    toSession(aSession);
+    return has_colors() ? COLORS : 0;
+}
+
+
+JNIEXPORT jint JNICALL Java_jcurses_system_NcursesBackend_getColorPairCount (JNIEnv * env, jclass aClass, jlong aSession)
+{
+    toSession(aSession);
+    if( !has_colors() )
+        return 0;
+    return (COLOR_PAIRS < JCURSES_MAX_PAIRS) ? COLOR_PAIRS : JCURSES_MAX_PAIRS;
+}
+
+
+JNIEXPORT jint JNICALL Java_jcurses_system_NcursesBackend_hasColorsAsInteger (JNIEnv * env, jclass aClass, jlong aSession)
+{
+    toSession(aSession);
     return has_colors();
 }
 
-JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_fillAttributes (JNIEnv * env , jclass class, jlongArray attributes)
+JNIEXPORT void JNICALL Java_jcurses_system_NcursesBackend_fillAttributes (JNIEnv * env , jobject obj, jlongArray attributes)
 {
     jlong attrs[3];
     attrs[0] = A_NORMAL;
@@ -118,7 +245,7 @@ JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_fillAttributes (JNIEnv * env
     (*env)->SetLongArrayRegion(env,attributes,0,3,attrs);
 }
 
-JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_fillBasicColors (JNIEnv * env , jclass class, jshortArray basicColors)
+JNIEXPORT void JNICALL Java_jcurses_system_NcursesBackend_fillBasicColors (JNIEnv * env , jobject obj, jshortArray basicColors)
 {
     short colors[8];
 
@@ -133,634 +260,358 @@ JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_fillBasicColors (JNIEnv * env
     (*env)->SetShortArrayRegion(env,basicColors,0,8,colors);
 }
 
-JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_initColorPair (JNIEnv * env, jclass class, jshort background, jshort foreground, jshort number)
+JNIEXPORT void JNICALL Java_jcurses_system_NcursesBackend_initColorPair (JNIEnv * env, jclass aClass, jlong aSession, jshort background, jshort foreground, jshort number)
 {
+    toSession(aSession);
     init_pair(number+1,foreground, background);
 }
 
 
-JNIEXPORT jint JNICALL Java_jcurses_system_Toolkit_computeChtype (JNIEnv * env, jclass class, jshort number)
+JNIEXPORT jint JNICALL Java_jcurses_system_NcursesBackend_computeChtype (JNIEnv * env, jclass aClass, jshort number)
 {
     return computeChtype(number);
 }
 
-JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_init (JNIEnv * env, jclass class)
+JNIEXPORT jlong JNICALL Java_jcurses_system_NcursesBackend_nativeInit (JNIEnv * env, jclass aClass, jstring aDevice, jstring aTerminalType)
 {
+    jcurses_session * session;
+    const char * terminalType = NULL;
+    SCREEN * screen;
+
     initLog();
-    initscr();  
-    keypad(stdscr, TRUE);
+    /* the terminal encoding is taken from the environment */
+    setlocale(LC_ALL, "");
+
+    session = calloc(1, sizeof(jcurses_session));
+    if( session == NULL )
+    {
+        throwIllegalState(env, "out of memory");
+        return 0;
+    }
+
+    if( aDevice == NULL )
+    {
+        session->in = stdin;
+        session->out = stdout;
+        session->isDefault = 1;
+    }
+    else
+    {
+        const char * device = (*env)->GetStringUTFChars(env, aDevice, NULL);
+        int fd = (device != NULL) ? open(device, O_RDWR | O_NOCTTY) : -1;
+
+        if( device != NULL )
+            (*env)->ReleaseStringUTFChars(env, aDevice, device);
+        if( fd == -1 )
+        {
+            free(session);
+            throwIllegalState(env, "the terminal device can't be opened");
+            return 0;
+        }
+        session->in = fdopen(fd, "r");
+        session->out = fdopen(dup(fd), "w");
+        session->ownFiles = 1;
+    }
+
+    if( aTerminalType != NULL )
+        terminalType = (*env)->GetStringUTFChars(env, aTerminalType, NULL);
+    /* NULL selects the terminal type in $TERM */
+    screen = (session->in != NULL && session->out != NULL) ? newterm((char *) terminalType, session->out, session->in) : NULL;
+    if( terminalType != NULL )
+        (*env)->ReleaseStringUTFChars(env, aTerminalType, terminalType);
+
+    if( screen == NULL )
+    {
+        if( session->ownFiles )
+        {
+            if( session->in != NULL )
+                fclose(session->in);
+            if( session->out != NULL )
+                fclose(session->out);
+        }
+        free(session);
+        throwIllegalState(env, "curses can't be initialized for the terminal");
+        return 0;
+    }
+
+    session->screen = screen;
+    currentSession = session;
+    /* escape sequences are decoded by jcurses.system.InputDecoder */
+    keypad(stdscr, FALSE);
+    /* keys are delivered without waiting for the return key, nodelay alone leaves the tty in canonical mode */
+    cbreak();
     noecho();
-    halfdelay(2);
+    nodelay(stdscr, TRUE);
     curs_set(0);
+    /* bracketed paste, pasted text is framed by ESC [ 200 ~ and ESC [ 201 ~ */
+    fputs("\033[?2004h", session->out);
+    /* mouse reports for clicks, wheel and drags in the SGR format, decoded by jcurses.system.InputDecoder too */
+    fputs("\033[?1000h\033[?1002h\033[?1006h", session->out);
+    fflush(session->out);
+    initWakeupPipe(session);
+    if( session->isDefault )
+        initWinchHandler(session);
     if (has_colors())
         start_color();
-}
 
-JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_clearScreen (JNIEnv * env, jclass class, jshort number, jlong attr)
-{
-    fill_region(0, 0, COLS, LINES, number, attr, ' ' /* getbkgd(stdscr) */);
+    return (jlong) (intptr_t) session;
 }
 
-
-JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_drawRectangle (JNIEnv * env , jclass class, jint x, jint y, jint width, jint height, jshort number, jlong attr)
+JNIEXPORT void JNICALL Java_jcurses_system_NcursesBackend_shutdown (JNIEnv * env, jclass aClass, jlong aSession)
 {
-    fill_region(x, y, width, height, number, attr, ' ' /* getbkgd(stdscr) */);
-}
+    jcurses_session * session = toSession(aSession);
 
-
-JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_shutdown (JNIEnv * env, jclass class)
-{
     endwin();
-}
+    fputs("\033[?1006l\033[?1002l\033[?1000l", session->out);
+    fputs("\033[?2004l", session->out);
+    fflush(session->out);
 
-JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_drawHorizontalLine (JNIEnv * env, jclass class, jint aX, jint aY ,jint aEndX, jshort aNumber, jlong aAttr)
-{
-    //mvhline(aY, aX, ACS_HLINE, aEndX-aX+1);
-    fill_region(aX, aY, aEndX-aX+1, 1, aNumber, aAttr, ACS_HLINE);
-}
+    if( session->isDefault )
+        winchPipe = -1;
+    delscreen(session->screen);
+    currentSession = NULL;
 
-JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_drawVerticalLine (JNIEnv * env, jclass class, jint aX, jint aY ,jint aEndY, jshort aNumber, jlong aAttr)
-{
-    //mvvline(aY, aX, ACS_VLINE, aEndY-aY+1);
-    fill_region(aX, aY, 1, aEndY-aY+1, aNumber, aAttr, ACS_VLINE);
+    if( session->ownFiles )
+    {
+        fclose(session->in);
+        fclose(session->out);
+    }
+    /* the java side guarantees, that no thread waits for input of the session any more */
+    if( session->wakeupPipe[0] != -1 )
+    {
+        close(session->wakeupPipe[0]);
+        close(session->wakeupPipe[1]);
+    }
+    free(session);
 }
 
-JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_drawHorizontalThickLine (JNIEnv * env, jclass class, jint aX, jint aY ,jint aEndX, jshort aNumber, jlong aAttr)
-{
-    //mvhline(aY, aX, ACS_CKBOARD, aEndX-aX+1);
-    fill_region(aX, aY, aEndX-aX+1, 1, aNumber, aAttr, ACS_CKBOARD);
-}
+/* command codes of jcurses.system.CommandBuffer */
+#define JCURSES_OP_TEXT   1
+#define JCURSES_OP_GLYPHS 2
+#define JCURSES_OP_WTEXT  3
 
-JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_drawVerticalThickLine (JNIEnv * env, jclass class, jint aX, jint aY ,jint aEndY, jshort aNumber, jlong aAttr)
+/* glyph codes of jcurses.system.VirtualScreen */
+chtype glyph_to_chtype(signed char aGlyph)
 {
-    //mvvline(aY, aX, ACS_CKBOARD, aEndY-aY+1);
-    fill_region(aX, aY, 1, aEndY-aY+1, aNumber, aAttr, ACS_CKBOARD);
+    switch( aGlyph )
+    {
+    case -1:
+        return ACS_HLINE;
+    case -2:
+        return ACS_VLINE;
+    case -3:
+        return ACS_CKBOARD;
+    case -4:
+        return ACS_LLCORNER;
+    case -5:
+        return ACS_LRCORNER;
+    case -6:
+        return ACS_ULCORNER;
+    case -7:
+        return ACS_URCORNER;
+    default:
+        return ' ';
+    }
 }
 
-JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_drawCorner (JNIEnv *env, jclass class, jint aX, jint aY, jint aPos, jshort number, jlong attr)
+void print_run(unsigned char * aBytes, int aLength, int aX, int aY, jlong aAttr)
 {
-    chtype ch;
+    int j;
 
-    switch( aPos )
-    {
-    case jcurses_system_Toolkit_LL_CORNER:
-        ch = ACS_LLCORNER;
-        break;
+    attrset(aAttr);
+    move(aY, aX);
 
-    case jcurses_system_Toolkit_LR_CORNER:
-        ch = ACS_LRCORNER;
-        break;
+    for( j=0; j<aLength; j++ )
+    {
+	if(buffer)
+          addch(aBytes[j]);
+	else
+          echochar(aBytes[j]);
+    }
+}
 
-    case jcurses_system_Toolkit_UL_CORNER:
-        ch = ACS_ULCORNER;
-        break;
+void print_wide_run(unsigned char * aCodePoints, int aLength, int aX, int aY, jlong aAttr)
+{
+#ifdef JCURSES_WIDE
+    wchar_t chars[256];
+    jint codePoint;
+    int i, count;
 
-    case jcurses_system_Toolkit_UR_CORNER:
-        ch = ACS_URCORNER;
-        break;
+    attrset(aAttr);
+    move(aY, aX);
 
-    default:
-        return;
+    while( aLength > 0 )
+    {
+        count = (aLength > 256) ? 256 : aLength;
+        for( i=0; i<count; i++ )
+        {
+            memcpy(&codePoint, aCodePoints, sizeof(jint));
+            aCodePoints += sizeof(jint);
+            chars[i] = (wchar_t) codePoint;
+        }
+        addnwstr(chars, count);
+        aLength -= count;
     }
-
-    attrset(JCURSES_ATTRIBUTES(number,attr));
-    move(aY, aX);
-	
-    if(buffer)
-      addch(ch);
-    else
-      echochar(ch);
+#endif
 }
 
-JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_printString (JNIEnv * env, jclass class, jbyteArray bytes, jint x, jint y, jint width, jint height, jshort number, jlong attr)
+JNIEXPORT jboolean JNICALL Java_jcurses_system_NcursesBackend_hasWideOutput (JNIEnv * env, jclass aClass)
 {
-    int j=0;
-    int xpos,ypos;
-    int length = (*env)->GetArrayLength(env,bytes);
-    unsigned char c;
-    signed char * charArray = (*env)->GetByteArrayElements(env, bytes, NULL);
+#ifdef JCURSES_WIDE
+    return JNI_TRUE;
+#else
+    return JNI_FALSE;
+#endif
+}
 
-    attrset(JCURSES_ATTRIBUTES(number,attr));
+JNIEXPORT void JNICALL Java_jcurses_system_NcursesBackend_replay (JNIEnv * env, jclass aClass, jlong aSession, jobject aBuffer, jint aLength)
+{
+    unsigned char * pos = (*env)->GetDirectBufferAddress(env, aBuffer);
+    unsigned char * end;
+    unsigned char op;
+    signed char glyph;
+    jint x, y, length;
+    jlong attr;
+
+    if( pos == NULL )
+        return;
 
-    move(y, x);
-    xpos=x-1;
-    ypos=y;
+    toSession(aSession);
+    end = pos + aLength;
 
-    for( j=0; j<length; j++ )
+    while( pos < end )
     {
-        c = charArray[j];
-
-        if( c =='\r' )
-            continue;
-
-        xpos++;
-        if( (xpos >= x+width) || (c=='\n') )
+        op = *pos++;
+        glyph = 0;
+        if( op == JCURSES_OP_GLYPHS )
+            glyph = (signed char) *pos++;
+
+        memcpy(&x, pos, sizeof(jint));
+        pos += sizeof(jint);
+        memcpy(&y, pos, sizeof(jint));
+        pos += sizeof(jint);
+        memcpy(&attr, pos, sizeof(jlong));
+        pos += sizeof(jlong);
+        memcpy(&length, pos, sizeof(jint));
+        pos += sizeof(jint);
+
+        if( op == JCURSES_OP_TEXT )
         {
-            xpos = x;
-            ypos++;
-            move(ypos, xpos);
-            if( ypos == y+height )
-                break;
+            print_run(pos, length, x, y, attr);
+            pos += length;
         }
-
-        if( c == '\n' )
-            continue;
-
-        if( c == '\t' )
-            c = ' ';
-
-	if(buffer)
-          addch(c);
-	else
-          echochar(c);
+        else if( op == JCURSES_OP_WTEXT )
+        {
+            print_wide_run(pos, length, x, y, attr);
+            pos += length * sizeof(jint);
+        }
+        else
+            fill_region(x, y, length, 1, attr, glyph_to_chtype(glyph));
     }
 
-    endPainting();
+    doupdate();
 }
 
 
-JNIEXPORT jint JNICALL Java_jcurses_system_Toolkit_readByte (JNIEnv * env, jclass class)
+JNIEXPORT jint JNICALL Java_jcurses_system_NcursesBackend_readInput (JNIEnv * env, jclass aClass, jlong aSession, jintArray aBuffer, jint aOffset, jint aLength)
 {
-    return wgetch(stdscr);
-}
+    jcurses_session * session = toSession(aSession);
+    jint codes[256];
+    jint count = 0;
+    int c;
+    struct winsize size;
 
+    if( aLength > 256 )
+        aLength = 256;
 
-/*
-int keycodes[2][] = 
-{
-    { 0401, KEY_MIN },
-    { 0402, KEY_DOWN },
-    { 0403, KEY_UP },
-    { 0404, KEY_LEFT },
-    { 0405, KEY_RIGHT },
-    { 0406, KEY_HOME },
-    { 0407, KEY_BACKSPACE },
-    { 0410, KEY_F0 },
-    { 0411, KEY_F(1) },
-    { 0412, KEY_F(2) },
-    { 0413, KEY_F(3) },
-    { 0414, KEY_F(4) },
-    { 0415, KEY_F(5) },
-    { 0416, KEY_F(6) },
-    { 0417, KEY_F(7) },
-    { 0420, KEY_F(010) },
-    { 0421, KEY_F(011) },
-    { 0422, KEY_F(012) },
-    { 0423, KEY_F(013) },
-    { 0424, KEY_F(014) },
-    { 0510, KEY_DL },
-    { 0511, KEY_IL },
-    { 0512, KEY_DC },
-    { 0513, KEY_IC },
-    { 0514, KEY_EIC },
-    { 0515, KEY_CLEAR },
-    { 0516, KEY_EOS },
-    { 0517, KEY_EOL },
-    { 0520, KEY_SF },
-    { 0521, KEY_SR },
-    { 0522, KEY_NPAGE },
-    { 0523, KEY_PPAGE },
-    { 0524, KEY_STAB },
-    { 0525, KEY_CTAB },
-    { 0526, KEY_CATAB },
-    { 0527, KEY_ENTER },
-    { 0530, KEY_SRESET },
-    { 0531, KEY_RESET },
-    { 0532, KEY_PRINT },
-    { 0533, KEY_LL },
-    { 0534, KEY_A1 },
-    { 0535, KEY_A3 },
-    { 0536, KEY_B2 },
-    { 0537, KEY_C1 },
-    { 0540, KEY_C3 },
-    { 0541, KEY_BTAB },
-    { 0542, KEY_BEG },
-    { 0543, KEY_CANCEL },
-    { 0544, KEY_CLOSE },
-    { 0545, KEY_COMMAND },
-    { 0546, KEY_COPY },
-    { 0547, KEY_CREATE },
-    { 0550, KEY_END },
-    { 0551, KEY_EXIT },
-    { 0552, KEY_FIND },
-    { 0553, KEY_HELP },
-    { 0554, KEY_MARK },
-    { 0555, KEY_MESSAGE },
-    { 0556, KEY_MOVE },
-    { 0557, KEY_NEXT },
-    { 0560, KEY_OPEN },
-    { 0561, KEY_OPTIONS },
-    { 0562, KEY_PREVIOUS },
-    { 0563, KEY_REDO },
-    { 0564, KEY_REFERENCE },
-    { 0565, KEY_REFRESH },
-    { 0566, KEY_REPLACE },
-    { 0567, KEY_RESTART },
-    { 0570, KEY_RESUME },
-    { 0571, KEY_SAVE },
-    { 0572, KEY_SBEG },
-    { 0573, KEY_SCANCEL },
-    { 0574, KEY_SCOMMAND },
-    { 0575, KEY_SCOPY },
-    { 0576, KEY_SCREATE },
-    { 0577, KEY_SDC },
-    { 0600, KEY_SDL },
-    { 0601, KEY_SELECT },
-    { 0602, KEY_SEND },
-    { 0603, KEY_SEOL },
-    { 0604, KEY_SEXIT },
-    { 0605, KEY_SFIND },
-    { 0606, KEY_SHELP },
-    { 0607, KEY_SHOME },
-    { 0610, KEY_SIC },
-    { 0611, KEY_SLEFT },
-    { 0612, KEY_SMESSAGE },
-    { 0613, KEY_SMOVE },
-    { 0614, KEY_SNEXT },
-    { 0615, KEY_SOPTIONS },
-    { 0616, KEY_SPREVIOUS },
-    { 0617, KEY_SPRINT },
-    { 0620, KEY_SREDO },
-    { 0621, KEY_SRIGHT },
-    { 0622, KEY_SREPLACE },
-    { 0623, KEY_SRSUME },
-    { 0624, KEY_SSAVE },
-    { 0625, KEY_SSUSPEND },
-    { 0626, KEY_SUNDO },
-    { 0627, KEY_SUSPEND },
-    { 0630, KEY_UNDO },
-    { 0777, KEY_MAX }
+    if( session->isDefault && resizePending && aLength > 0 )
+    {
+        resizePending = 0;
+        if( ioctl(fileno(session->out), TIOCGWINSZ, &size) == 0 && size.ws_row > 0 && size.ws_col > 0 )
+            resize_term(size.ws_row, size.ws_col);
+        /* the terminal has rearranged its content, the next refresh must repaint everything */
+        clearok(curscr, TRUE);
+        codes[count++] = KEY_RESIZE;
+    }
+    else if( ! session->isDefault && aLength > 0 && ioctl(fileno(session->out), TIOCGWINSZ, &size) == 0
+             && size.ws_row > 0 && size.ws_col > 0 && (size.ws_row != LINES || size.ws_col != COLS) )
+    {
+        /* SIGWINCH goes to the processes of the device only, the size is compared on every read */
+        resize_term(size.ws_row, size.ws_col);
+        clearok(curscr, TRUE);
+        codes[count++] = KEY_RESIZE;
+    }
+
+    /* drain everything curses has queued, the window is in nodelay mode */
+    while( count < aLength && (c = wgetch(stdscr)) != ERR )
+        codes[count++] = c;
+
+    if( count > 0 )
+        (*env)->SetIntArrayRegion(env, aBuffer, aOffset, count, codes);
+
+    return count;
 }
-*/
 
 
-JNIEXPORT jint JNICALL Java_jcurses_system_Toolkit_getSpecialKeyCode (JNIEnv * env, jclass class, jint code)
+JNIEXPORT jboolean JNICALL Java_jcurses_system_NcursesBackend_waitForInput (JNIEnv * env, jclass aClass, jlong aSession, jint aTimeout)
 {
-    int result = KEY_MAX; 
-    switch( code )
+    /* not serialized with the other functions, the session must not be selected */
+    jcurses_session * session = (jcurses_session *) (intptr_t) aSession;
+    struct pollfd fds[2];
+    int count = 1;
+    int result;
+    char drain[64];
+
+    fds[0].fd = fileno(session->in);
+    fds[0].events = POLLIN;
+    fds[0].revents = 0;
+
+    if( session->wakeupPipe[0] != -1 )
     {
-    case 0401:
-        result = KEY_MIN;
-        break;
-    case 0402:
-        result = KEY_DOWN;
-        break;
-    case 0403:
-        result = KEY_UP;
-        break;
-    case 0404:
-        result = KEY_LEFT;
-        break;
-    case 0405:
-        result = KEY_RIGHT;
-        break;
-    case 0406:
-        result = KEY_HOME;
-        break;
-    case 0407:
-        result = KEY_BACKSPACE;
-        break;
-    case 0410:
-        result = KEY_F0;
-        break;
-    case 0411:
-        result = KEY_F(1);
-        break;
-    case 0412:
-        result = KEY_F(2);
-        break;
-    case 0413:
-        result = KEY_F(3);
-        break;
-    case 0414:
-        result = KEY_F(4);
-        break;
-    case 0415:
-        result = KEY_F(5);
-        break;
-    case 0416:
-        result = KEY_F(6);
-        break;
-    case 0417:
-        result = KEY_F(7);
-        break;
-    case 0420:
-        result = KEY_F(010);
-        break;
-    case 0421:
-        result = KEY_F(011);
-        break;
-    case 0422:
-        result = KEY_F(012);
-        break;
-    case 0423:
-        result = KEY_F(013);
-        break;
-    case 0424:
-        result = KEY_F(014);
-        break;
-
-    case 0510:
-        result = KEY_DL;
-        break;
-    case 0511:
-        result = KEY_IL;
-        break;
-    case 0512:
-        result = KEY_DC;
-        break;
-    case 0513:
-        result = KEY_IC;
-        break;
-    case 0514:
-        result = KEY_EIC;
-        break;
-    case 0515:
-        result = KEY_CLEAR;
-        break;
-    case 0516:
-        result = KEY_EOS;
-        break;
-    case 0517:
-        result = KEY_EOL;
-        break;
-
-    case 0520:
-        result = KEY_SF;
-        break;
-    case 0521:
-        result = KEY_SR;
-        break;
-    case 0522:
-        result = KEY_NPAGE;
-        break;
-    case 0523:
-        result = KEY_PPAGE;
-        break;
-    case 0524:
-        result = KEY_STAB;
-        break;
-    case 0525:
-        result = KEY_CTAB;
-        break;
-    case 0526:
-        result = KEY_CATAB;
-        break;
-    case 0527:
-        result = KEY_ENTER;
-        break;
-
-    case 0530:
-        result = KEY_SRESET;
-        break;
-    case 0531:
-        result = KEY_RESET;
-        break;
-    case 0532:
-        result = KEY_PRINT;
-        break;
-    case 0533:
-        result = KEY_LL;
-        break;
-    case 0534:
-        result = KEY_A1;
-        break;
-    case 0535:
-        result = KEY_A3;
-        break;
-    case 0536:
-        result = KEY_B2;
-        break;
-    case 0537:
-        result = KEY_C1;
-        break;
-
-
-    case 0540:
-        result = KEY_C3;
-        break;
-    case 0541:
-        result = KEY_BTAB;
-        break;
-    case 0542:
-        result = KEY_BEG;
-        break;
-    case 0543:
-        result = KEY_CANCEL;
-        break;
-    case 0544:
-        result = KEY_CLOSE;
-        break;
-    case 0545:
-        result = KEY_COMMAND;
-        break;
-    case 0546:
-        result = KEY_COPY;
-        break;
-    case 0547:
-        result = KEY_CREATE;
-        break;
-
-    case 0550:
-        result = KEY_END;
-        break;
-    case 0551:
-        result = KEY_EXIT;
-        break;
-    case 0552:
-        result = KEY_FIND;
-        break;
-    case 0553:
-        result = KEY_HELP;
-        break;
-    case 0554:
-        result = KEY_MARK;
-        break;
-    case 0555:
-        result = KEY_MESSAGE;
-        break;
-    case 0556:
-        result = KEY_MOVE;
-        break;
-    case 0557:
-        result = KEY_NEXT;
-        break;
-
-    case 0560:
-        result = KEY_OPEN;
-        break;
-    case 0561:
-        result = KEY_OPTIONS;
-        break;
-    case 0562:
-        result = KEY_PREVIOUS;
-        break;
-    case 0563:
-        result = KEY_REDO;
-        break;
-    case 0564:
-        result = KEY_REFERENCE;
-        break;
-    case 0565:
-        result = KEY_REFRESH;
-        break;
-    case 0566:
-        result = KEY_REPLACE;
-        break;
-    case 0567:
-        result = KEY_RESTART;
-        break;
-
-    case 0570:
-        result = KEY_RESUME;
-        break;
-    case 0571:
-        result = KEY_SAVE;
-        break;
-    case 0572:
-        result = KEY_SBEG;
-        break;
-    case 0573:
-        result = KEY_SCANCEL;
-        break;
-    case 0574:
-        result = KEY_SCOMMAND;
-        break;
-    case 0575:
-        result = KEY_SCOPY;
-        break;
-    case 0576:
-        result = KEY_SCREATE;
-        break;
-    case 0577:
-        result = KEY_SDC;
-        break;
-
-    case 0600:
-        result = KEY_SDL;
-        break;
-    case 0601:
-        result = KEY_SELECT;
-        break;
-    case 0602:
-        result = KEY_SEND;
-        break;
-    case 0603:
-        result = KEY_SEOL;
-        break;
-    case 0604:
-        result = KEY_SEXIT;
-        break;
-    case 0605:
-        result = KEY_SFIND;
-        break;
-    case 0606:
-        result = KEY_SHELP;
-        break;
-    case 0607:
-        result = KEY_SHOME;
-        break;
-
-    case 0610:
-        result = KEY_SIC;
-        break;
-    case 0611:
-        result = KEY_SLEFT;
-        break;
-    case 0612:
-        result = KEY_SMESSAGE;
-        break;
-    case 0613:
-        result = KEY_SMOVE;
-        break;
-    case 0614:
-        result = KEY_SNEXT;
-        break;
-    case 0615:
-        result = KEY_SOPTIONS;
-        break;
-    case 0616:
-        result = KEY_SPREVIOUS;
-        break;
-    case 0617:
-        result = KEY_SPRINT;
-        break;
-
-    case 0620:
-        result = KEY_SREDO;
-        break;
-    case 0621:
-        result = KEY_SRIGHT;
-        break;
-    case 0622:
-        result = KEY_SREPLACE;
-        break;
-    case 0623:
-        result = KEY_SRSUME;
-        break;
-    case 0624:
-        result = KEY_SSAVE;
-        break;
-    case 0625:
-        result = KEY_SSUSPEND;
-        break;
-    case 0626:
-        result = KEY_SUNDO;
-        break;
-    case 0627:
-        result = KEY_SUSPEND;
-        break;
-    case 0630:
-        result = KEY_UNDO;
-        break;
-    case 777:
-        result = KEY_MAX;
-        break;
-    default:
-        result = KEY_MIN;
+        fds[1].fd = session->wakeupPipe[0];
+        fds[1].events = POLLIN;
+        fds[1].revents = 0;
+        count = 2;
     }
 
-    return result;
-}
+    if( session->isDefault && resizePending )
+        return JNI_TRUE;
 
+    result = poll(fds, count, aTimeout);
 
-JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_changeColors (JNIEnv *env, jclass clazz, jint x, jint y, jint width, jint height, jshort colorpair, jlong attr)
-{
-    int i,j;
-    chtype currentChar = 0;
-    attrset(JCURSES_ATTRIBUTES(colorpair,attr));
-    for( i=0; i<width; i++ )
+    /* interrupted by a signal, curses may have queued a key */
+    if( result < 0 )
+        return (errno == EINTR) ? JNI_TRUE : JNI_FALSE;
+
+    if( (count == 2) && (fds[1].revents & POLLIN) )
     {
-        for( j=0;j<height; j++ )
-        {
-            currentChar = (mvinch(y+j,x+i) & A_CHARTEXT);
-	    move(y, x);
-      	    if(buffer)
-              addch(currentChar);
-	    else
-              echochar(currentChar);
-        }
+        while( read(session->wakeupPipe[0], drain, sizeof(drain)) > 0 )
+            ;
     }
-    endPainting();
-}
 
+    /* a resize is reported as a key by readInput */
+    if( session->isDefault && resizePending )
+        return JNI_TRUE;
 
-JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_startPainting (JNIEnv * env, jclass clazz)
-{
-    paintingAction++;
+    return (fds[0].revents & (POLLIN | POLLHUP | POLLERR)) ? JNI_TRUE : JNI_FALSE;
 }
 
 
-JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_endPainting (JNIEnv * env , jclass clazz)
+JNIEXPORT void JNICALL Java_jcurses_system_NcursesBackend_wakeup (JNIEnv * env, jclass aClass, jlong aSession)
 {
-    if( paintingAction > 0 )
-      paintingAction--;
+    jcurses_session * session = (jcurses_session *) (intptr_t) aSession;
+    char c = 0;
 
-    endPainting();
+    if( session->wakeupPipe[1] != -1 )
+    {
+        if( write(session->wakeupPipe[1], &c, 1) < 0 )
+            return;
+    }
 }
 
 
-JNIEXPORT void JNICALL Java_jcurses_system_Toolkit_beep (JNIEnv * env, jclass clazz)
+JNIEXPORT void JNICALL Java_jcurses_system_NcursesBackend_beep (JNIEnv * env, jclass aClass, jlong aSession)
 {
+    toSession(aSession);
     beep();
 }
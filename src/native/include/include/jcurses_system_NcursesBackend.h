@@ -0,0 +1,157 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class jcurses_system_NcursesBackend */
+
+#ifndef _Included_jcurses_system_NcursesBackend
+#define _Included_jcurses_system_NcursesBackend
+#ifdef __cplusplus
+extern "C" {
+#endif
+/*
+ * Class:     jcurses_system_NcursesBackend
+ * Method:    fillBasicColors
+ * Signature: ([S)V
+ */
+JNIEXPORT void JNICALL Java_jcurses_system_NcursesBackend_fillBasicColors
+  (JNIEnv *, jobject, jshortArray);
+
+/*
+ * Class:     jcurses_system_NcursesBackend
+ * Method:    fillAttributes
+ * Signature: ([J)V
+ */
+JNIEXPORT void JNICALL Java_jcurses_system_NcursesBackend_fillAttributes
+  (JNIEnv *, jobject, jlongArray);
+
+/*
+ * Class:     jcurses_system_NcursesBackend
+ * Method:    nativeInit
+ * Signature: (Ljava/lang/String;Ljava/lang/String;)J
+ */
+JNIEXPORT jlong JNICALL Java_jcurses_system_NcursesBackend_nativeInit
+  (JNIEnv *, jclass, jstring, jstring);
+
+/*
+ * Class:     jcurses_system_NcursesBackend
+ * Method:    shutdown
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_jcurses_system_NcursesBackend_shutdown
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     jcurses_system_NcursesBackend
+ * Method:    getScreenWidth
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_jcurses_system_NcursesBackend_getScreenWidth
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     jcurses_system_NcursesBackend
+ * Method:    getScreenHeight
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_jcurses_system_NcursesBackend_getScreenHeight
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     jcurses_system_NcursesBackend
+ * Method:    getColorCount
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_jcurses_system_NcursesBackend_getColorCount
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     jcurses_system_NcursesBackend
+ * Method:    getColorPairCount
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_jcurses_system_NcursesBackend_getColorPairCount
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     jcurses_system_NcursesBackend
+ * Method:    initColorPair
+ * Signature: (JSSS)V
+ */
+JNIEXPORT void JNICALL Java_jcurses_system_NcursesBackend_initColorPair
+  (JNIEnv *, jclass, jlong, jshort, jshort, jshort);
+
+/*
+ * Class:     jcurses_system_NcursesBackend
+ * Method:    adjustColor
+ * Signature: (JSSSS)V
+ */
+JNIEXPORT void JNICALL Java_jcurses_system_NcursesBackend_adjustColor
+  (JNIEnv *, jclass, jlong, jshort, jshort, jshort, jshort);
+
+/*
+ * Class:     jcurses_system_NcursesBackend
+ * Method:    readInput
+ * Signature: (J[III)I
+ */
+JNIEXPORT jint JNICALL Java_jcurses_system_NcursesBackend_readInput
+  (JNIEnv *, jclass, jlong, jintArray, jint, jint);
+
+/*
+ * Class:     jcurses_system_NcursesBackend
+ * Method:    waitForInput
+ * Signature: (JI)Z
+ */
+JNIEXPORT jboolean JNICALL Java_jcurses_system_NcursesBackend_waitForInput
+  (JNIEnv *, jclass, jlong, jint);
+
+/*
+ * Class:     jcurses_system_NcursesBackend
+ * Method:    wakeup
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_jcurses_system_NcursesBackend_wakeup
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     jcurses_system_NcursesBackend
+ * Method:    beep
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_jcurses_system_NcursesBackend_beep
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     jcurses_system_NcursesBackend
+ * Method:    replay
+ * Signature: (JLjava/nio/ByteBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_jcurses_system_NcursesBackend_replay
+  (JNIEnv *, jclass, jlong, jobject, jint);
+
+/*
+ * Class:     jcurses_system_NcursesBackend
+ * Method:    computeChtype
+ * Signature: (S)I
+ */
+JNIEXPORT jint JNICALL Java_jcurses_system_NcursesBackend_computeChtype
+  (JNIEnv *, jclass, jshort);
+
+/*
+ * Class:     jcurses_system_NcursesBackend
+ * Method:    hasColorsAsInteger
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_jcurses_system_NcursesBackend_hasColorsAsInteger
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     jcurses_system_NcursesBackend
+ * Method:    hasWideOutput
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_jcurses_system_NcursesBackend_hasWideOutput
+  (JNIEnv *, jclass);
+
+#ifdef __cplusplus
+}
+#endif
+#endif